@@ -0,0 +1,37 @@
+package com.marklalor.monopolysim.benchmark;
+
+/**
+ * A single operation measured by the {@link BenchmarkRunner}.
+ */
+public abstract class Benchmark
+{
+	/**
+	 * @return The name the benchmark is reported and selected by.
+	 */
+	public abstract String getName();
+	
+	/**
+	 * Prepares everything the operation needs. Called once, before any iteration.
+	 * @throws Exception If the benchmark could not be prepared.
+	 */
+	public void setUp() throws Exception
+	{
+	}
+	
+	/**
+	 * Runs the operation <code>ops</code> times.
+	 * <p>
+	 * The result is consumed by the runner so that the work cannot be optimized away.
+	 * @param ops The number of times to run the operation.
+	 * @return Any value derived from the results of the operations.
+	 */
+	public abstract long run(int ops);
+	
+	/**
+	 * Releases anything opened by {@link #setUp()}.
+	 * @throws Exception If the benchmark could not be cleaned up.
+	 */
+	public void tearDown() throws Exception
+	{
+	}
+}
@@ -0,0 +1,114 @@
+package com.marklalor.monopolysim.benchmark;
+
+import java.lang.management.ManagementFactory;
+import java.text.DecimalFormat;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.marklalor.monopolysim.Main;
+
+/**
+ * Measures the throughput and allocation rate of the simulation hot paths.
+ * <p>
+ * Each benchmark is warmed up and then measured over several timed iterations, in the manner of JMH. Throughput is
+ * reported in operations per second with the spread of the iterations, and allocation in bytes per operation, read
+ * from the allocation counter of the measuring thread.
+ * <p>
+ * Usage: <code>BenchmarkRunner [name ...]</code> to run only the named benchmarks.
+ */
+public class BenchmarkRunner
+{
+	public static final int WARMUP_ITERATIONS = 5;
+	public static final int MEASUREMENT_ITERATIONS = 5;
+	/** Length of each iteration in nanoseconds. */
+	public static final long ITERATION_TIME = 1000000000L;
+	/** Operations run between each check of the clock. */
+	public static final int BATCH = 1 << 12;
+	
+	/** Consumes the results of the benchmarks. */
+	public static volatile long sink;
+	
+	public static List<Benchmark> all()
+	{
+		List<Benchmark> benchmarks = new ArrayList<Benchmark>();
+		benchmarks.add(new TurnBenchmark());
+		benchmarks.add(new DieBenchmark());
+		benchmarks.add(new RollBenchmark());
+		benchmarks.add(new CardBenchmark());
+		benchmarks.add(new NearestBenchmark());
+		benchmarks.add(new DataBenchmark(false));
+		benchmarks.add(new DataBenchmark(true));
+		return benchmarks;
+	}
+	
+	public static void main(String[] args) throws Exception
+	{
+		//Keep the echo of CSV data out of the measurements.
+		Main.DEBUGCSV = false;
+		
+		com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+		long thread = Thread.currentThread().getId();
+		DecimalFormat df = new DecimalFormat("#,##0.0");
+		
+		System.out.println(String.format("%-24s %20s %14s", "Benchmark", "ops/s", "B/op"));
+		for (Benchmark benchmark : all())
+		{
+			if (args.length > 0 && !contains(args, benchmark.getName()))
+				continue;
+			
+			benchmark.setUp();
+			for (int i = 0; i < WARMUP_ITERATIONS; i++)
+				iterate(benchmark);
+			
+			double[] throughput = new double[MEASUREMENT_ITERATIONS];
+			double bytes = 0;
+			long ops = 0;
+			for (int i = 0; i < MEASUREMENT_ITERATIONS; i++)
+			{
+				long allocated = threads.getThreadAllocatedBytes(thread);
+				long start = System.nanoTime();
+				long done = iterate(benchmark);
+				long elapsed = System.nanoTime() - start;
+				bytes += threads.getThreadAllocatedBytes(thread) - allocated;
+				ops += done;
+				throughput[i] = done * 1e9 / elapsed;
+			}
+			benchmark.tearDown();
+			
+			double mean = 0;
+			for (double t : throughput)
+				mean += t / throughput.length;
+			double variance = 0;
+			for (double t : throughput)
+				variance += (t - mean) * (t - mean) / (throughput.length - 1);
+			
+			System.out.println(String.format("%-24s %20s %14s", benchmark.getName(), df.format(mean) + " +- " + df.format(Math.sqrt(variance)), df.format(bytes / ops)));
+		}
+	}
+	
+	/**
+	 * Runs batches of the operation for one iteration.
+	 * @return The number of operations run.
+	 */
+	private static long iterate(Benchmark benchmark)
+	{
+		long ops = 0;
+		long end = System.nanoTime() + ITERATION_TIME;
+		long result = 0;
+		while (System.nanoTime() < end)
+		{
+			result += benchmark.run(BATCH);
+			ops += BATCH;
+		}
+		sink = result;
+		return ops;
+	}
+	
+	private static boolean contains(String[] names, String name)
+	{
+		for (String n : names)
+			if (n.equalsIgnoreCase(name))
+				return true;
+		return false;
+	}
+}
@@ -0,0 +1,33 @@
+package com.marklalor.monopolysim.benchmark;
+
+import com.marklalor.monopolysim.game.card.ChanceCard;
+import com.marklalor.monopolysim.roll.random.Generator;
+
+/**
+ * A single {@link ChanceCard#getCardAction()}.
+ */
+public class CardBenchmark extends Benchmark
+{
+	private ChanceCard chance;
+	
+	@Override
+	public String getName()
+	{
+		return "card";
+	}
+	
+	@Override
+	public void setUp()
+	{
+		chance = new ChanceCard(Generator.XOROSHIRO.create(1));
+	}
+	
+	@Override
+	public long run(int ops)
+	{
+		long sum = 0;
+		for (int i = 0; i < ops; i++)
+			sum += chance.getCardAction().ordinal();
+		return sum;
+	}
+}
@@ -0,0 +1,65 @@
+package com.marklalor.monopolysim.benchmark;
+
+import java.io.File;
+
+import com.marklalor.monopolysim.Settings;
+import com.marklalor.monopolysim.game.Game;
+import com.marklalor.monopolysim.game.data.Data;
+
+/**
+ * A {@link Data#writeLine()} with a data interval of 1, so that every call writes a line to a temporary file.
+ */
+public class DataBenchmark extends Benchmark
+{
+	private boolean async;
+	private File file;
+	private Game game;
+	
+	/**
+	 * @param async <code>true</code> to write through the background writer thread.
+	 */
+	public DataBenchmark(boolean async)
+	{
+		this.async = async;
+	}
+	
+	@Override
+	public String getName()
+	{
+		return async ? "writeLine.async" : "writeLine.sync";
+	}
+	
+	@Override
+	public void setUp() throws Exception
+	{
+		file = File.createTempFile("benchmark", ".csv");
+		file.deleteOnExit();
+		
+		Settings settings = new Settings();
+		settings.setSeed(1);
+		settings.setDataFile(file);
+		settings.setDataInterval(1);
+		settings.setAsyncData(async);
+		game = new Game(settings);
+		
+		//Give the counters realistic lengths.
+		for (int i = 0; i < 1000000; i++)
+			game.turn();
+	}
+	
+	@Override
+	public long run(int ops)
+	{
+		Data data = game.getData();
+		for (int i = 0; i < ops; i++)
+			data.writeLine();
+		return file.length();
+	}
+	
+	@Override
+	public void tearDown()
+	{
+		game.getData().close();
+		file.delete();
+	}
+}
@@ -0,0 +1,33 @@
+package com.marklalor.monopolysim.benchmark;
+
+import com.marklalor.monopolysim.roll.Die;
+import com.marklalor.monopolysim.roll.random.Generator;
+
+/**
+ * A single {@link Die#roll()}.
+ */
+public class DieBenchmark extends Benchmark
+{
+	private Die die;
+	
+	@Override
+	public String getName()
+	{
+		return "die";
+	}
+	
+	@Override
+	public void setUp()
+	{
+		die = new Die(6, Generator.XOROSHIRO.create(1));
+	}
+	
+	@Override
+	public long run(int ops)
+	{
+		long sum = 0;
+		for (int i = 0; i < ops; i++)
+			sum += die.roll();
+		return sum;
+	}
+}
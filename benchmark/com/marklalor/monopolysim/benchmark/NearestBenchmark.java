@@ -0,0 +1,37 @@
+package com.marklalor.monopolysim.benchmark;
+
+import com.marklalor.monopolysim.game.Board;
+import com.marklalor.monopolysim.game.space.special.Chance;
+import com.marklalor.monopolysim.roll.random.Generator;
+
+/**
+ * A {@link Board#getNearestRailroad(int)} and a {@link Board#getNearestUtility(int)} from a chance space.
+ */
+public class NearestBenchmark extends Benchmark
+{
+	private Board board;
+	
+	@Override
+	public String getName()
+	{
+		return "nearest";
+	}
+	
+	@Override
+	public void setUp()
+	{
+		board = new Board(Generator.XOROSHIRO.create(1));
+	}
+	
+	@Override
+	public long run(int ops)
+	{
+		long sum = 0;
+		for (int i = 0; i < ops; i++)
+		{
+			int position = Chance.POSITIONS[i % Chance.POSITIONS.length];
+			sum += board.getNearestRailroad(position).getPosition() + board.getNearestUtility(position).getPosition();
+		}
+		return sum;
+	}
+}
@@ -0,0 +1,33 @@
+package com.marklalor.monopolysim.benchmark;
+
+import com.marklalor.monopolysim.roll.Roll;
+import com.marklalor.monopolysim.roll.random.Generator;
+
+/**
+ * A single {@link Roll#roll()} of the two standard dice.
+ */
+public class RollBenchmark extends Benchmark
+{
+	private Roll roll;
+	
+	@Override
+	public String getName()
+	{
+		return "roll";
+	}
+	
+	@Override
+	public void setUp()
+	{
+		roll = new Roll(Generator.XOROSHIRO.create(1));
+	}
+	
+	@Override
+	public long run(int ops)
+	{
+		long sum = 0;
+		for (int i = 0; i < ops; i++)
+			sum += roll.roll() + (roll.isDouble() ? 1 : 0);
+		return sum;
+	}
+}
@@ -0,0 +1,34 @@
+package com.marklalor.monopolysim.benchmark;
+
+import com.marklalor.monopolysim.Settings;
+import com.marklalor.monopolysim.game.Game;
+
+/**
+ * A full {@link Game#turn()}, including doubles, cards and jail, without writing any data.
+ */
+public class TurnBenchmark extends Benchmark
+{
+	private Game game;
+	
+	@Override
+	public String getName()
+	{
+		return "turn";
+	}
+	
+	@Override
+	public void setUp()
+	{
+		Settings settings = new Settings();
+		settings.setSeed(1);
+		game = new Game(settings);
+	}
+	
+	@Override
+	public long run(int ops)
+	{
+		for (int i = 0; i < ops; i++)
+			game.turn();
+		return game.getPosition();
+	}
+}
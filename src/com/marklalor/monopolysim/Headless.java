@@ -0,0 +1,199 @@
+package com.marklalor.monopolysim;
+
+import java.io.File;
+
+import com.marklalor.monopolysim.game.Game;
+import com.marklalor.monopolysim.game.JailPolicy;
+import com.marklalor.monopolysim.game.Simulation;
+import com.marklalor.monopolysim.game.card.DeckMode;
+import com.marklalor.monopolysim.game.data.DataFormat;
+import com.marklalor.monopolysim.game.display.ImageFormat;
+import com.marklalor.monopolysim.roll.random.Generator;
+
+/**
+ * Runs a simulation from named flags, without ever prompting, for batch jobs.
+ * <p>
+ * Unlike {@link Main}, this entry point never touches <code>java.awt</code> or <code>javax.swing</code>: there is no
+ * file chooser and no live view, and the board is only drawn if images are asked for. A run without images loads
+ * nothing but the simulation itself, which keeps short jobs quick to start and small.
+ * <p>
+ * Files are used exactly as given, without the timestamp {@link Main} adds to their names.
+ */
+public class Headless
+{
+	private static final String USAGE = "Usage: java -cp <classes> com.marklalor.monopolysim.Headless [flags]" + System.lineSeparator()
+	        + "  --rolls <n>                   rolls to simulate (1000000)" + System.lineSeparator()
+	        + "  --data <file>                 data file to write (none)" + System.lineSeparator()
+	        + "  --data-interval <n>           rolls between lines of data (10000)" + System.lineSeparator()
+	        + "  --data-format <csv|binary>    format of the data file (csv)" + System.lineSeparator()
+	        + "  --async-data <true|false>     write the data on a separate thread (true)" + System.lineSeparator()
+	        + "  --images <file>               folder or animation to save images of the board to (none)" + System.lineSeparator()
+	        + "  --image-interval <n>          rolls between images (10)" + System.lineSeparator()
+	        + "  --image-format <gif|png>      format of the images (gif)" + System.lineSeparator()
+	        + "  --high-quality <true|false>   draw the images in full color (true)" + System.lineSeparator()
+	        + "  --threads <n>                 threads to split the rolls across (1)" + System.lineSeparator()
+	        + "  --seed <n>                    seed to replay a run with (random)" + System.lineSeparator()
+	        + "  --generator <xoroshiro|splittable>  random number generator (xoroshiro)" + System.lineSeparator()
+	        + "  --checkpoint <file>           checkpoint file to save (none)" + System.lineSeparator()
+	        + "  --checkpoint-interval <n>     rolls between checkpoints (1000000)" + System.lineSeparator()
+	        + "  --checkpoint-sync <true|false>  force each checkpoint to the disk, to survive a power loss (true)" + System.lineSeparator()
+	        + "  --deck <random|shuffled>      how the cards are drawn (random)" + System.lineSeparator()
+	        + "  --precision <p>               stop once every probability is within p, 0 to run every roll (0)" + System.lineSeparator()
+	        + "  --confidence <c>              confidence of the precision (0.99)" + System.lineSeparator()
+	        + "  --jail <wait|pay>             how the player gets out of jail (wait)" + System.lineSeparator()
+	        + "  --dice <dice>                 dice to roll, such as 2d6, 3d6 or 2d6:1/1/1/1/1/2 (2d6)" + System.lineSeparator()
+	        + "  --layout <file>               board layout file, or standard (standard)" + System.lineSeparator()
+	        + "  --metrics <true|false>        publish the progress over JMX while running (false)" + System.lineSeparator()
+	        + "  --resume <file>               continue from a checkpoint, ignoring every other flag" + System.lineSeparator()
+	        + "  --help                        print this message";
+
+	public static void main(String[] args) throws InterruptedException
+	{
+		Settings settings = new Settings();
+		settings.setRolls(1000000);
+		settings.setRealTime(false);
+		settings.setClear(false);
+		settings.setHighQuality(true);
+		settings.setDataInterval(10000);
+		settings.setImageInterval(10);
+		settings.setCheckpointInterval(1000000);
+		File resume = null;
+
+		for (int i = 0; i < args.length; i++)
+		{
+			String flag = args[i];
+			if (flag.equals("--help") || flag.equals("-h"))
+			{
+				System.out.println(USAGE);
+				return;
+			}
+			if (!flag.startsWith("--") || i + 1 == args.length)
+				fail("Expected a flag followed by its value, not \"" + flag + "\"!");
+			String value = args[++i];
+			try
+			{
+				switch (flag)
+				{
+					case "--rolls":
+						settings.setRolls(Long.parseLong(value));
+						break;
+					case "--data":
+						settings.setDataFile(file(value));
+						break;
+					case "--data-interval":
+						settings.setDataInterval(Integer.parseInt(value));
+						break;
+					case "--data-format":
+						settings.setDataFormat(DataFormat.valueOf(value.toUpperCase()));
+						break;
+					case "--async-data":
+						settings.setAsyncData(Boolean.parseBoolean(value));
+						break;
+					case "--images":
+						settings.setImageFile(file(value));
+						break;
+					case "--image-interval":
+						settings.setImageInterval(Integer.parseInt(value));
+						break;
+					case "--image-format":
+						settings.setImageFormat(ImageFormat.valueOf(value.toUpperCase()));
+						break;
+					case "--high-quality":
+						settings.setHighQuality(Boolean.parseBoolean(value));
+						break;
+					case "--threads":
+						settings.setThreads(Integer.parseInt(value));
+						break;
+					case "--seed":
+						if (!value.equalsIgnoreCase("random"))
+							settings.setSeed(Long.parseLong(value));
+						break;
+					case "--generator":
+						settings.setGenerator(Generator.valueOf(value.toUpperCase()));
+						break;
+					case "--checkpoint":
+						settings.setCheckpointFile(file(value));
+						break;
+					case "--checkpoint-interval":
+						settings.setCheckpointInterval(Long.parseLong(value));
+						break;
+					case "--checkpoint-sync":
+						settings.setCheckpointSync(Boolean.parseBoolean(value));
+						break;
+					case "--deck":
+						settings.setDeckMode(DeckMode.valueOf(value.toUpperCase()));
+						break;
+					case "--precision":
+						settings.setPrecision(Double.parseDouble(value));
+						break;
+					case "--confidence":
+						settings.setConfidence(Double.parseDouble(value));
+						break;
+					case "--jail":
+						settings.setJailPolicy(JailPolicy.valueOf(value.toUpperCase()));
+						break;
+					case "--dice":
+						settings.setDice(value);
+						break;
+					case "--layout":
+						settings.setLayout(Main.layout(value));
+						break;
+					case "--metrics":
+						settings.setMetrics(Boolean.parseBoolean(value));
+						break;
+					case "--resume":
+						resume = new File(value);
+						break;
+					default:
+						fail("Unknown flag \"" + flag + "\"!");
+				}
+			}
+			catch(IllegalArgumentException e)
+			{
+				fail("Invalid value \"" + value + "\" for " + flag + "!");
+			}
+		}
+
+		//Nothing is saved without a file, whatever the interval.
+		if (settings.getDataFile() == null)
+			settings.setDataInterval(0);
+		if (settings.getImageFile() == null)
+			settings.setImageInterval(0);
+		if (settings.getCheckpointFile() == null)
+			settings.setCheckpointInterval(0);
+
+		Game game;
+		if (resume != null)
+		{
+			//A checkpoint of an interactive run may have asked for the live view.
+			game = Main.resume(resume, false);
+		}
+		else
+		{
+			Main.SETTINGS = settings;
+			System.out.println("Seed: " + settings.getSeed() + " (" + settings.getGenerator().toString().toLowerCase() + ")");
+			if (settings.getThreads() > 1)
+				game = Main.run(new Simulation(settings));
+			else
+			{
+				game = new Game(settings);
+				Main.simulate(game);
+			}
+		}
+
+		game.getData().close();
+		game.getRenderer().close();
+	}
+
+	private static File file(String path)
+	{
+		return path.equalsIgnoreCase("null") ? null : new File(path);
+	}
+
+	private static void fail(String message)
+	{
+		System.out.println(message);
+		System.out.println(USAGE);
+		System.exit(1);
+	}
+}
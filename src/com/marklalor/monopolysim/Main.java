@@ -1,15 +1,44 @@
 package com.marklalor.monopolysim;
 
+import java.awt.GraphicsEnvironment;
 import java.io.File;
+import java.io.IOException;
 import java.text.DateFormat;
 import java.text.DecimalFormat;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Date;
+import java.util.List;
 import java.util.Scanner;
+import java.util.concurrent.atomic.AtomicLong;
 
 import javax.swing.JFileChooser;
 
+import com.marklalor.monopolysim.game.Board;
+import com.marklalor.monopolysim.game.Checkpoint;
+import com.marklalor.monopolysim.game.Comparison;
+import com.marklalor.monopolysim.game.Convergence;
 import com.marklalor.monopolysim.game.Game;
+import com.marklalor.monopolysim.game.JailPolicy;
+import com.marklalor.monopolysim.game.Simulation;
+import com.marklalor.monopolysim.game.batch.BatchEngine;
+import com.marklalor.monopolysim.game.card.DeckMode;
+import com.marklalor.monopolysim.game.data.DataFormat;
+import com.marklalor.monopolysim.game.display.ImageFormat;
+import com.marklalor.monopolysim.game.display.Viewer;
+import com.marklalor.monopolysim.game.full.BuiltInStrategy;
+import com.marklalor.monopolysim.game.full.FullGameSimulation;
+import com.marklalor.monopolysim.game.full.Strategy;
+import com.marklalor.monopolysim.game.full.Tournament;
+import com.marklalor.monopolysim.game.layout.Layout;
+import com.marklalor.monopolysim.game.markov.MarkovChain;
+import com.marklalor.monopolysim.game.metrics.ProgressReporter;
+import com.marklalor.monopolysim.game.metrics.SimulationMetrics;
+import com.marklalor.monopolysim.game.metrics.TurnBatchEvent;
+import com.marklalor.monopolysim.game.metrics.TurnBatches;
+import com.marklalor.monopolysim.roll.Roll;
+import com.marklalor.monopolysim.roll.random.Generator;
 
 public class Main
 {
@@ -17,25 +46,13 @@ public class Main
 	public static boolean DEBUG = false;
 	public static boolean DEBUGCSV = true;
 	
-	/** Rolls of the dice to simulate. */
-	public static int ROLLS;
-	/** File to save simulation CSV data to. */
-	public static File DATA_FILE;
-	/** Saves data only every <code>DATA_INTERVAL</code> roll(s). */
-	public static int DATA_INTERVAL;
-	/** Folder to save simulation image data to. */
-	public static File IMAGE_FILE;
-	/** Saves image data only every <code>IMAGE_INTERVAL</code> roll(s). */
-	public static int IMAGE_INTERVAL;
-	/** True if the high quality display is being used. */
-	public static boolean HIGH_QUALITY;
-	/** True if a <code>JFrame</code> should be used to display the <code>BufferedImage<code> in real time. */
-	public static boolean REAL_TIME;
-	/** True if the console should be cleared constantly */
-	public static boolean CLEAR;
-	
-	/** Default values for the seven above constants. */
-	private static final String[] defaults = {"1000000","/Library/Application Support/Monopoly Simulator/data","10000","/Library/Application Support/Monopoly Simulator/images/","10","true","true","false"};
+	/** Configuration of the current run, gathered from the user. */
+	public static Settings SETTINGS = new Settings();
+	
+	/** Default values for each of the {@link Settings}, in the order they are entered. */
+	private static final String[] defaults = {"1000000","/Library/Application Support/Monopoly Simulator/data","10000","/Library/Application Support/Monopoly Simulator/images/","10","true","true","false","1","random","xoroshiro","true","csv","null","1000000","random","gif","0","0.99","wait","2d6","standard","false","true"};
+	/** Number of values that must always be given. The ones after these may be left off to use their defaults. */
+	private static final int REQUIRED_VALUES = 8;
 	
 	/** @return <code>true</code> if <code>String val</code> equals (ignoring case) "default" or "def". */
 	private static boolean isDef(String val)
@@ -58,20 +75,321 @@ public class Main
 	    return ret;
 	}
 	
+	/**
+	 * Loads a board layout, exiting if it cannot be read.
+	 * @param name "standard" for the standard board, or the path of a layout file.
+	 * @return The layout.
+	 */
+	static Layout layout(String name)
+	{
+		if (name.equalsIgnoreCase("standard"))
+			return Layout.STANDARD;
+		try
+		{
+			return Layout.load(new File(name));
+		}
+		catch(IOException e)
+		{
+			System.out.println("Could not read the layout file!");
+			e.printStackTrace();
+			System.exit(1);
+		}
+		catch(IllegalArgumentException e)
+		{
+			System.out.println("Invalid layout file: " + e.getMessage());
+			System.exit(1);
+		}
+		return null;
+	}
+	
 	public final static void clearConsole()
 	{
 		//Works well on unix shell to clear the screen
 		System.out.print("\033[H\033[2J");
 	}
 	
+	/**
+	 * Prints the exact long-run landing probabilities of each space, and writes them as CSV data when a data file is given.
+	 * <p>
+	 * Arguments: <code>exact [rolls] [dataURL] [dice] [layout]</code>, where the data file holds the expected values
+	 * after <code>rolls</code> rolls, the dice default to {@link Roll#DEFAULT_DICE} and the layout to the standard board.
+	 */
+	private static void exact(String[] args, String timestamp)
+	{
+		long start = System.nanoTime();
+		Layout layout = layout(args.length > 4 ? args[4] : "standard");
+		Board board = new Board(Generator.XOROSHIRO.create(0), DeckMode.RANDOM, layout);
+		MarkovChain chain = new MarkovChain(board, Roll.parse(args.length > 3 ? args[3] : Roll.DEFAULT_DICE, null));
+		double[] probabilities = chain.getLandingProbabilities();
+		long elapsed = System.nanoTime() - start;
+		
+		DecimalFormat df = new DecimalFormat("#0.0000");
+		for (int i = 0; i < probabilities.length; i++)
+			System.out.println(i + " (" + board.getSpace(i).getName() + "): " + df.format(probabilities[i] * 100) + "%");
+		System.out.println("In jail: " + df.format(chain.getJailProbability() * 100) + "%");
+		System.out.println("Solved in " + (elapsed / 1000000.0) + "ms.");
+		
+		if (args.length > 2 && !args[2].equalsIgnoreCase("null"))
+		{
+			File file = new File(args[2] + timestamp);
+			try
+			{
+				chain.write(file, Long.parseLong(args[1]));
+			}
+			catch(IOException e)
+			{
+				System.out.println("Could not write to the data output file!");
+				e.printStackTrace();
+				System.exit(1);
+			}
+		}
+	}
+	
+	/**
+	 * Plays complete games between several players and prints the share of wins of each starting seat.
+	 * <p>
+	 * Arguments: <code>games [games] [players] [threads] [seed]</code>. The threads default to one per processor and
+	 * the seed to a random one.
+	 */
+	private static void games(String[] args) throws InterruptedException
+	{
+		Settings settings = new Settings();
+		long games = args.length > 1 ? Long.parseLong(args[1]) : 1000000;
+		int players = args.length > 2 ? Integer.parseInt(args[2]) : 4;
+		settings.setThreads(args.length > 3 ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors());
+		if (args.length > 4)
+			settings.setSeed(Long.parseLong(args[4]));
+		settings.setDeckMode(DeckMode.SHUFFLED);
+		System.out.println("Seed: " + settings.getSeed() + " (" + settings.getGenerator().toString().toLowerCase() + ")");
+		
+		long start = System.currentTimeMillis();
+		FullGameSimulation.Result result = new FullGameSimulation(settings, games, players).run();
+		long elapsed = System.currentTimeMillis() - start;
+		
+		DecimalFormat df = new DecimalFormat("#0.00");
+		for (int p = 0; p < players; p++)
+			System.out.println("Seat " + (p + 1) + ": " + df.format(result.getWins(p) * 100.0 / result.getGames()) + "% (" + result.getWins(p) + " wins)");
+		System.out.println("Draws: " + df.format(result.getDraws() * 100.0 / result.getGames()) + "% (" + result.getDraws() + ")");
+		System.out.println("Average rounds: " + df.format(result.getAverageRounds()));
+		System.out.println("Played " + result.getGames() + " games on " + settings.getThreads() + " threads in " + elapsed + "ms (" + (result.getGames() * 60000 / Math.max(1, elapsed)) + " games/minute).");
+	}
+	
+	/**
+	 * Plays strategies against each other and prints their standings.
+	 * <p>
+	 * Arguments: <code>tournament [maxGames] [threads] [seed] [strategy...]</code>. Every built-in strategy plays when
+	 * none are named.
+	 */
+	private static void tournament(String[] args)
+	{
+		Settings settings = new Settings();
+		long maxGames = args.length > 1 ? Long.parseLong(args[1]) : 100000;
+		settings.setThreads(args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors());
+		if (args.length > 3)
+			settings.setSeed(Long.parseLong(args[3]));
+		settings.setDeckMode(DeckMode.SHUFFLED);
+		List<Strategy> strategies = new ArrayList<Strategy>();
+		for (int i = 4; i < args.length; i++)
+			strategies.add(BuiltInStrategy.forName(args[i]));
+		if (strategies.isEmpty())
+			strategies.addAll(Arrays.asList(BuiltInStrategy.values()));
+		System.out.println("Seed: " + settings.getSeed() + " (" + settings.getGenerator().toString().toLowerCase() + ")");
+		
+		long start = System.currentTimeMillis();
+		Tournament tournament = new Tournament(settings, strategies, maxGames);
+		Tournament.Score[] standings = tournament.run();
+		long elapsed = System.currentTimeMillis() - start;
+		
+		long games = 0;
+		System.out.println("Standings:");
+		for (int i = 0; i < standings.length; i++)
+		{
+			Tournament.Score score = standings[i];
+			games += score.getGames();
+			System.out.println(strategies.get(i).getName() + ": " + tournament.format(score) + " (" + score.getWins() + " wins, " + score.getDraws() + " draws, " + score.getLosses() + " losses)");
+		}
+		//Each game counted once for each side.
+		games /= 2;
+		System.out.println("Played " + games + " games on " + settings.getThreads() + " threads in " + elapsed + "ms (" + (games * 60000 / Math.max(1, elapsed)) + " games/minute).");
+	}
+	
+	/**
+	 * Plays the default rules and one or more rule variants on the same dice and cards, and prints how much the
+	 * landing probability of each space changes under each variant.
+	 * <p>
+	 * Arguments: <code>compare [rolls] [seed] [variant...]</code>, where a variant is a list of changed rules such as
+	 * <code>jail=pay</code> or <code>jail=pay,deck=shuffled</code>.
+	 */
+	private static void compare(String[] args)
+	{
+		long rolls = args.length > 1 ? Long.parseLong(args[1]) : 10000000;
+		Settings base = new Settings();
+		if (args.length > 2)
+			base.setSeed(Long.parseLong(args[2]));
+		List<Settings> variants = new ArrayList<Settings>();
+		List<String> names = new ArrayList<String>();
+		variants.add(base);
+		names.add("default");
+		for (int i = 3; i < args.length; i++)
+		{
+			Settings variant = new Settings(base);
+			for (String rule : args[i].split(","))
+			{
+				String[] pair = rule.split("=");
+				if (pair.length != 2)
+				{
+					System.out.println("Rules are given as name=value, not \"" + rule + "\"!");
+					System.exit(1);
+				}
+				if (pair[0].equalsIgnoreCase("jail"))
+					variant.setJailPolicy(JailPolicy.valueOf(pair[1].toUpperCase()));
+				else if (pair[0].equalsIgnoreCase("deck"))
+					variant.setDeckMode(DeckMode.valueOf(pair[1].toUpperCase()));
+				else
+				{
+					System.out.println("Unknown rule \"" + pair[0] + "\" (jail or deck expected)!");
+					System.exit(1);
+				}
+			}
+			variants.add(variant);
+			names.add(args[i]);
+		}
+		if (variants.size() < 2)
+		{
+			System.out.println("Give at least one variant to compare, such as jail=pay.");
+			System.exit(1);
+		}
+		System.out.println("Seed: " + base.getSeed() + " (" + base.getGenerator().toString().toLowerCase() + ")");
+		
+		long start = System.currentTimeMillis();
+		Comparison comparison = new Comparison(variants, rolls, base.getConfidence());
+		comparison.run();
+		long elapsed = System.currentTimeMillis() - start;
+		
+		DecimalFormat df = new DecimalFormat("+#0.0000;-#0.0000");
+		DecimalFormat gain = new DecimalFormat("#0.0");
+		Board board = comparison.getGame(0).getBoard();
+		for (int v = 1; v < variants.size(); v++)
+		{
+			System.out.println(names.get(v) + " - " + names.get(0) + " (" + df.format(base.getConfidence() * 100).substring(1) + "% confidence, variance reduction):");
+			//Spaces that never differ (such as Go To Jail) are exact and left out of the average.
+			double reductions = 0;
+			int counted = 0;
+			for (int i = 0; i < board.size(); i++)
+			{
+				double reduction = comparison.getVarianceReduction(v, i);
+				boolean exact = Double.isInfinite(reduction) || Double.isNaN(reduction);
+				System.out.println(i + " (" + board.getSpace(i).getName() + "): " + df.format(comparison.getDifference(v, i) * 100) + "% +/- " + df.format(comparison.getHalfWidth(v, i) * 100).substring(1) + "% (" + (exact ? "exact" : "x" + gain.format(reduction)) + ")");
+				if (!exact)
+				{
+					reductions += Math.log(reduction);
+					counted++;
+				}
+			}
+			System.out.println("Average variance reduction: " + (counted == 0 ? "exact" : "x" + gain.format(Math.exp(reductions / counted))));
+		}
+		System.out.println("Compared " + variants.size() + " variants over " + comparison.getBatches() + " batches of " + Convergence.BATCH_ROLLS + " rolls in " + elapsed + "ms.");
+	}
+	
+	/**
+	 * Rolls for many tokens at once with the vectorized {@link BatchEngine} and prints the landing probability of each
+	 * space.
+	 * <p>
+	 * Arguments: <code>batch [rolls] [tokens] [seed] [layout]</code>. Needs <code>--add-modules jdk.incubator.vector</code>.
+	 */
+	private static void batch(String[] args)
+	{
+		long rolls = args.length > 1 ? Long.parseLong(args[1]) : 1000000000;
+		int tokens = args.length > 2 ? Integer.parseInt(args[2]) : 4096;
+		Settings settings = new Settings();
+		if (args.length > 3 && !args[3].equalsIgnoreCase("random"))
+			settings.setSeed(Long.parseLong(args[3]));
+		if (args.length > 4)
+			settings.setLayout(layout(args[4]));
+		System.out.println("Seed: " + settings.getSeed() + " (" + settings.getGenerator().toString().toLowerCase() + ")");
+		
+		Board board = new Board(settings.getGenerator().create(settings.getSeed()), settings.getDeckMode(), settings.getLayout());
+		BatchEngine engine = null;
+		try
+		{
+			engine = new BatchEngine(board, settings.getGenerator().create(settings.getSeed()), tokens, settings.getJailPolicy());
+		}
+		catch(IllegalArgumentException e)
+		{
+			System.out.println(e.getMessage());
+			System.exit(1);
+		}
+		long start = System.currentTimeMillis();
+		engine.run(rolls);
+		long elapsed = System.currentTimeMillis() - start;
+		
+		DecimalFormat df = new DecimalFormat("#0.0000");
+		for (int i = 0; i < board.size(); i++)
+			System.out.println(i + " (" + board.getSpace(i).getName() + "): " + df.format(engine.getHits(i) * 100.0 / engine.getRolls()) + "%");
+		System.out.println("Rolled " + engine.getRolls() + " times for " + engine.getTokens() + " tokens in " + elapsed + "ms (" + (engine.getRolls() / 1000 / Math.max(1, elapsed)) + " million rolls/second).");
+	}
+	
 	public static void main(String[] args) throws InterruptedException
 	{
 		DateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd--HH-mm-ss");
 		Date date = new Date();
-		String timestamp = "-" + dateFormat.format(date) + ".csv";
+		String timestamp = "-" + dateFormat.format(date);
+		
+		//Solve for the exact long-run probabilities instead of simulating.
+		if (args.length > 0 && args[0].equalsIgnoreCase("exact"))
+		{
+			exact(args, timestamp + ".csv");
+			return;
+		}
+		
+		//Play complete games between several players instead.
+		if (args.length > 0 && args[0].equalsIgnoreCase("games"))
+		{
+			games(args);
+			return;
+		}
+		
+		//Compare rule variants on common random numbers.
+		if (args.length > 0 && args[0].equalsIgnoreCase("compare"))
+		{
+			compare(args);
+			return;
+		}
+		
+		//Roll for many tokens at once.
+		if (args.length > 0 && args[0].equalsIgnoreCase("batch"))
+		{
+			try
+			{
+				batch(args);
+			}
+			catch(NoClassDefFoundError e)
+			{
+				System.out.println("The batch engine needs the vector API: run with --add-modules jdk.incubator.vector.");
+				System.exit(1);
+			}
+			return;
+		}
+		
+		//Rank strategies against each other.
+		if (args.length > 0 && args[0].equalsIgnoreCase("tournament"))
+		{
+			tournament(args);
+			return;
+		}
+		
+		//Continue a simulation from its checkpoint.
+		if (args.length > 1 && args[0].equalsIgnoreCase("--resume"))
+		{
+			Game game = null;
+			game = resume(new File(args[1]), true);
+			game.getData().close();
+			game.getRenderer().close();
+			return;
+		}
 		
 		//Gather initial user input:
-		System.out.println("Monopoly Simulator - Mark Lalor" + System.lineSeparator() + "Enter CSV input in the form of: [rolls],[dataURL/\"null\"],[dataSaveInterval],[imageURL/\"null\"],[imageSaveInterval],[highQuality],[displayRealTime]");
+		System.out.println("Monopoly Simulator - Mark Lalor" + System.lineSeparator() + "Enter CSV input in the form of: [rolls],[dataURL/\"null\"],[dataSaveInterval],[imageURL/\"null\"],[imageSaveInterval],[highQuality],[displayRealTime],[clearConsole],[threads],[seed/\"random\"],[generator (xoroshiro/splittable)],[asyncData],[dataFormat (csv/binary)],[checkpointURL/\"null\"],[checkpointInterval],[deck (random/shuffled)],[imageFormat (gif/png)],[precision (0 to run every roll)],[confidence],[jail (wait/pay)],[dice (such as 2d6, or 2d6:1/1/1/1/1/2 for loaded dice)],[layout (standard or a layout file)],[metrics (publish the progress over JMX)],[checkpointSync (force each checkpoint to the disk)]");
 	    Scanner scanner = new Scanner(System.in);
 	    
 	    String input = args.length == 0 ? scanner.nextLine() : implode(args);
@@ -86,33 +404,56 @@ public class Main
 		    String[] value = input.split(",");
 		    
 		    //Make sure there were enough values provided.
-		    if (value.length != defaults.length)
+		    if (value.length < REQUIRED_VALUES || value.length > defaults.length)
 		    {
-		    	System.out.print(value.length + " input values given. " + defaults.length + " expected!");
+		    	System.out.print(value.length + " input values given. " + REQUIRED_VALUES + " to " + defaults.length + " expected!");
 		    	System.exit(1);
 		    }
 		    
+		    //Fill in the optional values that were left off.
+		    String[] given = value;
+		    value = new String[defaults.length];
+		    for (int i = 0; i < value.length; i++)
+		    	value[i] = i < given.length ? given[i] : "def";
+		    
 		    //Replace "default"s with actual defaults.
 		    for (int i = 0; i < value.length; i++)
 		    	if (isDef(value[i]))
 		    		value[i] = defaults[i];
 		    
 		    //Finally, set the static constants.
-		    Main.ROLLS = Integer.parseInt(value[0]);
-		    Main.DATA_FILE = value[1].equalsIgnoreCase("null")?null:new File(value[1] + timestamp);
-		    Main.DATA_INTERVAL = Main.DATA_FILE == null?0:Integer.parseInt(value[2]);
-		    Main.IMAGE_FILE = value[3].equalsIgnoreCase("null")?null:new File(value[3] + timestamp);
-		    Main.IMAGE_INTERVAL = Main.IMAGE_FILE == null?0:Integer.parseInt(value[4]);
-		    Main.HIGH_QUALITY = bool(value[5]);
-		    Main.REAL_TIME = bool(value[6]);
-		    Main.CLEAR = bool(value[7]);
+		    SETTINGS.setRolls(Long.parseLong(value[0]));
+		    SETTINGS.setDataFormat(DataFormat.valueOf(value[12].toUpperCase()));
+		    SETTINGS.setDataFile(value[1].equalsIgnoreCase("null")?null:new File(value[1] + timestamp + SETTINGS.getDataFormat().getExtension()));
+		    SETTINGS.setDataInterval(SETTINGS.getDataFile() == null?0:Integer.parseInt(value[2]));
+		    SETTINGS.setImageFormat(ImageFormat.valueOf(value[16].toUpperCase()));
+		    SETTINGS.setImageFile(value[3].equalsIgnoreCase("null")?null:new File(value[3] + timestamp + SETTINGS.getImageFormat().getExtension()));
+		    SETTINGS.setImageInterval(SETTINGS.getImageFile() == null?0:Integer.parseInt(value[4]));
+		    SETTINGS.setHighQuality(bool(value[5]));
+		    SETTINGS.setRealTime(bool(value[6]));
+		    SETTINGS.setClear(bool(value[7]));
+		    SETTINGS.setThreads(Integer.parseInt(value[8]));
+		    if (!value[9].equalsIgnoreCase("random"))
+		    	SETTINGS.setSeed(Long.parseLong(value[9]));
+		    SETTINGS.setGenerator(Generator.valueOf(value[10].toUpperCase()));
+		    SETTINGS.setAsyncData(bool(value[11]));
+		    SETTINGS.setCheckpointFile(value[13].equalsIgnoreCase("null")?null:new File(value[13] + timestamp + ".ckpt"));
+		    SETTINGS.setCheckpointInterval(SETTINGS.getCheckpointFile() == null?0:Long.parseLong(value[14]));
+		    SETTINGS.setDeckMode(DeckMode.valueOf(value[15].toUpperCase()));
+		    SETTINGS.setPrecision(Double.parseDouble(value[17]));
+		    SETTINGS.setConfidence(Double.parseDouble(value[18]));
+		    SETTINGS.setJailPolicy(JailPolicy.valueOf(value[19].toUpperCase()));
+		    SETTINGS.setDice(value[20]);
+		    SETTINGS.setLayout(layout(value[21]));
+		    SETTINGS.setMetrics(bool(value[22]));
+		    SETTINGS.setCheckpointSync(bool(value[23]));
 	    }
 	    //If left blank, prompt the user for each value.
 	    else
 	    {
 	    	//Rolls.
 	    	System.out.println("Enter the number of rolls to simulate:");
-		    Main.ROLLS = Integer.valueOf(scanner.nextLine());
+		    SETTINGS.setRolls(Long.parseLong(scanner.nextLine()));
 		    
 		    //Data file and interval.
 		    System.out.println("Choose a data file.");
@@ -123,14 +464,14 @@ public class Main
 		    int dataFileChooserResult = dataFileChooser.showSaveDialog(null);
 		    if (dataFileChooserResult == JFileChooser.APPROVE_OPTION)
 		    {
-		    	Main.DATA_FILE = dataFileChooser.getSelectedFile();
+		    	SETTINGS.setDataFile(dataFileChooser.getSelectedFile());
 		    	System.out.println("Enter data save interval:");
-		    	Main.DATA_INTERVAL = Integer.valueOf(scanner.nextLine());
+		    	SETTINGS.setDataInterval(Integer.valueOf(scanner.nextLine()));
 		    }
 		    else if (dataFileChooserResult == JFileChooser.CANCEL_OPTION)
 		    {
-		    	Main.DATA_FILE = null;
-		    	Main.DATA_INTERVAL = 0;
+		    	SETTINGS.setDataFile(null);
+		    	SETTINGS.setDataInterval(0);
 		    }
 		    else
 		    {
@@ -151,14 +492,14 @@ public class Main
 		    //System.out.println("testtesttest222");
 		    if (imageFileChooserResult == JFileChooser.APPROVE_OPTION)
 		    {
-		    	Main.IMAGE_FILE = imageFileChooser.getCurrentDirectory();
+		    	SETTINGS.setImageFile(imageFileChooser.getCurrentDirectory());
 		    	System.out.println("Enter image save interval:");
-		    	Main.IMAGE_INTERVAL = Integer.valueOf(scanner.nextLine());
+		    	SETTINGS.setImageInterval(Integer.valueOf(scanner.nextLine()));
 		    }
 		    else if (imageFileChooserResult == JFileChooser.CANCEL_OPTION)
 		    {
-		    	Main.IMAGE_FILE = null;
-		    	Main.IMAGE_INTERVAL = 0;
+		    	SETTINGS.setImageFile(null);
+		    	SETTINGS.setImageInterval(0);
 		    }
 		    else
 		    {
@@ -168,42 +509,198 @@ public class Main
 		    
 		    //Whether to use high or low quality images:
 		    System.out.println("High or low quality? (true/yes/high for high quality. false/no/low for low quality)");
-		    Main.HIGH_QUALITY = bool(scanner.nextLine());
+		    SETTINGS.setHighQuality(bool(scanner.nextLine()));
 		    
   		    //Whether to show the images in a JFrame.
 		    System.out.println("Show images in real time? (true/yes to show. false/no to not)");
-		    Main.REAL_TIME = bool(scanner.nextLine());
+		    SETTINGS.setRealTime(bool(scanner.nextLine()));
 		    
 		    //Whether to clear the console often to increase readability.
 		    System.out.println("Clear console after each turn? (true/yes to clear. false/no to not)");
-		    Main.CLEAR = bool(scanner.nextLine());
+		    SETTINGS.setClear(bool(scanner.nextLine()));
+		    
+		    //How many threads to split the rolls across.
+		    System.out.println("Enter the number of threads to simulate with (1 to write data every interval):");
+		    SETTINGS.setThreads(Integer.valueOf(scanner.nextLine()));
+		    
+		    //The seed to replay a previous run with.
+		    System.out.println("Enter a seed (leave blank for a random seed):");
+		    String seed = scanner.nextLine();
+		    if (!seed.isEmpty())
+		    	SETTINGS.setSeed(Long.parseLong(seed));
 	    }
 	    
 	    //Begin.
-	    Game game = new Game();
-	    DecimalFormat df = new DecimalFormat("#0.000");
+	    System.out.println("Seed: " + SETTINGS.getSeed() + " (" + SETTINGS.getGenerator().toString().toLowerCase() + ")");
+	    Game game;
 	    
-	    for (int i = 0; i < ROLLS; i = game.getRolls())
+	    //Split the rolls across several games and only save the merged result.
+	    if (SETTINGS.getThreads() > 1)
+	    	game = run(new Simulation(SETTINGS));
+	    else
+	    {
+		    game = new Game(SETTINGS);
+		    simulate(game);
+	    }
+	    
+	    game.getData().close();
+	    game.getRenderer().close();
+	    
+	    scanner.close();
+	}
+	
+	/**
+	 * Runs the workers of a simulation on several threads, and prints how long they took and how precise they were.
+	 * @param simulation The simulation.
+	 * @return The game holding the merged results of the workers.
+	 */
+	static Game run(Simulation simulation) throws InterruptedException
+	{
+	    long start = System.currentTimeMillis();
+	    Game game = simulation.run();
+	    System.out.println("Simulated " + game.getRolls() + " rolls on " + simulation.getSettings().getThreads() + " threads in " + (System.currentTimeMillis() - start) + "ms.");
+	    if (simulation.getConvergence() != null)
+	    	printConvergence(simulation.getConvergence(), game);
+	    return game;
+	}
+	
+	/**
+	 * Continues the run saved in a checkpoint, on as many threads as it was started with, and sets
+	 * <code>SETTINGS</code> to its settings.
+	 * @param file The checkpoint.
+	 * @param interactive <code>false</code> to turn off the live view and the clearing of the console, which the
+	 * checkpoint of an interactive run may ask for.
+	 * @return The game holding the results.
+	 */
+	static Game resume(File file, boolean interactive) throws InterruptedException
+	{
+	    try
+	    {
+	    	if (Checkpoint.isSimulation(file))
+	    	{
+	    		Simulation simulation = Checkpoint.loadSimulation(file);
+	    		SETTINGS = simulation.getSettings();
+	    		if (!interactive)
+	    			SETTINGS.setClear(false);
+	    		System.out.println("Resuming " + SETTINGS.getThreads() + " threads from roll " + simulation.getRolls() + "/" + SETTINGS.getRolls() + ".");
+	    		return run(simulation);
+	    	}
+	    	Game game = Checkpoint.load(file);
+	    	SETTINGS = game.getSettings();
+	    	if (!interactive)
+	    	{
+	    		SETTINGS.setRealTime(false);
+	    		SETTINGS.setClear(false);
+	    	}
+	    	System.out.println("Resuming from roll " + game.getRolls() + "/" + SETTINGS.getRolls() + ".");
+	    	simulate(game);
+	    	return game;
+	    }
+	    catch(IOException e)
+	    {
+	    	System.out.println("Could not load the checkpoint!");
+	    	e.printStackTrace();
+	    	System.exit(1);
+	    	return null;
+	    }
+	}
+	
+	/**
+	 * Takes turns until the game has rolled <code>SETTINGS.getRolls()</code> times, or until every landing probability
+	 * is within <code>SETTINGS.getPrecision()</code> if a precision was chosen, saving a checkpoint every
+	 * <code>SETTINGS.getCheckpointInterval()</code> rolls if a checkpoint file was chosen.
+	 * <p>
+	 * The progress of the game is published as {@link SimulationMetrics} over JMX while it runs if
+	 * <code>SETTINGS.isMetrics()</code>, and recorded as {@link TurnBatchEvent}s when Flight Recorder is on. It is
+	 * printed a few times per second by a {@link ProgressReporter}, rather than by the loop taking the turns.
+	 * @param game The game to simulate.
+	 */
+	static void simulate(Game game)
+	{
+	    long rolls = SETTINGS.getRolls();
+	    
+	    if (SETTINGS.getPrecision() > 0 && game.getConvergence() == null)
+	    	game.setConvergence(new Convergence(SETTINGS).track(game));
+	    Convergence.Tracker tracker = game.getConvergence();
+	    
+	    Checkpoint checkpoint = SETTINGS.getCheckpointFile() == null ? null : new Checkpoint(SETTINGS.getCheckpointFile());
+	    long nextCheckpoint = checkpoint == null ? Long.MAX_VALUE : game.getRolls() + SETTINGS.getCheckpointInterval();
+	    
+	    SimulationMetrics metrics = new SimulationMetrics(SETTINGS).register();
+	    SimulationMetrics.Counters counters = metrics.track(game);
+	    metrics.setOutput(game);
+	    metrics.setCheckpoint(checkpoint);
+	    TurnBatches batches = new TurnBatches(game);
+	    ProgressReporter progress = new ProgressReporter(SETTINGS);
+	    AtomicLong published = progress.track(game);
+	    progress.setData(game.getData());
+	    progress.start();
+	    
+	    //Show the game live if asked to and there is a screen to show it on.
+	    Viewer viewer = SETTINGS.isRealTime() && !GraphicsEnvironment.isHeadless() ? new Viewer(game, SETTINGS.isHighQuality()) : null;
+	    
+	    while (game.getRolls() < rolls)
 	    {
 	    	game.turn();
+	    	published.lazySet(game.getRolls());
+	    	counters.publish();
+	    	batches.update();
+	    	if (viewer != null)
+	    		viewer.offer(game);
 	    	
-	    	if (Main.CLEAR)
-	    		clearConsole();
-	    	
-	    	if (!Main.DEBUG)
+	    	if (game.getRolls() >= nextCheckpoint)
 	    	{
-	    		System.out.println("Roll " + game.getRolls() + "/" + ROLLS + " (" + df.format((double)game.getRolls() * 100 / ROLLS) + "%)");
-	    		if (Main.CLEAR)
-	    			System.out.println(game.getData().getLastLine());
+	    		try
+	    		{
+	    			checkpoint.save(game);
+	    		}
+	    		catch(IOException e)
+	    		{
+	    			System.out.println("Could not save the checkpoint!");
+	    			e.printStackTrace();
+	    			System.exit(1);
+	    		}
+	    		nextCheckpoint = game.getRolls() + SETTINGS.getCheckpointInterval();
 	    	}
-
-	    	System.out.flush();
+	    	
+	    	if (tracker != null && tracker.update())
+	    		break;
 	    }
 	    
-	    game.getData().close();
+	    batches.finish();
+	    counters.finish();
+	    progress.stop();
+	    metrics.unregister();
 	    
-	    scanner.close();
-	    
-	    //TODO: save serialized form of the game to be able to continue calculations.
+	    if (viewer != null)
+	    	viewer.finish(game);
+	    if (tracker != null)
+	    	printConvergence(tracker.getConvergence(), game);
+	}
+	
+	/**
+	 * Prints the landing probability of each space with the half-width of its confidence interval, both in percent.
+	 * With fewer than two batches there is no interval yet, so the share of the hits of each space is printed instead.
+	 * @param convergence The batches of the run.
+	 * @param game The game holding the hits of the run, merged from every worker.
+	 */
+	static void printConvergence(Convergence convergence, Game game)
+	{
+	    DecimalFormat df = new DecimalFormat("#0.0000");
+	    Board board = game.getBoard();
+	    if (convergence.getBatches() < 2)
+	    {
+	    	//The batches cannot bound anything yet, so show the hits of the game as they are.
+	    	long total = 0;
+	    	for (int i = 0; i < board.size(); i++)
+	    		total += board.getSpace(i).getHits();
+	    	for (int i = 0; i < board.size(); i++)
+	    		System.out.println(i + " (" + board.getSpace(i).getName() + "): " + df.format(total == 0 ? 0 : board.getSpace(i).getHits() * 100.0 / total) + "%");
+	    	System.out.println("Too few rolls to estimate the precision: " + convergence.getBatches() + " batches of " + Convergence.BATCH_ROLLS + " rolls, at least 2 are needed (target +/- " + df.format(convergence.getPrecision() * 100) + "%).");
+	    	return;
+	    }
+	    for (int i = 0; i < board.size(); i++)
+	    	System.out.println(i + " (" + board.getSpace(i).getName() + "): " + df.format(convergence.getMean(i) * 100) + "% +/- " + df.format(convergence.getHalfWidth(i) * 100) + "%");
+	    System.out.println((convergence.isConverged() ? "Converged" : "Did not converge") + " after " + convergence.getBatches() + " batches of " + Convergence.BATCH_ROLLS + " rolls: every probability within +/- " + df.format(convergence.getMaxHalfWidth() * 100) + "% at " + df.format(convergence.getConfidence() * 100) + "% confidence (target +/- " + df.format(convergence.getPrecision() * 100) + "%).");
 	}
 }
@@ -0,0 +1,346 @@
+package com.marklalor.monopolysim;
+
+import java.io.File;
+
+import com.marklalor.monopolysim.game.JailPolicy;
+import com.marklalor.monopolysim.game.card.DeckMode;
+import com.marklalor.monopolysim.game.data.DataFormat;
+import com.marklalor.monopolysim.game.display.ImageFormat;
+import com.marklalor.monopolysim.game.layout.Layout;
+import com.marklalor.monopolysim.roll.Roll;
+import com.marklalor.monopolysim.roll.random.Generator;
+import com.marklalor.monopolysim.roll.random.RandomSource;
+
+/**
+ * Holds the user-provided configuration of a single simulation run.
+ * <p>
+ * Each {@link com.marklalor.monopolysim.game.Game} reads its configuration from its own <code>Settings</code>
+ * instance rather than from static fields, so several games can be simulated side by side.
+ */
+public class Settings
+{
+	/** Rolls of the dice to simulate. */
+	private long rolls;
+	/** File to save simulation CSV data to. */
+	private File dataFile;
+	/** Saves data only every <code>dataInterval</code> roll(s). */
+	private int dataInterval;
+	/** Folder to save simulation image data to. */
+	private File imageFile;
+	/** Saves image data only every <code>imageInterval</code> roll(s). */
+	private int imageInterval;
+	/** True if the high quality display is being used. */
+	private boolean highQuality;
+	/** True if a <code>JFrame</code> should be used to display the <code>BufferedImage<code> in real time. */
+	private boolean realTime;
+	/** True if the console should be cleared constantly */
+	private boolean clear;
+	/** Number of worker threads the rolls are split across. */
+	private int threads = 1;
+	/** Seed of the random numbers, so that a run can be replayed exactly. */
+	private long seed = System.nanoTime();
+	/** Type of random number generator driving the dice and cards. */
+	private Generator generator = Generator.XOROSHIRO;
+	/** True if CSV data is written in batches on a background thread instead of flushed after every line. */
+	private boolean asyncData = true;
+	/** Format the data file is written in. */
+	private DataFormat dataFormat = DataFormat.CSV;
+	/** File to save checkpoints of the simulation to, so that it can be resumed. */
+	private File checkpointFile;
+	/** Saves a checkpoint only every <code>checkpointInterval</code> roll(s). */
+	private long checkpointInterval;
+	/** True if each checkpoint is forced to the disk before it replaces the previous one, to survive a power loss. */
+	private boolean checkpointSync = true;
+	/** How the chance and community chest cards are drawn. */
+	private DeckMode deckMode = DeckMode.RANDOM;
+	/** Format the images are saved in. */
+	private ImageFormat imageFormat = ImageFormat.GIF;
+	/** Stops before <code>rolls</code> once every landing probability is known within this much, or 0 to run every roll. */
+	private double precision = 0;
+	/** Confidence of the <code>precision</code>. */
+	private double confidence = 0.99;
+	/** How the player gets out of jail. */
+	private JailPolicy jailPolicy = JailPolicy.WAIT;
+	/** The dice rolled, as read by {@link Roll#parse(String, RandomSource)}. */
+	private String dice = Roll.DEFAULT_DICE;
+	/** The spaces and cards of the board. */
+	private Layout layout = Layout.STANDARD;
+	/** Whether the progress of the run is published over JMX while it runs. */
+	private boolean metrics = false;
+
+	public Settings()
+	{
+	}
+
+	/**
+	 * Copies every value of the given settings.
+	 * @param settings The settings to copy.
+	 */
+	public Settings(Settings settings)
+	{
+		this.rolls = settings.rolls;
+		this.dataFile = settings.dataFile;
+		this.dataInterval = settings.dataInterval;
+		this.imageFile = settings.imageFile;
+		this.imageInterval = settings.imageInterval;
+		this.highQuality = settings.highQuality;
+		this.realTime = settings.realTime;
+		this.clear = settings.clear;
+		this.threads = settings.threads;
+		this.seed = settings.seed;
+		this.generator = settings.generator;
+		this.asyncData = settings.asyncData;
+		this.dataFormat = settings.dataFormat;
+		this.checkpointFile = settings.checkpointFile;
+		this.checkpointInterval = settings.checkpointInterval;
+		this.checkpointSync = settings.checkpointSync;
+		this.deckMode = settings.deckMode;
+		this.imageFormat = settings.imageFormat;
+		this.precision = settings.precision;
+		this.confidence = settings.confidence;
+		this.jailPolicy = settings.jailPolicy;
+		this.dice = settings.dice;
+		this.layout = settings.layout;
+		this.metrics = settings.metrics;
+	}
+
+	public long getRolls()
+	{
+		return rolls;
+	}
+
+	public void setRolls(long rolls)
+	{
+		this.rolls = rolls;
+	}
+
+	public File getDataFile()
+	{
+		return dataFile;
+	}
+
+	public void setDataFile(File dataFile)
+	{
+		this.dataFile = dataFile;
+	}
+
+	public int getDataInterval()
+	{
+		return dataInterval;
+	}
+
+	public void setDataInterval(int dataInterval)
+	{
+		this.dataInterval = dataInterval;
+	}
+
+	public File getImageFile()
+	{
+		return imageFile;
+	}
+
+	public void setImageFile(File imageFile)
+	{
+		this.imageFile = imageFile;
+	}
+
+	public int getImageInterval()
+	{
+		return imageInterval;
+	}
+
+	public void setImageInterval(int imageInterval)
+	{
+		this.imageInterval = imageInterval;
+	}
+
+	public boolean isHighQuality()
+	{
+		return highQuality;
+	}
+
+	public void setHighQuality(boolean highQuality)
+	{
+		this.highQuality = highQuality;
+	}
+
+	public boolean isRealTime()
+	{
+		return realTime;
+	}
+
+	public void setRealTime(boolean realTime)
+	{
+		this.realTime = realTime;
+	}
+
+	public boolean isClear()
+	{
+		return clear;
+	}
+
+	public void setClear(boolean clear)
+	{
+		this.clear = clear;
+	}
+
+	public int getThreads()
+	{
+		return threads;
+	}
+
+	public void setThreads(int threads)
+	{
+		this.threads = threads;
+	}
+
+	public long getSeed()
+	{
+		return seed;
+	}
+
+	public void setSeed(long seed)
+	{
+		this.seed = seed;
+	}
+
+	public Generator getGenerator()
+	{
+		return generator;
+	}
+
+	public void setGenerator(Generator generator)
+	{
+		this.generator = generator;
+	}
+
+	public boolean isAsyncData()
+	{
+		return asyncData;
+	}
+
+	public void setAsyncData(boolean asyncData)
+	{
+		this.asyncData = asyncData;
+	}
+
+	public DataFormat getDataFormat()
+	{
+		return dataFormat;
+	}
+
+	public void setDataFormat(DataFormat dataFormat)
+	{
+		this.dataFormat = dataFormat;
+	}
+
+	public File getCheckpointFile()
+	{
+		return checkpointFile;
+	}
+
+	public void setCheckpointFile(File checkpointFile)
+	{
+		this.checkpointFile = checkpointFile;
+	}
+
+	public long getCheckpointInterval()
+	{
+		return checkpointInterval;
+	}
+
+	public void setCheckpointInterval(long checkpointInterval)
+	{
+		this.checkpointInterval = checkpointInterval;
+	}
+
+	public boolean isCheckpointSync()
+	{
+		return checkpointSync;
+	}
+
+	public void setCheckpointSync(boolean checkpointSync)
+	{
+		this.checkpointSync = checkpointSync;
+	}
+
+	public DeckMode getDeckMode()
+	{
+		return deckMode;
+	}
+
+	public void setDeckMode(DeckMode deckMode)
+	{
+		this.deckMode = deckMode;
+	}
+
+	public ImageFormat getImageFormat()
+	{
+		return imageFormat;
+	}
+
+	public void setImageFormat(ImageFormat imageFormat)
+	{
+		this.imageFormat = imageFormat;
+	}
+
+	public double getPrecision()
+	{
+		return precision;
+	}
+
+	public void setPrecision(double precision)
+	{
+		this.precision = precision;
+	}
+
+	public double getConfidence()
+	{
+		return confidence;
+	}
+
+	public void setConfidence(double confidence)
+	{
+		this.confidence = confidence;
+	}
+
+	public JailPolicy getJailPolicy()
+	{
+		return jailPolicy;
+	}
+
+	public void setJailPolicy(JailPolicy jailPolicy)
+	{
+		this.jailPolicy = jailPolicy;
+	}
+
+	public String getDice()
+	{
+		return dice;
+	}
+
+	public void setDice(String dice)
+	{
+		this.dice = dice;
+	}
+
+	public Layout getLayout()
+	{
+		return layout;
+	}
+
+	public void setLayout(Layout layout)
+	{
+		this.layout = layout;
+	}
+
+	public boolean isMetrics()
+	{
+		return metrics;
+	}
+
+	public void setMetrics(boolean metrics)
+	{
+		this.metrics = metrics;
+	}
+}
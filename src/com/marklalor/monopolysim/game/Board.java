@@ -1,13 +1,15 @@
 package com.marklalor.monopolysim.game;
 
-import java.util.Arrays;
+import java.util.ArrayList;
 import java.util.List;
 
-import com.marklalor.monopolysim.Main;
+import com.marklalor.monopolysim.game.card.CardAction;
 import com.marklalor.monopolysim.game.card.ChanceCard;
 import com.marklalor.monopolysim.game.card.CommunityChestCard;
+import com.marklalor.monopolysim.game.card.DeckMode;
+import com.marklalor.monopolysim.game.layout.Layout;
+import com.marklalor.monopolysim.game.layout.SpaceKind;
 import com.marklalor.monopolysim.game.space.Space;
-import com.marklalor.monopolysim.game.space.property.Color;
 import com.marklalor.monopolysim.game.space.property.Property;
 import com.marklalor.monopolysim.game.space.special.Chance;
 import com.marklalor.monopolysim.game.space.special.CommunityChest;
@@ -19,131 +21,111 @@ import com.marklalor.monopolysim.game.space.special.Jail;
 import com.marklalor.monopolysim.game.space.special.LuxuryTax;
 import com.marklalor.monopolysim.game.space.special.Railroad;
 import com.marklalor.monopolysim.game.space.special.Utility;
+import com.marklalor.monopolysim.roll.random.DrawSource;
 
 /**
- * Manages the 40 spaces of a Monopoly board as well as the number of times they've
+ * Manages the spaces of a Monopoly board, laid out by a {@link Layout}, as well as the number of times they've
  * been landed on by the simulation.
  * @author Mark Lalor
  */
 public class Board
 {
-	public static final List<String> SPECIAL = Arrays.asList(new String[] { "FreeParking", "Go", "GoToJail", "IncomeTax", "Jail", "LuxuryTax", "Railroad", "Utility" } );
-
-	private static final String PACKAGE = "com.marklalor.monopolysim.game.space.";
+	//Space type codes, precomputed for each position so that landing on a space needs no instanceof checks.
+	/** A space that is simply landed on. */
+	public static final byte PLAIN = 0;
+	/** A chance space. */
+	public static final byte CHANCE = 1;
+	/** A community chest space. */
+	public static final byte COMMUNITY_CHEST = 2;
+	/** The "Go To Jail" space. */
+	public static final byte GO_TO_JAIL = 3;
 	
-	/**
-	 * Array of String[] containing data of the default en-us layout of monopoly.
-	 * <p>
-	 * For each String[], the data is in the following format:
-	 * <ul>
-	 * <li>0: name of the class to use (a subclass of {@link Space})</li>
-	 * <li>1: displays name of the space.</li>
-	 * <li>2+: additional information, for example, for Properties, 2 for color and 3 for rent price.</li>
-	 * </ul>
-	 */
-	public static String[][] DEFAULT_LAYOUT =
-		{
-			// From "Go" (inclusive) To "Jail" (exclusive)
-			/*0*/{"special.Go","Go"},
-			/*1*/{"property.Property","Mediterranean Avenue","SADDLE_BROWN","60"},
-			/*2*/{"special.CommunityChest", "Community Chest"},
-			/*3*/{"property.Property","Baltic Avenue","SADDLE_BROWN","60"},
-			/*4*/{"special.IncomeTax", "Income Tax"},
-			/*5*/{"special.Railroad","Reading Railroad"},
-			/*6*/{"property.Property","Oriental Avenue","SKY_BLUE","100"},
-			/*7*/{"special.Chance", "Chance"},
-			/*8*/{"property.Property","Vermont Avenue","SKY_BLUE","100"},
-			/*9*/{"property.Property","Connecticut Avenue","SKY_BLUE","120"},
-			// From "Jail" (inclusive) to "Free Parking" (exclusive)
-			/*10*/{"special.Jail", "Jail / Just Visiting"},
-			/*11*/{"property.Property","St. Charles Place","DARK_ORCHID","140"},
-			/*12*/{"special.Utility","Electric Company"},
-			/*13*/{"property.Property","States Avenue","DARK_ORCHID","140"},
-			/*14*/{"property.Property","Virginia Avenue","DARK_ORCHID","160"},
-			/*15*/{"special.Railroad","Pennsylvania Railroad"},
-			/*16*/{"property.Property","St. James Place","ORANGE","180"},
-			/*17*/{"special.CommunityChest", "Community Chest"},
-			/*18*/{"property.Property","Tennessee Avenue","ORANGE","180"},
-			/*19*/{"property.Property","New York Avenue","ORANGE","200"},
-			// From "Free Parking" (inclusive) to "Go To Jail" (exclusive)
-			/*20*/{"special.FreeParking", "Free Parking"},
-			/*21*/{"property.Property","Kentucky Avenue","RED","220"},
-			/*22*/{"special.Chance", "Chance"},
-			/*23*/{"property.Property","Indiana Avenue","RED","220"},
-			/*24*/{"property.Property","Illinois Avenue","RED","240"},
-			/*25*/{"special.Railroad","B&O Railroad"},
-			/*26*/{"property.Property","Atlantic Avenue","YELLOW","260"},
-			/*27*/{"property.Property","Ventnor Avenue","YELLOW","260"},
-			/*28*/{"special.Utility","Water Works"},
-			/*29*/{"property.Property","Marvin Gardens","YELLOW","280"},
-			// From "Go To Jail" (inclusive) to "Go" (exclusive)
-			/*30*/{"special.GoToJail", "Go To Jail"},
-			/*31*/{"property.Property","Pacific Avenue","GREEN","300"},
-			/*32*/{"property.Property","North Carolina Avenue","GREEN","300"},
-			/*33*/{"special.CommunityChest", "Community Chest"},
-			/*34*/{"property.Property","Pennsylvania Avenue","GREEN","320"},
-			/*35*/{"special.Railroad","Short Line"},
-			/*36*/{"special.Chance", "Chance"},
-			/*37*/{"property.Property","Park Place","BLUE","350"},
-			/*38*/{"special.LuxuryTax", "Luxury Tax"},
-			/*39*/{"property.Property","Boardwalk","BLUE","400"},
-		};
-
+	/** Number of card actions in each row of the destination table. */
+	private static final int ACTIONS = Layout.ACTIONS;
+	
+	private Layout layout;
 	/**
 	 * List of spaces in numerical order.
 	 */
 	private Space[] spaces;
+	/** Type code of each space, one of {@link #PLAIN}, {@link #CHANCE}, {@link #COMMUNITY_CHEST} or {@link #GO_TO_JAIL}. */
+	private byte[] types;
+	/** Where each {@link CardAction} moves the player from each position, indexed by <code>position * ACTIONS + action</code>. */
+	private int[] destinations;
 	private ChanceCard chance;
 	private CommunityChestCard communityChest;
 	
 	/**
-	 * Creates a new board object based on the <code>public static String[][] defaultLayout</code> data.
+	 * Creates a new board with the {@link Layout#STANDARD standard layout}.
+	 * @param random The source the chance and community chest cards are drawn with.
 	 */
-	public Board()
+	public Board(DrawSource random)
 	{
+		this(random, DeckMode.RANDOM);
+	}
+	
+	/**
+	 * Creates a new board with the {@link Layout#STANDARD standard layout}.
+	 * @param random The source the chance and community chest cards are drawn with.
+	 * @param deckMode How the chance and community chest cards are drawn.
+	 */
+	public Board(DrawSource random, DeckMode deckMode)
+	{
+		this(random, deckMode, Layout.STANDARD);
+	}
+	
+	/**
+	 * Creates a new board with the spaces and cards of the given layout.
+	 * @param random The source the chance and community chest cards are drawn with.
+	 * @param deckMode How the chance and community chest cards are drawn.
+	 * @param layout The layout of the board.
+	 */
+	public Board(DrawSource random, DeckMode deckMode, Layout layout)
+	{
+		this.layout = layout;
+		
 		//Load the spaces.
-		spaces = new Space[DEFAULT_LAYOUT.length];
+		spaces = new Space[layout.size()];
 		for (int i = 0; i < spaces.length; i++)
 		{
-			String[] space = DEFAULT_LAYOUT[i];
-			String className = space[0];
+			spaces[i] = layout.getKind(i).create();
 			
-			try
-			{
-				//Create a new instance of the specified class.
-				spaces[i] = (Space) Class.forName(PACKAGE + className).newInstance();
-				
-				//All spaces have a position / name.
-				spaces[i].setPosition(i);
-				spaces[i].setName(space[1]);
-				
-				//Set more variables for a property space (this info is not currently used, but
-				//could be used if another program referenced this one)
-				if (spaces[i] instanceof Property)
-				{
-					Property p = (Property) spaces[i];
-					p.setColor(Color.get(space[2]));
-					p.setPrice(Integer.parseInt(space[3]));
-					spaces[i] = p;
-				}
-			}
-			catch(InstantiationException | IllegalAccessException e)
-			{
-				System.out.println("Could not instantiate/access the class! Exiting...");
-				e.printStackTrace();
-				System.exit(1);
-			}
-			catch(ClassNotFoundException e)
+			//All spaces have a position / name.
+			spaces[i].setPosition(i);
+			spaces[i].setName(layout.getName(i));
+			spaces[i].setBoardSize(spaces.length);
+			
+			//Set more variables for a property space (used by the full game, see FullGame).
+			if (spaces[i] instanceof Property)
 			{
-				System.out.println("Could not find the class! Exiting...");
-				e.printStackTrace();
-				System.exit(1);
+				Property p = (Property) spaces[i];
+				p.setColor(layout.getColor(i));
+				p.setPrice(layout.getPrice(i));
+				p.setHouseCost(layout.getHouseCost(i));
+				p.setRents(layout.getRents(i));
 			}
 		}
 		
+		//The type of each space and the destination of every card action from every position are precomputed by the layout.
+		types = layout.getTypes();
+		destinations = layout.getDestinations();
+		
 		//Instantiate the ChanceCard and ComminutyChestCard class instances.
-		this.chance = new ChanceCard();
-		this.communityChest = new CommunityChestCard();
+		this.chance = new ChanceCard(layout.getChance(), random, deckMode);
+		this.communityChest = new CommunityChestCard(layout.getCommunityChest(), random, deckMode);
+	}
+	
+	public Layout getLayout()
+	{
+		return layout;
+	}
+	
+	/**
+	 * @return The number of spaces on the board.
+	 */
+	public int size()
+	{
+		return spaces.length;
 	}
 	
 	//Many utility methods for getting different Spaces.
@@ -163,76 +145,120 @@ public class Board
 		return this.spaces[i];
 	}
 	
+	/**
+	 * Gets the precomputed type code of a space.
+	 * @param i The position of the space.
+	 * @return {@link #PLAIN}, {@link #CHANCE}, {@link #COMMUNITY_CHEST} or {@link #GO_TO_JAIL}.
+	 */
+	public byte getType(int i)
+	{
+		return this.types[i];
+	}
+	
+	/**
+	 * Gets the precomputed position an advancing card action moves the player to.
+	 * @param position The position the card is drawn from.
+	 * @param action The action of the card.
+	 * @return The destination position, or -1 if the action does not advance the player.
+	 */
+	public int getDestination(int position, CardAction action)
+	{
+		return this.destinations[position * ACTIONS + action.ordinal()];
+	}
+	
 	public Chance[] getChances()
 	{
-		Chance[] chances = new Chance[Chance.POSITIONS.length];
-		for (int i = 0; i < chances.length; i++)
-			chances[i] = (Chance) spaces[Chance.POSITIONS[i]];
-		return chances;
+		List<Chance> chances = new ArrayList<Chance>();
+		for (Space space : spaces)
+			if (space instanceof Chance)
+				chances.add((Chance) space);
+		return chances.toArray(new Chance[chances.size()]);
 	}
 	
 	public CommunityChest[] getCommunityChests()
 	{
-		CommunityChest[] communityChests = new CommunityChest[CommunityChest.POSITIONS.length];
-		for (int i = 0; i < communityChests.length; i++)
-			communityChests[i] = (CommunityChest) spaces[CommunityChest.POSITIONS[i]];
-		return communityChests;
+		List<CommunityChest> communityChests = new ArrayList<CommunityChest>();
+		for (Space space : spaces)
+			if (space instanceof CommunityChest)
+				communityChests.add((CommunityChest) space);
+		return communityChests.toArray(new CommunityChest[communityChests.size()]);
+	}
+	
+	/**
+	 * @return The first space of the given kind, or <code>null</code> if the layout has none.
+	 */
+	private Space getFirst(SpaceKind kind)
+	{
+		for (int i = 0; i < spaces.length; i++)
+			if (layout.getKind(i) == kind)
+				return spaces[i];
+		return null;
 	}
 	
 	public FreeParking getFreeParking()
 	{
-		return (FreeParking) spaces[FreeParking.POSITION];
+		return (FreeParking) getFirst(SpaceKind.FREE_PARKING);
 	}
 	
 	public Go getGo()
 	{
-		return (Go) spaces[Go.POSITION];
+		return (Go) spaces[0];
 	}
 	
 	public GoToJail getGoToJail()
 	{
-		return (GoToJail) spaces[GoToJail.POSITION];
+		return (GoToJail) getFirst(SpaceKind.GO_TO_JAIL);
 	}
 	
 	public IncomeTax getIncomeTax()
 	{
-		return (IncomeTax) spaces[IncomeTax.POSITION];
+		return (IncomeTax) getFirst(SpaceKind.INCOME_TAX);
 	}
 	
 	public Jail getJail()
 	{
-		return (Jail) spaces[Jail.POSITION];
+		return (Jail) spaces[layout.getJail()];
 	}
 	
 	public LuxuryTax getLuxuryTax()
 	{
-		return (LuxuryTax) spaces[LuxuryTax.POSITION];
+		return (LuxuryTax) getFirst(SpaceKind.LUXURY_TAX);
 	}
 	
+	/**
+	 * Finds the railroads wherever they are in the layout.
+	 * @return A new array of the railroads, in order of position.
+	 */
 	public Railroad[] getRailroads()
 	{
-		Railroad[] railroads = new Railroad[Railroad.POSITIONS.length];
-		for (int i = 0; i < railroads.length; i++)
-			railroads[i] = (Railroad) spaces[Railroad.POSITIONS[i]];
-		return railroads;
+		List<Railroad> railroads = new ArrayList<Railroad>();
+		for (Space space : spaces)
+			if (space instanceof Railroad)
+				railroads.add((Railroad) space);
+		return railroads.toArray(new Railroad[railroads.size()]);
 	}
 	
 	public Railroad getNearestRailroad(int position)
 	{
-		return (Railroad) getNearest(getRailroads(), position);
+		return (Railroad) spaces[getDestination(position, CardAction.ADVANCE_TOKEN_TO_THE_NEAREST_RAILROAD)];
 	}
 	
+	/**
+	 * Finds the utilities wherever they are in the layout.
+	 * @return A new array of the utilities, in order of position.
+	 */
 	public Utility[] getUtilities()
 	{
-		Utility[] utilities = new Utility[Utility.POSITIONS.length];
-		for (int i = 0; i < utilities.length; i++)
-			utilities[i] = (Utility) spaces[Utility.POSITIONS[i]];
-		return utilities;
+		List<Utility> utilities = new ArrayList<Utility>();
+		for (Space space : spaces)
+			if (space instanceof Utility)
+				utilities.add((Utility) space);
+		return utilities.toArray(new Utility[utilities.size()]);
 	}
 	
 	public Utility getNearestUtility(int position)
 	{
-		return (Utility) getNearest(getUtilities(), position);
+		return (Utility) spaces[getDestination(position, CardAction.ADVANCE_TOKEN_TO_NEAREST_UTILITY)];
 	}
 	
 	public Space getNearest(Space[] spaces, int position)
@@ -248,29 +274,7 @@ public class Board
 				if (startingSpace.distanceTo(space) < startingSpace.distanceTo(nearest))
 					nearest = space;
 			}
-			
-			if (Main.DEBUG) System.out.println(space.getName() + " is " + startingSpace.distanceTo(space) + " spaces from position " + position + ".");
 		}
 		return nearest;
 	}
-	
-	public Property getIllinoisAvenue()
-	{
-		return (Property) spaces[24];
-	}
-	
-	public Property getStCharlesPlace()
-	{
-		return (Property) spaces[11];
-	}
-	
-	public Railroad getReadingRailroad()
-	{
-		return (Railroad) spaces[5];
-	}
-	
-	public Property getBoardwalk()
-	{
-		return (Property) spaces[39];
-	}
-}
\ No newline at end of file
+}
@@ -0,0 +1,318 @@
+package com.marklalor.monopolysim.game;
+
+import java.util.Arrays;
+import java.util.List;
+
+import com.marklalor.monopolysim.Settings;
+import com.marklalor.monopolysim.roll.Roll;
+import com.marklalor.monopolysim.roll.random.DrawSource;
+import com.marklalor.monopolysim.roll.random.RandomSource;
+
+/**
+ * Compares the landing probabilities of games played under different rules, using common random numbers.
+ * <p>
+ * The games are played in lockstep, one roll at a time, from a single stream of dice and a single stream of card
+ * draws. Simply giving every variant the same dice is not enough: as soon as a rule sends two games to different
+ * spaces, the same dice only move them further along at the same distance from each other, and what they land on is
+ * no longer related. So each roll of the first game is handed to every other variant through a permutation of the 36
+ * ways the dice can fall, chosen for the distance between them so that the variant lands on the same space whenever
+ * the dice allow it, and reflected (each die <code>d</code> becoming <code>7 - d</code>) to shuffle the distance
+ * when it is too far to close in one roll. Any permutation leaves the dice of every variant fair and independent,
+ * but the games now meet again a few rolls after each rule that split them, and then play identically, card draws
+ * included, until a rule splits them again. The luck they share cancels out of their differences.
+ * <p>
+ * The difference between the landing probabilities of each variant and the first one over each batch of
+ * {@link Convergence#BATCH_ROLLS} rolls is one sample of their difference, as in {@link Convergence}.
+ * <p>
+ * The variance of those paired samples is reported next to the variance two independent runs would have had, which
+ * is the sum of the variances of the batch samples of each run, so the gain of pairing them can be read off directly:
+ * a gain of 10 means independent runs would have needed 10 times as many rolls for intervals as narrow.
+ */
+public class Comparison
+{
+	/** Permutations of the 36 ways to roll two dice, for each distance from -10 to 10, indexed by distance + 10. */
+	private static final int[][] COUPLINGS = new int[21][];
+
+	static
+	{
+		for (int distance = -10; distance <= 10; distance++)
+			COUPLINGS[distance + 10] = coupling(distance);
+	}
+
+	private List<Settings> variants;
+	private long rolls;
+	private double z;
+	private int spaces;
+
+	private Game[] games;
+	private int batches = 0;
+	/** The card draws of the current roll, shared by every variant. */
+	private long[] draws = new long[8];
+	private int drawCount;
+	private RandomSource cardSource;
+	/** Sums of the batch samples of the landing probabilities, indexed by <code>variant * spaces + position</code>. */
+	private double[] sum;
+	private double[] sumSquares;
+	/** Sums of the batch samples of the differences with the first variant, indexed the same way. */
+	private double[] differenceSum;
+	private double[] differenceSumSquares;
+
+	/**
+	 * @param variants The settings of each variant, the first one being compared to all the others. The generator and
+	 *        seed of the first one drive every variant.
+	 * @param rolls The rolls of each variant.
+	 * @param confidence The confidence of the intervals, for example 0.99.
+	 */
+	public Comparison(List<Settings> variants, long rolls, double confidence)
+	{
+		if (variants.size() < 2)
+			throw new IllegalArgumentException("A comparison needs at least two variants!");
+		//The couplings are between rolls of the standard dice.
+		for (Settings variant : variants)
+			if (!variant.getDice().equalsIgnoreCase(Roll.DEFAULT_DICE))
+				throw new IllegalArgumentException("A comparison can only be played with " + Roll.DEFAULT_DICE + " dice!");
+		//Spaces are compared by position, so every board needs as many.
+		this.spaces = variants.get(0).getLayout().size();
+		for (Settings variant : variants)
+			if (variant.getLayout().size() != spaces)
+				throw new IllegalArgumentException("A comparison can only be played on boards of the same size!");
+		this.variants = variants;
+		this.rolls = rolls;
+		this.z = Convergence.quantile(0.5 + confidence / 2);
+	}
+
+	/**
+	 * Builds a permutation of the 36 ways to roll two dice (<code>(die1 - 1) * 6 + die2 - 1</code>) sending as many
+	 * rolls as possible to a roll whose sum is lower by the given distance, keeping doubles on doubles where it can.
+	 */
+	private static int[] coupling(int distance)
+	{
+		int[] permutation = new int[36];
+		boolean[] used = new boolean[36];
+		Arrays.fill(permutation, -1);
+		//Matching sums and doubles first, then matching sums, then whatever is left.
+		for (int pass = 0; pass < 3; pass++)
+		{
+			for (int from = 0; from < 36; from++)
+			{
+				if (permutation[from] >= 0)
+					continue;
+				for (int to = 0; to < 36; to++)
+				{
+					if (used[to])
+						continue;
+					boolean sums = sum(to) == sum(from) - distance;
+					boolean doubles = isDouble(to) == isDouble(from);
+					if (pass == 2 || (sums && (pass == 1 || doubles)))
+					{
+						permutation[from] = to;
+						used[to] = true;
+						break;
+					}
+				}
+			}
+		}
+		return permutation;
+	}
+
+	private static int sum(int roll)
+	{
+		return roll / 6 + roll % 6 + 2;
+	}
+
+	private static boolean isDouble(int roll)
+	{
+		return roll / 6 == roll % 6;
+	}
+
+	/**
+	 * Plays every variant for the given number of rolls.
+	 */
+	public void run()
+	{
+		Settings base = variants.get(0);
+		games = new Game[variants.size()];
+		sum = new double[games.length * spaces];
+		sumSquares = new double[games.length * spaces];
+		differenceSum = new double[games.length * spaces];
+		differenceSumSquares = new double[games.length * spaces];
+		RandomSource dice = base.getGenerator().create(base.getSeed());
+		cardSource = dice.split();
+
+		Draws[] cards = new Draws[games.length];
+		for (int v = 0; v < games.length; v++)
+		{
+			Settings settings = new Settings(variants.get(v));
+			settings.setDataFile(null);
+			settings.setDataInterval(0);
+			settings.setImageFile(null);
+			settings.setImageInterval(0);
+			//The dice are chosen here, so the dice source of the game itself is never used.
+			cards[v] = new Draws();
+			games[v] = new Game(settings, dice, cards[v]);
+		}
+
+		double[] probabilities = new double[games.length * spaces];
+		long[] start = new long[games.length * spaces];
+		for (long roll = 1; roll <= rolls; roll++)
+		{
+			drawCount = 0;
+			int first = dice.nextInt(36);
+			int position = games[0].getPosition();
+			boolean inJail = games[0].getBoard().getJail().isInJail();
+
+			for (int v = 0; v < games.length; v++)
+			{
+				Game game = games[v];
+				int given = first;
+				//Both games out of jail: try to land the variant where the first game lands.
+				if (v > 0 && !inJail && !game.getBoard().getJail().isInJail())
+				{
+					int distance = Math.floorMod(game.getPosition() - position + spaces / 2, spaces) - spaces / 2;
+					if (Math.abs(distance) <= 10)
+						given = COUPLINGS[distance + 10][first];
+					else
+						given = (5 - first / 6) * 6 + 5 - first % 6;
+				}
+				cards[v].restart();
+				game.roll(given / 6 + 1, given % 6 + 1);
+			}
+
+			if (roll % Convergence.BATCH_ROLLS != 0)
+				continue;
+			for (int v = 0; v < games.length; v++)
+			{
+				for (int i = 0; i < spaces; i++)
+				{
+					long hits = games[v].getBoard().getSpace(i).getHits();
+					probabilities[v * spaces + i] = (double) (hits - start[v * spaces + i]) / Convergence.BATCH_ROLLS;
+					start[v * spaces + i] = hits;
+				}
+			}
+			for (int v = 0; v < games.length; v++)
+			{
+				for (int i = 0; i < spaces; i++)
+				{
+					double p = probabilities[v * spaces + i];
+					double difference = p - probabilities[i];
+					sum[v * spaces + i] += p;
+					sumSquares[v * spaces + i] += p * p;
+					differenceSum[v * spaces + i] += difference;
+					differenceSumSquares[v * spaces + i] += difference * difference;
+				}
+			}
+			batches++;
+		}
+	}
+
+	/**
+	 * The card draws of a game, read from the draws of the current roll shared by every variant, so that games on the
+	 * same space draw the same cards.
+	 */
+	private class Draws implements DrawSource
+	{
+		private int next = 0;
+
+		public void restart()
+		{
+			next = 0;
+		}
+
+		private long nextLong()
+		{
+			if (next == drawCount)
+			{
+				if (drawCount == draws.length)
+					draws = Arrays.copyOf(draws, drawCount * 2);
+				draws[drawCount++] = cardSource.nextLong();
+			}
+			return draws[next++];
+		}
+
+		@Override
+		public int nextInt(int bound)
+		{
+			int value = RandomSource.bounded(nextLong(), bound);
+			while (value < 0)
+				value = RandomSource.bounded(nextLong(), bound);
+			return value;
+		}
+	}
+
+	private static double variance(double sum, double sumSquares, int n)
+	{
+		if (n < 2)
+			return 0;
+		double mean = sum / n;
+		return Math.max(0, (sumSquares - n * mean * mean) / (n - 1));
+	}
+
+	/**
+	 * @param variant The index of a variant.
+	 * @param position The position of a space.
+	 * @return The landing probability of the space under the variant.
+	 */
+	public double getProbability(int variant, int position)
+	{
+		return batches == 0 ? 0 : sum[variant * spaces + position] / batches;
+	}
+
+	/**
+	 * @param variant The index of a variant other than the first.
+	 * @param position The position of a space.
+	 * @return How much more likely the space is to be landed on under the variant than under the first one.
+	 */
+	public double getDifference(int variant, int position)
+	{
+		return batches == 0 ? 0 : differenceSum[variant * spaces + position] / batches;
+	}
+
+	/**
+	 * @param variant The index of a variant other than the first.
+	 * @param position The position of a space.
+	 * @return The variance of a batch sample of the difference.
+	 */
+	public double getDifferenceVariance(int variant, int position)
+	{
+		int index = variant * spaces + position;
+		return variance(differenceSum[index], differenceSumSquares[index], batches);
+	}
+
+	/**
+	 * @param variant The index of a variant other than the first.
+	 * @param position The position of a space.
+	 * @return The half-width of the confidence interval of the difference.
+	 */
+	public double getHalfWidth(int variant, int position)
+	{
+		return batches < 2 ? 1 : z * Math.sqrt(getDifferenceVariance(variant, position) / batches);
+	}
+
+	/**
+	 * @param variant The index of a variant other than the first.
+	 * @param position The position of a space.
+	 * @return The variance a batch sample of the difference would have had with independent runs, divided by the
+	 *         variance it has with common random numbers.
+	 */
+	public double getVarianceReduction(int variant, int position)
+	{
+		double independent = variance(sum[variant * spaces + position], sumSquares[variant * spaces + position], batches)
+		        + variance(sum[position], sumSquares[position], batches);
+		double paired = getDifferenceVariance(variant, position);
+		return paired == 0 ? Double.POSITIVE_INFINITY : independent / paired;
+	}
+
+	public int getBatches()
+	{
+		return batches;
+	}
+
+	/**
+	 * @param variant The index of a variant.
+	 * @return The game played under the variant.
+	 */
+	public Game getGame(int variant)
+	{
+		return games[variant];
+	}
+}
@@ -0,0 +1,290 @@
+package com.marklalor.monopolysim.game;
+
+import java.nio.ByteBuffer;
+
+import com.marklalor.monopolysim.Settings;
+import com.marklalor.monopolysim.game.space.Space;
+
+/**
+ * Decides when a run has estimated the landing probability of every space precisely enough to stop, using the method
+ * of batch means.
+ * <p>
+ * The rolls are cut into batches of {@link #BATCH_ROLLS} rolls. The share of the hits of each space within a batch is
+ * one sample of its landing probability, and batches this long are far longer than the few turns it takes the board
+ * to forget where the player started, so they can be treated as independent. The confidence interval of each
+ * probability then follows from the variance of its batch samples, which is kept up to date one batch at a time from
+ * the {@link Space} hit counters. The run has converged once every interval is within the precision of the
+ * {@link Settings}, after at least {@link #MIN_BATCHES} batches.
+ * <p>
+ * One instance can be shared by the games of a {@link Simulation}: each game follows its own batches with a
+ * {@link Tracker}, and they all stop once the batches they add together are precise enough.
+ */
+public class Convergence
+{
+	/** Rolls in each batch. */
+	public static final long BATCH_ROLLS = 100000;
+	/** Batches needed before the variance is trusted. */
+	public static final int MIN_BATCHES = 30;
+
+	private double precision;
+	private double confidence;
+	/** Standard errors on each side of a probability, for the confidence. */
+	private double z;
+
+	private int batches = 0;
+	private double[] sum;
+	private double[] sumSquares;
+	private volatile boolean converged = false;
+
+	/**
+	 * @param precision The largest half-width of the confidence interval of any space, as a probability.
+	 * @param confidence The confidence of the intervals, for example 0.99.
+	 * @param spaces The number of spaces on the board.
+	 */
+	public Convergence(double precision, double confidence, int spaces)
+	{
+		this.precision = precision;
+		this.confidence = confidence;
+		this.z = quantile(0.5 + confidence / 2);
+		this.sum = new double[spaces];
+		this.sumSquares = new double[spaces];
+	}
+
+	/**
+	 * @param settings The settings holding the precision, confidence and layout.
+	 */
+	public Convergence(Settings settings)
+	{
+		this(settings.getPrecision(), settings.getConfidence(), settings.getLayout().size());
+	}
+
+	/**
+	 * Adds the landing probabilities measured over a batch.
+	 * @param probabilities The share of the batch's hits of each space.
+	 * @return Whether the run has converged.
+	 */
+	private synchronized boolean add(double[] probabilities)
+	{
+		for (int i = 0; i < sum.length; i++)
+		{
+			sum[i] += probabilities[i];
+			sumSquares[i] += probabilities[i] * probabilities[i];
+		}
+		batches++;
+		if (batches >= MIN_BATCHES && getMaxHalfWidth() <= precision)
+			converged = true;
+		return converged;
+	}
+
+	public boolean isConverged()
+	{
+		return converged;
+	}
+
+	public synchronized int getBatches()
+	{
+		return batches;
+	}
+
+	/**
+	 * @param position The position of a space.
+	 * @return The average of the batch samples of its landing probability.
+	 */
+	public synchronized double getMean(int position)
+	{
+		return batches == 0 ? 0 : sum[position] / batches;
+	}
+
+	/**
+	 * @param position The position of a space.
+	 * @return The half-width of the confidence interval of its landing probability, or 1 with fewer than 2 batches.
+	 */
+	public synchronized double getHalfWidth(int position)
+	{
+		if (batches < 2)
+			return 1;
+		double mean = sum[position] / batches;
+		double variance = (sumSquares[position] - batches * mean * mean) / (batches - 1);
+		return z * Math.sqrt(Math.max(0, variance) / batches);
+	}
+
+	/**
+	 * @return The widest half-width of any space.
+	 */
+	public synchronized double getMaxHalfWidth()
+	{
+		double max = 0;
+		for (int i = 0; i < sum.length; i++)
+			max = Math.max(max, getHalfWidth(i));
+		return max;
+	}
+
+	public double getPrecision()
+	{
+		return precision;
+	}
+
+	public double getConfidence()
+	{
+		return confidence;
+	}
+
+	/**
+	 * Follows the batches of one game.
+	 * @param game The game, whose hits so far are left out of the first batch.
+	 * @return A tracker adding the batches of the game to this instance.
+	 */
+	public Tracker track(Game game)
+	{
+		return new Tracker(game);
+	}
+
+	/**
+	 * Saves the batches added so far, from every game. The trackers of the games save the start of their current
+	 * batch themselves.
+	 * @param buffer The buffer to write the state to.
+	 */
+	public synchronized void writeState(ByteBuffer buffer)
+	{
+		buffer.putInt(batches);
+		for (int i = 0; i < sum.length; i++)
+		{
+			buffer.putDouble(sum[i]);
+			buffer.putDouble(sumSquares[i]);
+		}
+	}
+
+	/**
+	 * Restores the batches saved by {@link #writeState(ByteBuffer)}.
+	 * @param buffer The buffer to read the state from.
+	 */
+	public synchronized void readState(ByteBuffer buffer)
+	{
+		batches = buffer.getInt();
+		for (int i = 0; i < sum.length; i++)
+		{
+			sum[i] = buffer.getDouble();
+			sumSquares[i] = buffer.getDouble();
+		}
+		converged = batches >= MIN_BATCHES && getMaxHalfWidth() <= precision;
+	}
+
+	/**
+	 * Cuts the rolls of a single game into batches.
+	 */
+	public class Tracker
+	{
+		private Game game;
+		/** Hits of each space at the start of the current batch. */
+		private long[] start;
+		private long startRolls;
+		private double[] probabilities;
+
+		private Tracker(Game game)
+		{
+			this.game = game;
+			this.start = new long[sum.length];
+			this.probabilities = new double[sum.length];
+			restart();
+		}
+
+		private void restart()
+		{
+			for (int i = 0; i < start.length; i++)
+				start[i] = game.getBoard().getSpace(i).getHits();
+			startRolls = game.getRolls();
+		}
+
+		/**
+		 * Closes the current batch if it is long enough. Meant to be called after every turn.
+		 * @return Whether the run has converged, from this game's batches or any other's.
+		 */
+		public boolean update()
+		{
+			long rolls = game.getRolls() - startRolls;
+			if (rolls < BATCH_ROLLS)
+				return converged;
+
+			for (int i = 0; i < start.length; i++)
+				probabilities[i] = (double) (game.getBoard().getSpace(i).getHits() - start[i]) / rolls;
+			restart();
+			return add(probabilities);
+		}
+
+		public Convergence getConvergence()
+		{
+			return Convergence.this;
+		}
+
+		/**
+		 * Saves the batches so far and the start of the current one.
+		 * @param buffer The buffer to write the state to.
+		 */
+		public void writeState(ByteBuffer buffer)
+		{
+			Convergence.this.writeState(buffer);
+			writeBatch(buffer);
+		}
+
+		/**
+		 * Saves the start of the current batch, without the batches so far.
+		 * @param buffer The buffer to write the state to.
+		 */
+		public void writeBatch(ByteBuffer buffer)
+		{
+			for (int i = 0; i < start.length; i++)
+				buffer.putLong(start[i]);
+			buffer.putLong(startRolls);
+		}
+
+		/**
+		 * Restores the state saved by {@link #writeState(ByteBuffer)}.
+		 * @param buffer The buffer to read the state from.
+		 */
+		public void readState(ByteBuffer buffer)
+		{
+			Convergence.this.readState(buffer);
+			readBatch(buffer);
+		}
+
+		/**
+		 * Restores the start of the current batch saved by {@link #writeBatch(ByteBuffer)}.
+		 * @param buffer The buffer to read the state from.
+		 */
+		public void readBatch(ByteBuffer buffer)
+		{
+			for (int i = 0; i < start.length; i++)
+				start[i] = buffer.getLong();
+			startRolls = buffer.getLong();
+		}
+	}
+
+	/**
+	 * Gets the quantile of the standard normal distribution, with a relative error below 1.2e-9 (P. J. Acklam's
+	 * rational approximation).
+	 * @param p A probability strictly between 0 and 1.
+	 * @return The value the standard normal distribution falls below with probability <code>p</code>.
+	 */
+	public static double quantile(double p)
+	{
+		if (p <= 0 || p >= 1)
+			throw new IllegalArgumentException("The probability must be between 0 and 1!");
+
+		final double[] a = {-3.969683028665376e+01, 2.209460984245205e+02, -2.759285104469687e+02, 1.383577518672690e+02, -3.066479806614716e+01, 2.506628277459239e+00};
+		final double[] b = {-5.447609879822406e+01, 1.615858368580409e+02, -1.556989798598866e+02, 6.680131188771972e+01, -1.328068155288572e+01};
+		final double[] c = {-7.784894002430293e-03, -3.223964580411365e-01, -2.400758277161838e+00, -2.549732539343734e+00, 4.374664141464968e+00, 2.938163982698783e+00};
+		final double[] d = {7.784695709041462e-03, 3.224671290700398e-01, 2.445134137142996e+00, 3.754408661907416e+00};
+		final double low = 0.02425;
+
+		if (p < low)
+		{
+			double q = Math.sqrt(-2 * Math.log(p));
+			return (((((c[0] * q + c[1]) * q + c[2]) * q + c[3]) * q + c[4]) * q + c[5]) / ((((d[0] * q + d[1]) * q + d[2]) * q + d[3]) * q + 1);
+		}
+		if (p > 1 - low)
+			return -quantile(1 - p);
+		double q = p - 0.5;
+		double r = q * q;
+		return (((((a[0] * r + a[1]) * r + a[2]) * r + a[3]) * r + a[4]) * r + a[5]) * q / (((((b[0] * r + b[1]) * r + b[2]) * r + b[3]) * r + b[4]) * r + 1);
+	}
+}
@@ -1,19 +1,20 @@
 package com.marklalor.monopolysim.game;
 
+import java.nio.ByteBuffer;
+
 import com.marklalor.monopolysim.Main;
+import com.marklalor.monopolysim.Settings;
 import com.marklalor.monopolysim.game.card.CardAction;
 import com.marklalor.monopolysim.game.data.Data;
-import com.marklalor.monopolysim.game.display.Display;
-import com.marklalor.monopolysim.game.display.DisplayHQ;
-import com.marklalor.monopolysim.game.display.DisplayLQ;
+import com.marklalor.monopolysim.game.data.RowEncoder;
+import com.marklalor.monopolysim.game.display.Renderer;
 import com.marklalor.monopolysim.game.space.Space;
-import com.marklalor.monopolysim.game.space.special.Chance;
-import com.marklalor.monopolysim.game.space.special.CommunityChest;
-import com.marklalor.monopolysim.game.space.special.GoToJail;
 import com.marklalor.monopolysim.game.space.special.Jail;
 import com.marklalor.monopolysim.game.space.special.Railroad;
 import com.marklalor.monopolysim.game.space.special.Utility;
 import com.marklalor.monopolysim.roll.Roll;
+import com.marklalor.monopolysim.roll.random.DrawSource;
+import com.marklalor.monopolysim.roll.random.RandomSource;
 
 /**
  * Manages the simulation of a monopoly game and the writing of CSV data to a specified file.
@@ -26,62 +27,143 @@ import com.marklalor.monopolysim.roll.Roll;
 public class Game
 {
 	/** All rolls. Those following up a doubles-turn are included. */
-	private int rolls = 0;
+	private long rolls = 0;
 	/** All moves. Doubles-turns count as one move. */
-	private int moves = 0;
-	/** Current position on the board, ranging from 0 to 39 ("Go" to "Boardwalk") */
+	private long moves = 0;
+	/** Current position on the board, ranging from 0 ("Go") to the size of the board less one */
 	private int position = 0;
 	/** The total number of doubles that have been rolled. */
-	private int doubles = 0;
+	private long doubles = 0;
 	/** The number of spaces that have been moved. */
-	private int distanceMoved = 0;
+	private long distanceMoved = 0;
 	/** The number of times go has been passed. */
-	private int goPasses = 0;
+	private long goPasses = 0;
 	/** The current number of doubles that have been rolled in a row (3 doubles in a row constitutes a trip to jail!) */
 	private int doublesInARow = 0;
 	/** The current number of turns in a row that the player has been in jail. */
 	private int jailsInARow = 0;
 	
+	/** Configuration of the run this game belongs to. */
+	private Settings settings;
 	/** Game board space data wrapper. */
 	private Board board;
-	/** Game board image display instance. */
-	private Display display;
+	/** Game board image save instance. */
+	private Renderer renderer;
 	/** Game board CSV save instance. */
 	private Data data;
 	/** Roll logic instance. */
 	private Roll roll;
+	/** Source of the random numbers of the dice. */
+	private RandomSource random;
+	/** Batches of the rolls, when the run stops once it is precise enough. */
+	private Convergence.Tracker convergence;
 	
-	public Game()
+	/**
+	 * Creates a game whose dice and cards are driven by a new source of the configured generator and seed.
+	 * @param settings The configuration of the run.
+	 */
+	public Game(Settings settings)
+	{
+		this(settings, settings.getGenerator().create(settings.getSeed()));
+	}
+	
+	/**
+	 * @param settings The configuration of the run.
+	 * @param random The source the dice and cards are driven by.
+	 */
+	public Game(Settings settings, RandomSource random)
+	{
+		this(settings, random, -1);
+	}
+	
+	/**
+	 * @param settings The configuration of the run.
+	 * @param random The source the dice and cards are driven by.
+	 * @param dataOffset The length of an existing data file to continue, or -1 to start a new one.
+	 */
+	public Game(Settings settings, RandomSource random, long dataOffset)
 	{
-		this.board = new Board();
-		this.display = Main.HIGH_QUALITY?new DisplayHQ():new DisplayLQ();
-		this.data = new Data(this);
-		this.roll = new Roll();
+		this(settings, random, random, dataOffset);
+	}
+	
+	/**
+	 * Creates a game whose dice and cards are driven by separate sources, so that games played under different
+	 * rules can be given the same dice and the same cards (see {@link Comparison}). Only the dice source is saved with
+	 * the state of the game, as a {@link Checkpoint} only ever holds games with one source.
+	 * @param settings The configuration of the run.
+	 * @param dice The source the dice are driven by.
+	 * @param cards The source the cards are driven by.
+	 */
+	public Game(Settings settings, RandomSource dice, DrawSource cards)
+	{
+		this(settings, dice, cards, -1);
+	}
+	
+	private Game(Settings settings, RandomSource random, DrawSource cards, long dataOffset)
+	{
+		this.settings = settings;
+		this.random = random;
+		this.board = new Board(cards, settings.getDeckMode(), settings.getLayout());
+		//The data has a column for each die.
+		this.roll = Roll.parse(settings.getDice(), random);
+		this.data = new Data(this, settings.getDataFile(), settings.getDataInterval(), settings.isAsyncData(), settings.getDataFormat(), dataOffset);
+		this.renderer = new Renderer(this, settings.getImageFile(), settings.getImageInterval(), settings.isHighQuality(), settings.getImageFormat());
 	}
 	
 	/**
 	 * Executed repeatedly by the main method to simulate however many
 	 * turns specified by the user. Main logic flow method.
+	 * <p>
+	 * A turn is a loop of rolls: each pass rolls the dice once, and the loop only continues
+	 * while the player rolls doubles (fewer than three in a row) outside of jail.
 	 */
 	public void turn()
 	{
-		if (Main.DEBUG && board.getJail().isInJail()) System.out.println("In jail!");
+		do
+			roll.roll();
+		while (resolveRoll());
+	}
+	
+	/**
+	 * Plays a single roll with dice chosen elsewhere, such as by a {@link Comparison}. A turn is a sequence of these
+	 * until one returns <code>false</code>.
+	 * @param die1 The value of the first die.
+	 * @param die2 The value of the second die.
+	 * @return Whether the player rolls again in the same turn.
+	 */
+	public boolean roll(int die1, int die2)
+	{
+		roll.roll(die1, die2);
+		return resolveRoll();
+	}
+	
+	/**
+	 * Plays the roll the dice were just given.
+	 * @return Whether the player rolls again in the same turn.
+	 */
+	private boolean resolveRoll()
+	{
+		Jail jail = board.getJail();
+		
+		if (Main.DEBUG && jail.isInJail()) System.out.println("In jail!");
+		if (jail.isInJail() && settings.getJailPolicy() == JailPolicy.PAY)
+			unjail();
 		//Every time a roll of the dice occurs,
-		addRoll();
-		addMove();
-		roll.roll();
+		rolls++;
+		moves++;
+		boolean isDouble = roll.isDouble();
 		
 		//Special case:
 		boolean rolledDoublesToGetOutOfJail = false;
 		
 		//Checks for doubles, records them, and removes the player from jail if they are in jail.
-		if (roll.isDouble())
+		if (isDouble)
 		{
 			doubles++;
 			doublesInARow++;
-			if (board.getJail().isInJail())
+			if (jail.isInJail())
 			{
-				//The actual movement for this rolled double will occur below (where "if (!board.getJail().isInJail())" is).
+				//The actual movement for this rolled double will occur below (where "if (!jail.isInJail())" is).
 				unjail();
 				rolledDoublesToGetOutOfJail = true;
 			}
@@ -90,7 +172,7 @@ public class Game
 		else
 		{
 			doublesInARow = 0;
-			if (board.getJail().isInJail())
+			if (jail.isInJail())
 			{
 				jailsInARow++;
 			
@@ -98,66 +180,89 @@ public class Game
 				if (jailsInARow == 3)
 					unjail();
 				else
-					getBoard().getJail().addHit();
+					jail.addHit();
 			}
 		}
 		
 		//Move the player if they are not in jail.
-		if (!board.getJail().isInJail())
+		if (!jail.isInJail())
 		{
 			if (doublesInARow < 3)
 			{
 				move(roll.getValue());
-				//doubles moves recurse into more turns while subtracting the "move" that was incremented (because it was not actually completed).
-				if (roll.isDouble() && !rolledDoublesToGetOutOfJail)
+				//doubles moves roll again while subtracting the "move" that was incremented (because it was not actually completed).
+				if (isDouble && !rolledDoublesToGetOutOfJail)
 				{
 					moves--;
 					data.writeLine();
-					turn();
-					return;
+					renderer.writeFrame();
+					return true;
 				}
 			}
 			else
 			{
 				if (Main.DEBUG) System.out.println("3 DOUBLES!");
-				board.getJail().addHit();
+				jail.addHit();
 				jail();
 			}
 		}
 		
 		data.writeLine();
+		renderer.writeFrame();
+		return false;
 	}
 	
+	/**
+	 * Moves the player and resolves the space they land on, drawing cards as needed.
+	 * <p>
+	 * Cards that move the player again are followed in the same loop, using the space type codes
+	 * precomputed by the {@link Board}. Exactly one space receives a hit.
+	 * @param distance The number of spaces to move, negative to move backwards.
+	 */
 	public void move(int distance)
 	{
-		Space lastSpace = board.getSpace(getPosition());
-		changePosition(distance);
-		Space landingSpace = board.getSpace(getPosition());
-		
-		if (Main.DEBUG) System.out.println("Moved from \"" + lastSpace.getName() + "\" to \"" + landingSpace.getName() + "\".");
-		
-		CardAction action = null;
-		if (landingSpace instanceof Chance)
-			action = board.getChance().getCardAction();
-		else if (landingSpace instanceof CommunityChest)
-			action = board.getCommunityChest().getCardAction();
-		
-		//Not a chance or community chest.
-		if (action == null)
-		{
-			if (landingSpace instanceof GoToJail)
-				jail();
-			//Gets CURRENT space in case they were sent to jail.
-			getCurrentSpace().addHit();
-		}
-		//Chance or community chest with a special action to take.
-		else if (action != CardAction.DO_NOTHING)
-			action.use(this);
-		//Message for non-movement action cards. {}'s are important here...
-		else
+		while (true)
 		{
-			if (Main.DEBUG) System.out.println("Insignificant " + (landingSpace instanceof Chance ? "chance":"community chest") + " card.");
-			landingSpace.addHit();
+			if (Main.DEBUG) System.out.print("Moved from \"" + getCurrentSpace().getName() + "\"");
+			changePosition(distance);
+			if (Main.DEBUG) System.out.println(" to \"" + getCurrentSpace().getName() + "\".");
+			
+			CardAction action;
+			switch (board.getType(position))
+			{
+				case Board.CHANCE:
+					action = board.getChance().getCardAction();
+					break;
+				case Board.COMMUNITY_CHEST:
+					action = board.getCommunityChest().getCardAction();
+					break;
+				case Board.GO_TO_JAIL:
+					jail();
+					//Gets CURRENT space since they were sent to jail.
+					getCurrentSpace().addHit();
+					return;
+				default:
+					getCurrentSpace().addHit();
+					return;
+			}
+			
+			//Chance or community chest.
+			if (Main.DEBUG) System.out.println("CardAction: " + action);
+			switch (action)
+			{
+				case DO_NOTHING:
+					getCurrentSpace().addHit();
+					return;
+				case GO_DIRECTLY_TO_JAIL_DO_NOT_PASS_GO:
+					board.getJail().addHit();
+					jail();
+					return;
+				case GO_BACK_THREE_SPACES:
+					distance = -3;
+					break;
+				default:
+					distance = getCurrentSpace().distanceTo(board.getDestination(position, action));
+			}
 		}
 	}
 	
@@ -172,7 +277,7 @@ public class Game
 		board.getJail().putInJail();
 		doublesInARow = 0;
 		//Can't use regular methods because we cannot pass go, etc.
-		this.position = Jail.POSITION;
+		this.position = board.getJail().getPosition();
 	}
 	
 	/**
@@ -185,12 +290,12 @@ public class Game
 		jailsInARow = 0;
 	}
 	
-	public int getRolls()
+	public long getRolls()
 	{
 		return rolls;
 	}
 	
-	public void setRolls(int rolls)
+	public void setRolls(long rolls)
 	{
 		this.rolls = rolls;
 	}
@@ -200,12 +305,12 @@ public class Game
 		this.rolls++;
 	}
 	
-	public int getMoves()
+	public long getMoves()
 	{
 		return moves;
 	}
 	
-	public void setMoves(int moves)
+	public void setMoves(long moves)
 	{
 		this.moves = moves;
 	}
@@ -230,23 +335,23 @@ public class Game
 		distanceMoved += Math.abs(amount);
 		this.position += amount;
 		
-		//If "Go" is reached.
-		if (this.position >= 40)
+		//If "Go" is reached, as many times as dice with a large sum go around the board.
+		while (this.position >= board.size())
 		{
-			this.position -= 40;
+			this.position -= board.size();
 			this.goPasses++;
 		}
 		//Not really needed, as there are no chance cards within 3 spaces of "Go".
-		else if (this.position < 0)
-			this.position += 40;
+		if (this.position < 0)
+			this.position += board.size();
 	}
 	
-	public int getDoubles()
+	public long getDoubles()
 	{
 		return doubles;
 	}
 	
-	public void setDoubles(int doubles)
+	public void setDoubles(long doubles)
 	{
 		this.doubles = doubles;
 	}
@@ -256,12 +361,12 @@ public class Game
 		this.doubles++;
 	}
 	
-	public int getDistanceMoved()
+	public long getDistanceMoved()
 	{
 		return distanceMoved;
 	}
 	
-	public void setDistanceMoved(int distanceMoved)
+	public void setDistanceMoved(long distanceMoved)
 	{
 		this.distanceMoved = distanceMoved;
 	}
@@ -271,12 +376,12 @@ public class Game
 		this.distanceMoved += distanceMoved;
 	}
 	
-	public int getGoPasses()
+	public long getGoPasses()
 	{
 		return goPasses;
 	}
 	
-	public void setGoPasses(int goPasses)
+	public void setGoPasses(long goPasses)
 	{
 		this.goPasses = goPasses;
 	}
@@ -301,24 +406,34 @@ public class Game
 		this.doublesInARow++;
 	}
 	
+	public Settings getSettings()
+	{
+		return settings;
+	}
+	
 	public Board getBoard()
 	{
 		return board;
 	}
 	
+	public Roll getRoll()
+	{
+		return roll;
+	}
+	
 	public void setBoard(Board board)
 	{
 		this.board = board;
 	}
 	
-	public Display getDisplay()
+	public Renderer getRenderer()
 	{
-		return display;
+		return renderer;
 	}
 	
-	public void setDisplay(Display display)
+	public void setRenderer(Renderer renderer)
 	{
-		this.display = display;
+		this.renderer = renderer;
 	}
 	
 	public Data getData()
@@ -330,6 +445,19 @@ public class Game
 	{
 		this.data = data;
 	}
+	
+	/**
+	 * @return The batches of this game, or <code>null</code> if the run is not stopped by its precision.
+	 */
+	public Convergence.Tracker getConvergence()
+	{
+		return convergence;
+	}
+	
+	public void setConvergence(Convergence.Tracker convergence)
+	{
+		this.convergence = convergence;
+	}
 
 	public Space getCurrentSpace()
 	{
@@ -361,42 +489,135 @@ public class Game
 		return board.getNearestRailroad(getPosition());
 	}
 
+	/**
+	 * Saves the counters, position, jail state, dice, space hits and random number state of this game.
+	 * @param buffer The buffer to write the state to.
+	 */
+	public void writeState(ByteBuffer buffer)
+	{
+		buffer.putLong(rolls);
+		buffer.putLong(moves);
+		buffer.putLong(doubles);
+		buffer.putLong(distanceMoved);
+		buffer.putLong(goPasses);
+		buffer.putInt(position);
+		buffer.putInt(doublesInARow);
+		buffer.putInt(jailsInARow);
+		buffer.put((byte) (board.getJail().isInJail() ? 1 : 0));
+		for (int d = 0; d < roll.getDiceCount(); d++)
+			buffer.putInt(roll.getDie(d).getValue());
+		buffer.putInt(data.getDataCount());
+		
+		for (int i = 0; i < board.size(); i++)
+			buffer.putLong(board.getSpace(i).getHits());
+		board.getChance().writeState(buffer);
+		board.getCommunityChest().writeState(buffer);
+		random.writeState(buffer);
+	}
+	
+	/**
+	 * Restores a state saved by {@link #writeState(ByteBuffer)}.
+	 * @param buffer The buffer to read the state from.
+	 */
+	public void readState(ByteBuffer buffer)
+	{
+		rolls = buffer.getLong();
+		moves = buffer.getLong();
+		doubles = buffer.getLong();
+		distanceMoved = buffer.getLong();
+		goPasses = buffer.getLong();
+		position = buffer.getInt();
+		doublesInARow = buffer.getInt();
+		jailsInARow = buffer.getInt();
+		if (buffer.get() == 1)
+			board.getJail().putInJail();
+		else
+			board.getJail().freeFromJail();
+		int[] dice = new int[roll.getDiceCount()];
+		for (int d = 0; d < dice.length; d++)
+			dice[d] = buffer.getInt();
+		roll.roll(dice);
+		data.setDataCount(buffer.getInt());
+		
+		for (int i = 0; i < board.size(); i++)
+			board.getSpace(i).setHits(buffer.getLong());
+		board.getChance().readState(buffer);
+		board.getCommunityChest().readState(buffer);
+		random.readState(buffer);
+	}
+	
+	/**
+	 * Adds the counters and space hits of another game onto this one. Used to combine the results
+	 * of games simulated in parallel. The position and in-a-row state of this game are left as is.
+	 * @param other The game whose statistics are added to this game.
+	 */
+	public void merge(Game other)
+	{
+		this.rolls += other.rolls;
+		this.moves += other.moves;
+		this.doubles += other.doubles;
+		this.distanceMoved += other.distanceMoved;
+		this.goPasses += other.goPasses;
+		
+		for (int i = 0; i < board.size(); i++)
+		{
+			Space space = board.getSpace(i);
+			space.setHits(space.getHits() + other.board.getSpace(i).getHits());
+		}
+	}
+
 	//Statistics.
 	//CSV format/example.
 	//-------------------
-	//[rolls],[moves],[position],[doubles],[distanceMoved],[goPasses],[doublesInARow],[HitsOnSpace0],[HitsOnSpace1],[HitsOnSpace2], ... [HitsOnSpace39]
-	//5,5,8,0,58,1,0,0,0,0,1,0,2,0,0,0,1,0,1,0,1,......0,0,0,1,0.
+	//[rolls],[moves],[position],[doubles],[goPasses],[distanceMoved],[die1],[die2], ... [dieN],[inJail],[HitsOnSpace0],[HitsOnSpace1],[HitsOnSpace2], ... [HitsOnSpace39],
+	//5,5,8,0,1,58,3,5,false,0,0,0,1,0,2,0,0,0,1,0,1,0,1,......0,0,0,1,0,
+	//There is one die column for each die rolled.
 	public String generateData()
 	{
-		final int specials = 9;
-		
-		Object[] items = new Object[40 + specials];
-		items[0] = rolls;
-		items[1] = moves;
-		items[2] = position;
-		items[3] = doubles;
-		items[4] = goPasses;
-		items[5] = distanceMoved;
-		items[6] = roll.getDie1().getValue();
-		items[7] = roll.getDie2().getValue();
-		items[8] = getBoard().getJail().isInJail();
-		
-		for (int i = specials; i < 40 + specials; i++)
-			items[i] = board.getSpace(i - specials).getHits();
-		
-		return commaSeparate(items);
+		RowEncoder row = new RowEncoder();
+		encodeData(row);
+		return row.toString();
 	}
 	
+	/**
+	 * Copies the values of a row of data, in the same order as {@link #generateData()}. "In Jail?" is 1 or 0.
+	 * @param values The array to fill, of at least {@link Data#getColumns(Board, int)} values.
+	 */
+	public void snapshot(long[] values)
+	{
+		values[0] = rolls;
+		values[1] = moves;
+		values[2] = position;
+		values[3] = doubles;
+		values[4] = goPasses;
+		values[5] = distanceMoved;
+		int dice = roll.getDiceCount();
+		for (int d = 0; d < dice; d++)
+			values[6 + d] = roll.getDieValue(d);
+		values[6 + dice] = board.getJail().isInJail() ? 1 : 0;
+		
+		int first = Data.getColumns(board, dice) - board.size();
+		for (int i = 0; i < board.size(); i++)
+			values[first + i] = board.getSpace(i).getHits();
+	}
 	
-	private String commaSeparate(Object[] items)
-	{
-		StringBuffer b = new StringBuffer();
-		for (Object item : items)
-		{
-			b.append(item);
-			b.append(',');
-		}
-		b.substring(0, b.length() - 1);
-		return b.toString();
+	/**
+	 * Appends a line of CSV data (without a line separator) to the given encoder, in the format of {@link #generateData()}.
+	 * @param row The encoder to append to.
+	 */
+	public void encodeData(RowEncoder row)
+	{
+		row.append(rolls).append(',');
+		row.append(moves).append(',');
+		row.append(position).append(',');
+		row.append(doubles).append(',');
+		row.append(goPasses).append(',');
+		row.append(distanceMoved).append(',');
+		for (int d = 0; d < roll.getDiceCount(); d++)
+			row.append(roll.getDieValue(d)).append(',');
+		row.append(board.getJail().isInJail()).append(',');
+		
+		for (int i = 0; i < board.size(); i++)
+			row.append(board.getSpace(i).getHits()).append(',');
 	}
 }
@@ -0,0 +1,12 @@
+package com.marklalor.monopolysim.game;
+
+/**
+ * The ways a player can get out of jail.
+ */
+public enum JailPolicy
+{
+	/** Rolls for doubles on each of their next turns, and pays the fine to leave after the third failed roll. */
+	WAIT,
+	/** Pays the fine at the start of their next turn, and takes that turn as usual. */
+	PAY;
+}
@@ -0,0 +1,273 @@
+package com.marklalor.monopolysim.game;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Phaser;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.marklalor.monopolysim.Settings;
+import com.marklalor.monopolysim.game.display.Frame;
+import com.marklalor.monopolysim.game.metrics.ProgressReporter;
+import com.marklalor.monopolysim.game.metrics.SimulationMetrics;
+import com.marklalor.monopolysim.game.metrics.TurnBatchEvent;
+import com.marklalor.monopolysim.game.metrics.TurnBatches;
+import com.marklalor.monopolysim.roll.random.RandomSource;
+
+/**
+ * Splits the rolls of a run across several worker threads, each simulating its own {@link Game} and {@link Board},
+ * and merges their statistics into a single {@link Game} once every worker has finished.
+ * <p>
+ * The workers do not write any CSV data or images. Only the merged result is written, as one line, to the data file
+ * of the given {@link Settings}, and as one image to its image folder.
+ * <p>
+ * When the settings ask for a precision, the workers add their batches to one shared {@link Convergence} and all stop
+ * as soon as it has converged.
+ * <p>
+ * When the settings ask for a checkpoint, every worker stops after each of its share of the checkpoint interval until
+ * all the others have too (or have finished), and the last one to stop saves the games of every worker to the
+ * {@link Checkpoint} before they all go on. A run resumed with {@link Checkpoint#loadSimulation(java.io.File)} goes on
+ * with the same workers from there.
+ * <p>
+ * The progress of the workers is published together as {@link SimulationMetrics} over JMX while they run if the
+ * settings ask for it, and each worker records {@link TurnBatchEvent}s when Flight Recorder is on. Their rolls are
+ * added up and printed a few times per second by a {@link ProgressReporter}.
+ */
+public class Simulation
+{
+	private Settings settings;
+	private Convergence convergence;
+	private SimulationMetrics metrics;
+	private ProgressReporter progress;
+	/** The game of each worker, and the tracker of its batches when the run stops at a precision. */
+	private Game[] games;
+	private Convergence.Tracker[] trackers;
+	private Checkpoint checkpoint;
+	/** Stops every worker for each checkpoint, or <code>null</code> without checkpoints. */
+	private Phaser phaser;
+
+	public Simulation(Settings settings)
+	{
+		this.settings = settings;
+	}
+
+	/**
+	 * Continues the workers of a run from a checkpoint.
+	 * @param settings The settings of the run.
+	 * @param games The game of each worker, whose settings hold the rolls it plays.
+	 * @param convergence The batches so far, or <code>null</code> if the run does not stop at a precision.
+	 * @param trackers The tracker of each game's batches, or <code>null</code>.
+	 */
+	Simulation(Settings settings, Game[] games, Convergence convergence, Convergence.Tracker[] trackers)
+	{
+		this.settings = settings;
+		this.games = games;
+		this.convergence = convergence;
+		this.trackers = trackers;
+	}
+
+	/**
+	 * Creates a game for a worker, writing no data or images.
+	 * @param settings The settings of the run.
+	 * @param rolls The rolls the worker plays.
+	 * @param random The source of the worker.
+	 * @return The game.
+	 */
+	static Game createWorkerGame(Settings settings, long rolls, RandomSource random)
+	{
+		Settings workerSettings = new Settings(settings);
+		workerSettings.setRolls(rolls);
+		workerSettings.setDataFile(null);
+		workerSettings.setDataInterval(0);
+		workerSettings.setImageFile(null);
+		workerSettings.setImageInterval(0);
+		workerSettings.setCheckpointFile(null);
+		workerSettings.setCheckpointInterval(0);
+		return new Game(workerSettings, random);
+	}
+
+	/**
+	 * Runs every worker to completion and merges their results.
+	 * @return A {@link Game} holding the combined statistics of all the workers.
+	 * @throws InterruptedException If interrupted while waiting for the workers.
+	 */
+	public Game run() throws InterruptedException
+	{
+		if (games == null)
+		{
+			int threads = Math.max(1, settings.getThreads());
+			games = new Game[threads];
+			//Every worker gets its own stream split from the seed, in order, so the run can be replayed.
+			RandomSource random = settings.getGenerator().create(settings.getSeed());
+			//Give the remainder of the division to the first workers so that the budgets add up to the total.
+			for (int i = 0; i < threads; i++)
+				games[i] = createWorkerGame(settings, settings.getRolls() / threads + (i < settings.getRolls() % threads ? 1 : 0), random.split());
+			if (settings.getPrecision() > 0)
+			{
+				convergence = new Convergence(settings);
+				trackers = new Convergence.Tracker[threads];
+				for (int i = 0; i < threads; i++)
+					trackers[i] = convergence.track(games[i]);
+			}
+		}
+		metrics = new SimulationMetrics(settings).register();
+		progress = new ProgressReporter(settings).start();
+
+		if (settings.getCheckpointFile() != null && settings.getCheckpointInterval() > 0)
+		{
+			checkpoint = new Checkpoint(settings.getCheckpointFile());
+			metrics.setCheckpoint(checkpoint);
+			phaser = new Phaser(games.length)
+			{
+				@Override
+				protected boolean onAdvance(int phase, int parties)
+				{
+					//Every worker still playing is waiting, so their games can be read.
+					save();
+					return parties == 0;
+				}
+			};
+		}
+
+		ExecutorService executor = Executors.newFixedThreadPool(games.length);
+		List<Future<Game>> workers = new ArrayList<Future<Game>>(games.length);
+		for (int i = 0; i < games.length; i++)
+			workers.add(executor.submit(new Worker(i)));
+		executor.shutdown();
+
+		Game result = new Game(settings);
+		metrics.setOutput(result);
+		try
+		{
+			for (Future<Game> worker : workers)
+				result.merge(worker.get());
+		}
+		catch(ExecutionException e)
+		{
+			executor.shutdownNow();
+			throw new IllegalStateException("A simulation worker failed!", e.getCause());
+		}
+		finally
+		{
+			progress.stop();
+			metrics.unregister();
+		}
+
+		result.getData().write();
+		result.getRenderer().submit(new Frame(result));
+		return result;
+	}
+
+	private void save()
+	{
+		try
+		{
+			checkpoint.save(this);
+		}
+		catch(Throwable e)
+		{
+			//Not only an IOException: every other worker is waiting for this checkpoint, and would wait forever.
+			System.out.println("Could not save the checkpoint!");
+			e.printStackTrace();
+			System.exit(1);
+		}
+	}
+
+	/**
+	 * Simulates a share of the total rolls on its own {@link Game}.
+	 */
+	private class Worker implements Callable<Game>
+	{
+		private int index;
+
+		public Worker(int index)
+		{
+			this.index = index;
+		}
+
+		@Override
+		public Game call()
+		{
+			Game game = games[index];
+			long rolls = game.getSettings().getRolls();
+			SimulationMetrics.Counters counters = metrics.track(game);
+			AtomicLong published = progress.track(game);
+			Convergence.Tracker tracker = trackers == null ? null : trackers[index];
+			TurnBatches batches = new TurnBatches(game);
+			//Each worker plays its share of the rolls between two checkpoints.
+			long interval = Math.max(1, settings.getCheckpointInterval() / games.length);
+			long nextCheckpoint = phaser == null ? Long.MAX_VALUE : game.getRolls() + interval;
+			try
+			{
+				while (game.getRolls() < rolls)
+				{
+					game.turn();
+					published.lazySet(game.getRolls());
+					counters.publish();
+					batches.update();
+					if (tracker != null && tracker.update())
+						break;
+					if (game.getRolls() >= nextCheckpoint)
+					{
+						phaser.arriveAndAwaitAdvance();
+						nextCheckpoint = game.getRolls() + interval;
+					}
+				}
+			}
+			finally
+			{
+				//A finished worker no longer holds up the checkpoints of the others.
+				if (phaser != null)
+					phaser.arriveAndDeregister();
+			}
+			batches.finish();
+			counters.finish();
+			return game;
+		}
+	}
+	
+	/**
+	 * @return The batches of the last run, or <code>null</code> if it was not stopped by its precision.
+	 */
+	public Convergence getConvergence()
+	{
+		return convergence;
+	}
+
+	public Settings getSettings()
+	{
+		return settings;
+	}
+
+	/**
+	 * @return The rolls the workers have played so far, such as those of a checkpoint it was resumed from.
+	 */
+	public long getRolls()
+	{
+		long rolls = 0;
+		if (games != null)
+			for (Game game : games)
+				rolls += game.getRolls();
+		return rolls;
+	}
+
+	/**
+	 * @return The game of each worker.
+	 */
+	Game[] getGames()
+	{
+		return games;
+	}
+
+	/**
+	 * @return The tracker of each game's batches, or <code>null</code> if the run does not stop at a precision.
+	 */
+	Convergence.Tracker[] getTrackers()
+	{
+		return trackers;
+	}
+}
@@ -0,0 +1,375 @@
+package com.marklalor.monopolysim.game.batch;
+
+import com.marklalor.monopolysim.game.Board;
+import com.marklalor.monopolysim.game.JailPolicy;
+import com.marklalor.monopolysim.game.card.Card;
+import com.marklalor.monopolysim.game.card.CardAction;
+import com.marklalor.monopolysim.roll.random.RandomSource;
+
+import jdk.incubator.vector.LongVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Rolls for thousands of independent tokens at once, in lockstep, counting the hits of each space over all of them.
+ * <p>
+ * Each token follows exactly the rules of {@link com.marklalor.monopolysim.game.Game#turn()}, one roll at a time: its
+ * position, doubles in a row, turns in jail and whether it is in jail are kept in one primitive array each, and every
+ * roll advances all the tokens through the same instructions, several at a time in the lanes of the
+ * <code>jdk.incubator.vector</code> API. Each token has its own xoroshiro128++ stream, stepped in the lanes too. One
+ * 64-bit draw per roll gives both dice (from its upper half) and up to {@link #MAX_DRAWS} cards (from its lower half,
+ * highest bits first), so there is no branch on what was rolled: doubles, jail and the move around the board are
+ * computed with lane masks.
+ * <p>
+ * Everything that can happen once a token has moved (Go To Jail, chance and community chest cards, including going
+ * back three spaces onto community chest) only depends on the space reached and the cards drawn, so where each card
+ * leads from each space is precomputed as a table of steps. A step either ends the roll or draws again from another
+ * space. As no more than two cards are drawn on the standard board, where the first two cards lead from each space is
+ * also precomputed, and a roll only follows the steps past its second card. Looking up where a roll ends and counting
+ * the hit are the only work done one token at a time. A layout whose cards can chain more than {@link #MAX_DRAWS}
+ * draws, or forever, is rejected. The hits are counted in {@link #STRIPES} separate histograms, token <code>i</code> using stripe
+ * <code>i % STRIPES</code>, so that consecutive tokens landing on the same space do not wait on each other's count.
+ * <p>
+ * Only cards drawn at random ({@link com.marklalor.monopolysim.game.card.DeckMode#RANDOM}) are supported, as a
+ * shuffled deck would need a deck for each token. The dice are taken by multiplying random bits rather than by
+ * rejection, which favors some faces by at most 2<sup>-29</sup>.
+ * <p>
+ * Compiling and running this class needs <code>--add-modules jdk.incubator.vector</code>.
+ */
+public class BatchEngine
+{
+	private static final VectorSpecies<Long> SPECIES = LongVector.SPECIES_PREFERRED;
+	/** Separate hit histograms. */
+	public static final int STRIPES = 8;
+	/** Bits taken by each card drawn. */
+	private static final int CARD_BITS = Integer.numberOfTrailingZeros(Card.SIZE);
+	private static final int CARD_MASK = Card.SIZE - 1;
+	private static final int PAIR_MASK = Card.SIZE * Card.SIZE - 1;
+	/** The longest move of a roll of two dice. */
+	private static final int MAX_MOVE = 12;
+	/** The most cards a roll can draw, all taken from the lower 32 bits of its draw. */
+	public static final int MAX_DRAWS = 32 / CARD_BITS;
+	/** A step ending in jail, in the table of steps. Steps below it draw again from space <code>-2 - step</code>. */
+	private static final int JAILED = -1;
+	private static final long LOW = 0xFFFFFFFFL;
+
+	private int tokens;
+	private JailPolicy jailPolicy;
+	private int spaces;
+	private int jail;
+	/** Whether a roll can go around the board more than once. */
+	private boolean small;
+
+	//One entry per token.
+	private long[] position;
+	private long[] doublesInARow;
+	private long[] jailsInARow;
+	/** 1 if the token is in jail, 0 otherwise. */
+	private long[] inJail;
+	private long[] state0;
+	private long[] state1;
+	/** Where each token's roll takes it before Go To Jail and cards, or -1 if it stays in (or goes to) jail. */
+	private long[] reached;
+	/** The cards of each token's roll, the first one in the highest bits. */
+	private long[] cards;
+
+	/** Where a card leads, indexed by <code>space * Card.SIZE + card</code>. */
+	private int[] steps;
+	/** Where the first two cards lead, indexed by <code>(space * Card.SIZE + card) * Card.SIZE + second card</code>. */
+	private int[] ends;
+	/** Hits of each space in each stripe, indexed by <code>stripe * spaces + position</code>. */
+	private long[] hits;
+	private long rolls = 0;
+
+	/**
+	 * @param board The board whose layout and cards are played.
+	 * @param random The source each token's stream is split from.
+	 * @param tokens The number of tokens, rounded up to a whole number of vectors.
+	 * @param jailPolicy How the tokens get out of jail.
+	 */
+	public BatchEngine(Board board, RandomSource random, int tokens, JailPolicy jailPolicy)
+	{
+		this.tokens = Math.max(1, (tokens + SPECIES.length() - 1) / SPECIES.length()) * SPECIES.length();
+		this.jailPolicy = jailPolicy;
+		this.spaces = board.size();
+		this.jail = board.getJail().getPosition();
+		this.small = spaces - 1 + MAX_MOVE >= 2 * spaces;
+		position = new long[this.tokens];
+		doublesInARow = new long[this.tokens];
+		jailsInARow = new long[this.tokens];
+		inJail = new long[this.tokens];
+		state0 = new long[this.tokens];
+		state1 = new long[this.tokens];
+		reached = new long[this.tokens];
+		cards = new long[this.tokens];
+		hits = new long[STRIPES * spaces];
+
+		for (int i = 0; i < this.tokens; i++)
+		{
+			RandomSource token = random.split();
+			state0[i] = token.nextLong();
+			state1[i] = token.nextLong();
+			//xoroshiro128++ must not start from an all zero state.
+			if (state0[i] == 0 && state1[i] == 0)
+				state1[i] = 1;
+		}
+		steps = buildSteps(board);
+		ends = buildEnds();
+	}
+
+	/**
+	 * Precomputes where each card leads from each space, following the same rules as
+	 * {@link com.marklalor.monopolysim.game.Game#move(int)}. Spaces without cards lead to themselves, or to jail for Go
+	 * To Jail, whatever the card.
+	 * @throws IllegalArgumentException If the cards of the board can chain more than {@link #MAX_DRAWS} draws.
+	 */
+	private int[] buildSteps(Board board)
+	{
+		if (Integer.bitCount(Card.SIZE) != 1)
+			throw new IllegalArgumentException("The batch engine needs decks of a power of two cards, not " + Card.SIZE + "!");
+		int[] steps = new int[spaces * Card.SIZE];
+		for (int space = 0; space < spaces; space++)
+			for (int card = 0; card < Card.SIZE; card++)
+				steps[space * Card.SIZE + card] = step(board, space, card);
+
+		int[] draws = new int[spaces];
+		for (int space = 0; space < spaces; space++)
+			if (draws(board, steps, space, draws) > MAX_DRAWS)
+				throw new IllegalArgumentException("The cards of this layout can chain more than " + MAX_DRAWS + " draws in one roll, which the batch engine cannot play!");
+		return steps;
+	}
+
+	private int[] buildEnds()
+	{
+		int[] ends = new int[spaces * Card.SIZE * Card.SIZE];
+		for (int space = 0; space < spaces; space++)
+			for (int first = 0; first < Card.SIZE; first++)
+				for (int second = 0; second < Card.SIZE; second++)
+				{
+					int end = steps[space * Card.SIZE + first];
+					if (end < JAILED)
+						end = steps[(-2 - end) * Card.SIZE + second];
+					ends[(space * Card.SIZE + first) * Card.SIZE + second] = end;
+				}
+		return ends;
+	}
+
+	private int step(Board board, int at, int card)
+	{
+		CardAction[] actions;
+		switch (board.getType(at))
+		{
+			case Board.CHANCE:
+				actions = board.getChance().getActions();
+				break;
+			case Board.COMMUNITY_CHEST:
+				actions = board.getCommunityChest().getActions();
+				break;
+			default:
+				return land(board, at);
+		}
+		//Each of the cards, the ones past the actions doing nothing.
+		CardAction action = card < actions.length ? actions[card] : CardAction.DO_NOTHING;
+		switch (action)
+		{
+			case DO_NOTHING:
+				return at;
+			case GO_DIRECTLY_TO_JAIL_DO_NOT_PASS_GO:
+				return JAILED;
+			case GO_BACK_THREE_SPACES:
+				return land(board, Math.floorMod(at - 3, spaces));
+			default:
+				return land(board, board.getDestination(at, action));
+		}
+	}
+
+	/**
+	 * @return The step of a token moving onto a space: the space, jail, or another draw from it.
+	 */
+	private int land(Board board, int at)
+	{
+		switch (board.getType(at))
+		{
+			case Board.CHANCE:
+			case Board.COMMUNITY_CHEST:
+				return -2 - at;
+			case Board.GO_TO_JAIL:
+				return JAILED;
+			default:
+				return at;
+		}
+	}
+
+	/**
+	 * @return The most cards a roll reaching the space can draw, or more than {@link #MAX_DRAWS} if the draws can go
+	 *         on forever. Each space is worked out once into <code>draws</code>, where -1 marks the spaces being worked
+	 *         out.
+	 */
+	private int draws(Board board, int[] steps, int space, int[] draws)
+	{
+		if (board.getType(space) != Board.CHANCE && board.getType(space) != Board.COMMUNITY_CHEST)
+			return 0;
+		if (draws[space] == -1)
+			return MAX_DRAWS + 1;
+		if (draws[space] > 0)
+			return draws[space];
+		draws[space] = -1;
+		int most = 1;
+		for (int card = 0; card < Card.SIZE && most <= MAX_DRAWS; card++)
+		{
+			int step = steps[space * Card.SIZE + card];
+			if (step < JAILED)
+				most = Math.max(most, 1 + draws(board, steps, -2 - step, draws));
+		}
+		draws[space] = most;
+		return most;
+	}
+
+	/**
+	 * Rolls once for every token.
+	 */
+	public void roll()
+	{
+		int length = SPECIES.length();
+		LongVector zero = LongVector.zero(SPECIES);
+		LongVector one = LongVector.broadcast(SPECIES, 1);
+		LongVector jailSpace = LongVector.broadcast(SPECIES, jail);
+		boolean pay = jailPolicy == JailPolicy.PAY;
+		boolean small = this.small;
+
+		for (int i = 0; i < tokens; i += length)
+		{
+			//xoroshiro128++.
+			LongVector s0 = LongVector.fromArray(SPECIES, state0, i);
+			LongVector s1 = LongVector.fromArray(SPECIES, state1, i);
+			LongVector bits = s0.add(s1).lanewise(VectorOperators.ROL, 17).add(s0);
+			s1 = s1.lanewise(VectorOperators.XOR, s0);
+			s0 = s0.lanewise(VectorOperators.ROL, 49).lanewise(VectorOperators.XOR, s1).lanewise(VectorOperators.XOR, s1.lanewise(VectorOperators.LSHL, 21));
+			s1 = s1.lanewise(VectorOperators.ROL, 28);
+			s0.intoArray(state0, i);
+			s1.intoArray(state1, i);
+
+			//Each die is the next base 6 digit of the upper 32 bits.
+			LongVector scaled = bits.lanewise(VectorOperators.LSHR, 32).mul(6);
+			LongVector die1 = scaled.lanewise(VectorOperators.LSHR, 32);
+			LongVector die2 = scaled.and(LOW).mul(6).lanewise(VectorOperators.LSHR, 32);
+			VectorMask<Long> isDouble = die1.compare(VectorOperators.EQ, die2);
+
+			LongVector doubles = LongVector.fromArray(SPECIES, doublesInARow, i);
+			LongVector jails = LongVector.fromArray(SPECIES, jailsInARow, i);
+			VectorMask<Long> jailed = LongVector.fromArray(SPECIES, inJail, i).compare(VectorOperators.NE, 0);
+			LongVector at = LongVector.fromArray(SPECIES, position, i);
+
+			if (pay)
+			{
+				jails = jails.blend(zero, jailed);
+				jailed = SPECIES.maskAll(false);
+			}
+
+			//Doubles count up, anything else resets the count. Doubles free a token from jail.
+			doubles = doubles.add(one).blend(zero, isDouble.not());
+			VectorMask<Long> freed = jailed.and(isDouble);
+			//Three failed rolls in jail force the token to pay its way out.
+			VectorMask<Long> waiting = jailed.andNot(isDouble);
+			jails = jails.add(one, waiting);
+			VectorMask<Long> paid = waiting.and(jails.compare(VectorOperators.EQ, 3));
+			freed = freed.or(paid);
+			jails = jails.blend(zero, freed);
+			VectorMask<Long> staying = waiting.andNot(paid);
+
+			//A third double in a row goes to jail instead of moving.
+			VectorMask<Long> moving = staying.not();
+			VectorMask<Long> tooMany = moving.and(doubles.compare(VectorOperators.GE, 3));
+			moving = moving.andNot(tooMany);
+
+			//Go around the board as many times as it takes, as in Game.changePosition, even on boards smaller than a roll.
+			LongVector to = at.add(die1).add(die2).add(2);
+			if (small)
+				to = to.sub(to.div(spaces).mul(spaces));
+			else
+				to = to.sub(spaces, to.compare(VectorOperators.GE, spaces));
+
+			//Tokens that did not move end up (or stay) in jail.
+			VectorMask<Long> inJailNow = staying.or(tooMany);
+			to.blend(-1, moving.not()).intoArray(reached, i);
+			at.blend(jailSpace, inJailNow).intoArray(position, i);
+			doubles.blend(zero, tooMany).intoArray(doublesInARow, i);
+			jails.intoArray(jailsInARow, i);
+			zero.blend(one, inJailNow).intoArray(inJail, i);
+			bits.and(LOW).intoArray(cards, i);
+		}
+
+		//Where each moving token ends, and the hits.
+		for (int i = 0; i < tokens; i++)
+		{
+			int stripe = (i & (STRIPES - 1)) * spaces;
+			long to = reached[i];
+			if (to < 0)
+			{
+				hits[stripe + jail]++;
+				continue;
+			}
+			//The first two cards are the highest bits, and any further ones the bits below them.
+			long drawn = cards[i];
+			int shift = 32 - 2 * CARD_BITS;
+			int end = ends[(int) to << 2 * CARD_BITS | (int) (drawn >>> shift) & PAIR_MASK];
+			while (end < JAILED)
+			{
+				shift -= CARD_BITS;
+				end = steps[(-2 - end) << CARD_BITS | (int) (drawn >>> shift) & CARD_MASK];
+			}
+			if (end == JAILED)
+			{
+				hits[stripe + jail]++;
+				position[i] = jail;
+				inJail[i] = 1;
+				doublesInARow[i] = 0;
+			}
+			else
+			{
+				hits[stripe + end]++;
+				position[i] = end;
+			}
+		}
+		rolls += tokens;
+	}
+
+	/**
+	 * Rolls until every token has rolled at least the given number of times in total.
+	 * @param rolls The total number of rolls, over all the tokens.
+	 */
+	public void run(long rolls)
+	{
+		while (this.rolls < rolls)
+			roll();
+	}
+
+	/**
+	 * @param position The position of a space.
+	 * @return The hits of the space over every token.
+	 */
+	public long getHits(int position)
+	{
+		long total = 0;
+		for (int stripe = 0; stripe < STRIPES; stripe++)
+			total += hits[stripe * spaces + position];
+		return total;
+	}
+
+	/**
+	 * @return The rolls of every token added together.
+	 */
+	public long getRolls()
+	{
+		return rolls;
+	}
+
+	/**
+	 * @return The number of tokens, a whole number of vectors.
+	 */
+	public int getTokens()
+	{
+		return tokens;
+	}
+}
@@ -1,6 +1,8 @@
 package com.marklalor.monopolysim.game.card;
 
-import java.util.Random;
+import java.nio.ByteBuffer;
+
+import com.marklalor.monopolysim.roll.random.DrawSource;
 
 /**
  * Allows a {@link CardAction} to be chosen from a list provided by a subclass of {@link Card}.
@@ -8,11 +10,27 @@ import java.util.Random;
  */
 public abstract class Card
 {
+	/** Number of cards in each deck. */
+	public static final int SIZE = 16;
+	
 	private CardAction[] actions;
+	private DrawSource random;
+	private DeckMode mode;
+	/** The full deck in its shuffled order, used by {@link DeckMode#SHUFFLED}. */
+	private CardAction[] deck = new CardAction[SIZE];
+	/** Index in {@link #deck} of the next card to draw. */
+	private int cursor = 0;
 	
-	public Card(CardAction[] actions)
+	public Card(CardAction[] actions, DrawSource random, DeckMode mode)
 	{
 		this.actions = actions;
+		this.random = random;
+		this.mode = mode;
+		
+		for (int i = 0; i < SIZE; i++)
+			deck[i] = i < actions.length ? actions[i] : CardAction.DO_NOTHING;
+		if (mode == DeckMode.SHUFFLED)
+			shuffle();
 	}
 	
 	/**
@@ -20,12 +38,22 @@ public abstract class Card
 	 * <p>
 	 * The {@link CardAction}s provided make up X of the 16 cards in the deck, so there is a <code>length</code>/16
 	 * chance of getting a meaningful action, otherwise it is {@link CardAction.DO_NOTHING}
+	 * <p>
+	 * With {@link DeckMode#SHUFFLED}, the next card of the shuffled deck is drawn instead, and the deck is shuffled
+	 * again once every card has been drawn.
 	 * @return a {@link CardAction} selected at random from 16 choices.
 	 */
 	public CardAction getCardAction()
 	{
+		if (mode == DeckMode.SHUFFLED)
+		{
+			if (cursor == SIZE)
+				shuffle();
+			return deck[cursor++];
+		}
+		
 		//Each card type has 16 total.
-		int value = new Random().nextInt(16);
+		int value = random.nextInt(SIZE);
 		
 		//The given actions are the movement actions, the other ones are not useful (hence the DO_NOTHING).
 		if (value < actions.length)
@@ -34,6 +62,57 @@ public abstract class Card
 			return CardAction.DO_NOTHING;
 	}
 	
+	/**
+	 * Shuffles the deck in place (Fisher-Yates) and starts drawing from the top.
+	 */
+	private void shuffle()
+	{
+		for (int i = SIZE - 1; i > 0; i--)
+		{
+			int j = random.nextInt(i + 1);
+			CardAction card = deck[i];
+			deck[i] = deck[j];
+			deck[j] = card;
+		}
+		cursor = 0;
+	}
+	
+	/**
+	 * Saves the order of the deck and the position of the next card.
+	 * @param buffer The buffer to write to.
+	 */
+	public void writeState(ByteBuffer buffer)
+	{
+		buffer.put((byte) cursor);
+		for (CardAction card : deck)
+			buffer.put((byte) card.ordinal());
+	}
+	
+	/**
+	 * Restores a state saved by {@link #writeState(ByteBuffer)}.
+	 * @param buffer The buffer to read from.
+	 */
+	public void readState(ByteBuffer buffer)
+	{
+		cursor = buffer.get();
+		for (int i = 0; i < SIZE; i++)
+			deck[i] = CardAction.values()[buffer.get()];
+	}
+	
+	public DeckMode getMode()
+	{
+		return mode;
+	}
+	
+	/**
+	 * Gets the meaningful actions of this deck. Every other card of the deck is a {@link CardAction#DO_NOTHING}.
+	 * @return The {@link CardAction}s of this deck.
+	 */
+	public CardAction[] getActions()
+	{
+		return actions;
+	}
+	
 	//  About Monopoly Cards:
 	//
 	//	COMMUNITY CHEST LIST: 
@@ -1,6 +1,7 @@
 package com.marklalor.monopolysim.game.card;
 
 import com.marklalor.monopolysim.Main;
+import com.marklalor.monopolysim.game.Board;
 import com.marklalor.monopolysim.game.Game;
 
 /**
@@ -29,26 +30,30 @@ public enum CardAction
 	{
 		if (Main.DEBUG) System.out.println("CardAction: " + this);
 		
-		if (this == ADVANCE_TO_GO)
-			game.advanceTo(game.getBoard().getGo());
-		else if (this == ADVANCE_TO_ILLINOIS_AVE)
-			game.advanceTo(game.getBoard().getIllinoisAvenue());
-		else if (this == ADVANCE_TO_ST_CHARLES_PLACE)
-			game.advanceTo(game.getBoard().getStCharlesPlace());
-		else if (this == ADVANCE_TOKEN_TO_NEAREST_UTILITY)
-			game.advanceTo(game.getNearestUtility());
-		else if (this == ADVANCE_TOKEN_TO_THE_NEAREST_RAILROAD)
-			game.advanceTo(game.getNearestRailroad());
-		else if (this == TAKE_A_TRIP_TO_READING_RAILROAD)
-			game.advanceTo(game.getBoard().getReadingRailroad());
-		else if (this == TAKE_A_WALK_ON_THE_BOARDWALK)
-			game.advanceTo(game.getBoard().getBoardwalk());
-		else if (this == GO_DIRECTLY_TO_JAIL_DO_NOT_PASS_GO)
+		switch (this)
 		{
-			game.getBoard().getJail().addHit();
-			game.jail();
+			case GO_DIRECTLY_TO_JAIL_DO_NOT_PASS_GO:
+				game.getBoard().getJail().addHit();
+				game.jail();
+				break;
+			case GO_BACK_THREE_SPACES:
+				game.move(-3);
+				break;
+			case DO_NOTHING:
+				break;
+			default:
+				game.advanceTo(getDestination(game.getBoard(), game.getPosition()));
 		}
-		else if (this == GO_BACK_THREE_SPACES)
-			game.move(-3);
+	}
+	
+	/**
+	 * Gets the position an advancing action moves the player to, from the table precomputed by the {@link Board}.
+	 * @param board The board to find the destination on.
+	 * @param position The position the card is drawn from.
+	 * @return The destination position, or -1 if this action does not advance the player.
+	 */
+	public int getDestination(Board board, int position)
+	{
+		return board.getDestination(position, this);
 	}
 }
@@ -1,5 +1,7 @@
 package com.marklalor.monopolysim.game.card;
 
+import com.marklalor.monopolysim.roll.random.DrawSource;
+
 
 /**
  * Creates a card instance with the Monopoly <em>Chance</em> cards.
@@ -7,19 +9,38 @@ package com.marklalor.monopolysim.game.card;
  */
 public class ChanceCard extends Card
 {
-	public ChanceCard()
+	/** The standard cards that move the player. */
+	public static final CardAction[] ACTIONS =
+	{
+		CardAction.ADVANCE_TO_GO,
+		CardAction.GO_DIRECTLY_TO_JAIL_DO_NOT_PASS_GO,
+		CardAction.ADVANCE_TO_ILLINOIS_AVE,
+		CardAction.ADVANCE_TOKEN_TO_NEAREST_UTILITY,
+		CardAction.ADVANCE_TOKEN_TO_THE_NEAREST_RAILROAD,
+		CardAction.ADVANCE_TO_ST_CHARLES_PLACE,
+		CardAction.GO_BACK_THREE_SPACES,
+		CardAction.TAKE_A_TRIP_TO_READING_RAILROAD,
+		CardAction.TAKE_A_WALK_ON_THE_BOARDWALK
+	};
+	
+	public ChanceCard(DrawSource random)
+	{
+		this(random, DeckMode.RANDOM);
+	}
+	
+	public ChanceCard(DrawSource random, DeckMode mode)
+	{
+		this(ACTIONS, random, mode);
+	}
+	
+	/**
+	 * Creates a deck with other cards, such as those of a {@link com.marklalor.monopolysim.game.layout.Layout}.
+	 * @param actions The meaningful actions of the deck.
+	 * @param random The source the cards are drawn with.
+	 * @param mode How the cards are drawn.
+	 */
+	public ChanceCard(CardAction[] actions, DrawSource random, DeckMode mode)
 	{
-		super(new CardAction[]
-		{
-			CardAction.ADVANCE_TO_GO,
-			CardAction.GO_DIRECTLY_TO_JAIL_DO_NOT_PASS_GO,
-			CardAction.ADVANCE_TO_ILLINOIS_AVE,
-			CardAction.ADVANCE_TOKEN_TO_NEAREST_UTILITY,
-			CardAction.ADVANCE_TOKEN_TO_THE_NEAREST_RAILROAD,
-			CardAction.ADVANCE_TO_ST_CHARLES_PLACE,
-			CardAction.GO_BACK_THREE_SPACES,
-			CardAction.TAKE_A_TRIP_TO_READING_RAILROAD,
-			CardAction.TAKE_A_WALK_ON_THE_BOARDWALK
-		});
+		super(actions, random, mode);
 	}
 }
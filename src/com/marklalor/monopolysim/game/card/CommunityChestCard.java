@@ -1,17 +1,38 @@
 package com.marklalor.monopolysim.game.card;
 
+import com.marklalor.monopolysim.roll.random.DrawSource;
+
 /**
  * Creates a card instance with the Monopoly <em>Community Chest</em> cards.
  * @author Mark Lalor
  */
 public class CommunityChestCard extends Card
 {
-	public CommunityChestCard()
+	/** The standard cards that move the player. */
+	public static final CardAction[] ACTIONS =
+	{
+		CardAction.ADVANCE_TO_GO,
+		CardAction.GO_DIRECTLY_TO_JAIL_DO_NOT_PASS_GO
+	};
+	
+	public CommunityChestCard(DrawSource random)
+	{
+		this(random, DeckMode.RANDOM);
+	}
+	
+	public CommunityChestCard(DrawSource random, DeckMode mode)
+	{
+		this(ACTIONS, random, mode);
+	}
+	
+	/**
+	 * Creates a deck with other cards, such as those of a {@link com.marklalor.monopolysim.game.layout.Layout}.
+	 * @param actions The meaningful actions of the deck.
+	 * @param random The source the cards are drawn with.
+	 * @param mode How the cards are drawn.
+	 */
+	public CommunityChestCard(CardAction[] actions, DrawSource random, DeckMode mode)
 	{
-		super(new CardAction[]
-		{
-			CardAction.ADVANCE_TO_GO,
-			CardAction.GO_DIRECTLY_TO_JAIL_DO_NOT_PASS_GO
-		});
+		super(actions, random, mode);
 	}
 }
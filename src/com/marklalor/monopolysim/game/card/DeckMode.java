@@ -0,0 +1,12 @@
+package com.marklalor.monopolysim.game.card;
+
+/**
+ * The ways a card can be drawn from a chance or community chest deck.
+ */
+public enum DeckMode
+{
+	/** Every card is drawn at random from the full deck, as if it were put back and the deck reshuffled each time. */
+	RANDOM,
+	/** Cards are drawn in turn from a shuffled deck, which is only reshuffled once every card has been drawn. */
+	SHUFFLED;
+}
@@ -0,0 +1,242 @@
+package com.marklalor.monopolysim.game.data;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.Writer;
+import java.nio.CharBuffer;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import com.marklalor.monopolysim.Main;
+import com.marklalor.monopolysim.game.metrics.DataFlushEvent;
+import com.marklalor.monopolysim.game.metrics.FlightEvents;
+
+/**
+ * Writes CSV data on a background thread so that the simulation never waits on the file system.
+ * <p>
+ * Rows are copied into pages of characters. Full pages are handed to the writer thread through a bounded queue and
+ * are recycled once written, so no memory is allocated per row. When every page is waiting to be written, the
+ * simulation waits for the writer instead of dropping rows. The writer only flushes the file once enough data has
+ * been written since the last flush, once <code>FLUSH_INTERVAL</code> has passed, or when closed.
+ */
+public class AsyncDataWriter implements Runnable
+{
+	/** Number of pages shared between the simulation and the writer thread. */
+	public static final int PAGES = 32;
+	/** Characters held by each page. */
+	public static final int PAGE_SIZE = 1 << 16;
+	/** Characters written after which the file is flushed. */
+	public static final int FLUSH_SIZE = 1 << 22;
+	/** Milliseconds after which pending data is written and the file flushed. */
+	public static final long FLUSH_INTERVAL = 1000;
+
+	/** Marks the end of the data. */
+	private static final Page CLOSE = new Page(0);
+	/** Asks for everything before it to be written and flushed. */
+	private static final Page SYNC = new Page(0);
+
+	private Writer out;
+	private File file;
+	private Thread thread;
+
+	/** Pages ready to be filled, and pages ready to be written. */
+	private ArrayBlockingQueue<Page> free, full;
+	/** The page currently being filled by the simulation. */
+	private Page page;
+	/** Set by the writer thread when it wants the partially filled page to be handed over. */
+	private volatile boolean flushRequested = false;
+	/** Released by the writer thread once a {@link #SYNC} has been flushed. */
+	private Semaphore synced = new Semaphore(0);
+
+	/**
+	 * A reusable block of characters.
+	 */
+	private static class Page
+	{
+		private char[] chars;
+		private int length = 0;
+
+		public Page(int size)
+		{
+			this.chars = new char[size];
+		}
+	}
+
+	/**
+	 * Starts the writer thread.
+	 * @param out The writer that the data is written to. It is owned by the writer thread from now on.
+	 * @param file The file the writer writes to, to name it in {@link DataFlushEvent}s.
+	 */
+	public AsyncDataWriter(Writer out, File file)
+	{
+		this.out = out;
+		this.file = file;
+		this.free = new ArrayBlockingQueue<Page>(PAGES);
+		this.full = new ArrayBlockingQueue<Page>(PAGES);
+
+		this.page = new Page(PAGE_SIZE);
+		for (int i = 1; i < PAGES; i++)
+			free.add(new Page(PAGE_SIZE));
+
+		this.thread = new Thread(this, "Data Writer");
+		this.thread.setDaemon(true);
+		this.thread.start();
+	}
+
+	/**
+	 * Copies characters to be written.
+	 * @param data The buffer holding the characters to write.
+	 * @param offset The index of the first character to write.
+	 * @param length The number of characters to write.
+	 * @throws InterruptedIOException If interrupted while waiting for the writer thread.
+	 */
+	public void write(char[] data, int offset, int length) throws InterruptedIOException
+	{
+		int end = offset + length;
+		while (offset < end)
+		{
+			if (page.length == page.chars.length)
+				publish();
+			int copied = Math.min(end - offset, page.chars.length - page.length);
+			System.arraycopy(data, offset, page.chars, page.length, copied);
+			page.length += copied;
+			offset += copied;
+		}
+
+		if (flushRequested)
+			publish();
+	}
+
+	/**
+	 * Hands the current page to the writer thread and takes a free one, waiting if there is none.
+	 */
+	private void publish() throws InterruptedIOException
+	{
+		flushRequested = false;
+		if (page.length == 0)
+			return;
+
+		try
+		{
+			full.put(page);
+			page = free.take();
+			page.length = 0;
+		}
+		catch(InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while waiting for the data writer!");
+		}
+	}
+
+	/**
+	 * Hands over the remaining data and waits for all of it to be written and flushed.
+	 * @throws InterruptedIOException If interrupted while waiting for the writer thread.
+	 */
+	public void sync() throws InterruptedIOException
+	{
+		publish();
+		try
+		{
+			full.put(SYNC);
+			synced.acquire();
+		}
+		catch(InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while waiting for the data writer!");
+		}
+	}
+	
+	/**
+	 * Hands over the remaining data, waits for all of it to be written and closes the writer.
+	 * @throws InterruptedIOException If interrupted while waiting for the writer thread.
+	 */
+	public void close() throws InterruptedIOException
+	{
+		publish();
+		try
+		{
+			full.put(CLOSE);
+			thread.join();
+		}
+		catch(InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while waiting for the data writer!");
+		}
+	}
+
+	@Override
+	public void run()
+	{
+		long lastFlush = System.currentTimeMillis();
+		long unflushed = 0;
+
+		try
+		{
+			while (true)
+			{
+				Page written = full.poll(FLUSH_INTERVAL, TimeUnit.MILLISECONDS);
+
+				if (written == CLOSE)
+					break;
+				
+				if (written == SYNC)
+				{
+					flush(unflushed);
+					unflushed = 0;
+					lastFlush = System.currentTimeMillis();
+					synced.release();
+					continue;
+				}
+
+				if (written == null)
+					//Nothing came in time, so ask for the partially filled page.
+					flushRequested = true;
+				else
+				{
+					out.write(written.chars, 0, written.length);
+					if (Main.DEBUGCSV) System.out.append(CharBuffer.wrap(written.chars, 0, written.length));
+					unflushed += written.length;
+					free.put(written);
+				}
+
+				long now = System.currentTimeMillis();
+				if (unflushed > 0 && (unflushed >= FLUSH_SIZE || now - lastFlush >= FLUSH_INTERVAL))
+				{
+					flush(unflushed);
+					unflushed = 0;
+					lastFlush = now;
+				}
+			}
+
+			out.close();
+		}
+		catch(IOException e)
+		{
+			System.out.println("Failed to write to file!");
+			e.printStackTrace();
+			System.exit(1);
+		}
+		catch(InterruptedException e)
+		{
+			System.out.println("Data writer interrupted!");
+			e.printStackTrace();
+			System.exit(1);
+		}
+	}
+
+	/**
+	 * Flushes the file, recording a {@link DataFlushEvent}.
+	 * @param unflushed The characters written since the last flush.
+	 */
+	private void flush(long unflushed) throws IOException
+	{
+		DataFlushEvent event = FlightEvents.beginFlush();
+		out.flush();
+		FlightEvents.endFlush(event, file, unflushed);
+	}
+}
@@ -0,0 +1,312 @@
+package com.marklalor.monopolysim.game.data;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reads the files written by {@link BinaryDataWriter}, by mapping them into memory.
+ * <p>
+ * A single mapping cannot be larger than 2 GB, so the header and then each block are mapped on their own, only while
+ * they are read. Files of any size can be read, and the rows of a column can be read a range at a time when there
+ * are too many of them to fit in one array.
+ */
+public class BinaryDataReader
+{
+	private FileChannel channel;
+	private String[] columnNames;
+	/** Every block of the file, in order. */
+	private List<Block> blocks = new ArrayList<Block>();
+	private long rows = 0;
+
+	/**
+	 * Where a block is in the file, and which rows it holds.
+	 */
+	private static class Block
+	{
+		private long offset;
+		private int length;
+		private int rows;
+		private long firstRow;
+	}
+
+	/**
+	 * Opens the file, reads its header and finds every block.
+	 * @param file The file to read.
+	 * @throws IOException If the file could not be read or is not in the expected format.
+	 */
+	public BinaryDataReader(File file) throws IOException
+	{
+		channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+		try
+		{
+			readHeader();
+		}
+		catch(IOException e)
+		{
+			channel.close();
+			throw e;
+		}
+	}
+
+	private void readHeader() throws IOException
+	{
+		long size = channel.size();
+		ByteBuffer buffer = map(0, Math.min(size, 12));
+		if (buffer.remaining() < 12 || buffer.getInt() != BinaryDataWriter.MAGIC)
+			throw new IOException("Not a simulation data file!");
+		int version = buffer.getInt();
+		if (version != BinaryDataWriter.VERSION)
+			throw new IOException("Unsupported simulation data version " + version + "!");
+
+		//Each name takes at most a short length and 0xFFFF bytes.
+		int columns = buffer.getInt();
+		if (columns < 0)
+			throw new IOException("Not a simulation data file!");
+		buffer = map(0, Math.min(size, 12 + columns * (2L + 0xFFFF)));
+		buffer.position(12);
+		columnNames = new String[columns];
+		for (int c = 0; c < columns; c++)
+		{
+			if (buffer.remaining() < 2)
+				throw new IOException("The simulation data file is cut short!");
+			int length = buffer.getShort() & 0xFFFF;
+			if (buffer.remaining() < length)
+				throw new IOException("The simulation data file is cut short!");
+			byte[] bytes = new byte[length];
+			buffer.get(bytes);
+			columnNames[c] = new String(bytes, StandardCharsets.UTF_8);
+		}
+
+		//Skip through the blocks to find where each one starts, looking at no more than a full block at once.
+		long maxLength = 4 + columns * (9 + 8L * BinaryDataWriter.BLOCK_ROWS);
+		long offset = buffer.position();
+		while (offset < size)
+		{
+			buffer = map(offset, Math.min(size - offset, maxLength));
+			if (buffer.remaining() < 4)
+				throw new IOException("The simulation data file is cut short!");
+			Block block = new Block();
+			block.offset = offset;
+			block.rows = buffer.getInt();
+			//The writer never writes an empty block.
+			if (block.rows < 1)
+				throw new IOException("Not a simulation data file!");
+			block.firstRow = rows;
+			for (int c = 0; c < columns; c++)
+				skipColumn(buffer, block.rows);
+			block.length = buffer.position();
+			blocks.add(block);
+			rows += block.rows;
+			offset += block.length;
+		}
+	}
+
+	/**
+	 * Maps part of the file.
+	 * @param offset The offset of the part in the file.
+	 * @param length The length of the part, which must fit in an int.
+	 * @return The part, positioned at its start.
+	 * @throws IOException If the file could not be mapped.
+	 */
+	private ByteBuffer map(long offset, long length) throws IOException
+	{
+		return channel.map(FileChannel.MapMode.READ_ONLY, offset, length).order(ByteOrder.LITTLE_ENDIAN);
+	}
+
+	/** Moves <code>buffer</code> past the column it is positioned at, in a block of <code>rows</code> rows. */
+	private static void skipColumn(ByteBuffer buffer, int rows) throws IOException
+	{
+		if (buffer.remaining() < 9)
+			throw new IOException("The simulation data file is cut short!");
+		buffer.position(buffer.position() + 8);
+		int width = buffer.get();
+		long skip = words(rows, width) * 8L;
+		if (buffer.remaining() < skip)
+			throw new IOException("The simulation data file is cut short!");
+		buffer.position(buffer.position() + (int) skip);
+	}
+
+	/** @return The number of longs holding <code>rows - 1</code> deltas of <code>width</code> bits. */
+	private static int words(int rows, int width)
+	{
+		return (int) (((long) (rows - 1) * width + 63) / 64);
+	}
+
+	/**
+	 * @return The name of each column.
+	 */
+	public String[] getColumnNames()
+	{
+		return columnNames;
+	}
+
+	/**
+	 * @return The total number of rows in the file.
+	 */
+	public long getRows()
+	{
+		return rows;
+	}
+
+	/**
+	 * Reads every value of a column.
+	 * @param column The index of the column.
+	 * @return The values of the column, one per row.
+	 * @throws IOException If the file could not be read, or it has too many rows to fit in an array, in which case
+	 * they can be read a range at a time with {@link #readColumn(int, long, long[])}.
+	 */
+	public long[] readColumn(int column) throws IOException
+	{
+		long[] values = new long[checkRows()];
+		readColumn(column, 0, values);
+		return values;
+	}
+
+	/**
+	 * Reads the values of a column for a range of rows.
+	 * @param column The index of the column.
+	 * @param firstRow The first row to read.
+	 * @param values The array to fill with the values of <code>values.length</code> rows, from <code>firstRow</code>.
+	 * @throws IOException If the file could not be read.
+	 */
+	public void readColumn(int column, long firstRow, long[] values) throws IOException
+	{
+		if (firstRow < 0 || firstRow + values.length > rows)
+			throw new IndexOutOfBoundsException("Rows " + firstRow + " to " + (firstRow + values.length) + " are not all in the " + rows + " rows of the file!");
+		long[] decoded = new long[BinaryDataWriter.BLOCK_ROWS];
+		for (int b = find(firstRow); b < blocks.size(); b++)
+		{
+			Block block = blocks.get(b);
+			if (block.firstRow >= firstRow + values.length)
+				break;
+			ByteBuffer buffer = map(block.offset, block.length);
+			buffer.getInt();
+			readBlock(buffer, block.rows, column, decoded);
+			copy(block, decoded, firstRow, values);
+		}
+	}
+
+	/**
+	 * Reads every value of every column.
+	 * @return The values, indexed by column and then by row.
+	 * @throws IOException If the file could not be read, or it has too many rows to fit in an array.
+	 */
+	public long[][] readAll() throws IOException
+	{
+		long[][] values = new long[columnNames.length][checkRows()];
+		long[] decoded = new long[BinaryDataWriter.BLOCK_ROWS];
+		//Map each block once for all of its columns.
+		for (Block block : blocks)
+		{
+			ByteBuffer buffer = map(block.offset, block.length);
+			buffer.getInt();
+			for (int c = 0; c < values.length; c++)
+			{
+				buffer.position(4);
+				readBlock(buffer, block.rows, c, decoded);
+				copy(block, decoded, 0, values[c]);
+			}
+		}
+		return values;
+	}
+
+	/**
+	 * Closes the file.
+	 * @throws IOException If the file could not be closed.
+	 */
+	public void close() throws IOException
+	{
+		channel.close();
+	}
+
+	/** @return The rows of the file, if they fit in an array. */
+	private int checkRows() throws IOException
+	{
+		//Arrays cannot quite reach Integer.MAX_VALUE elements on most VMs.
+		if (rows > Integer.MAX_VALUE - 8)
+			throw new IOException("The simulation data file has " + rows + " rows, too many to read into one array!");
+		return (int) rows;
+	}
+
+	/** @return The index of the block holding <code>row</code>, or the number of blocks if there is none. */
+	private int find(long row)
+	{
+		int low = 0;
+		int high = blocks.size() - 1;
+		while (low <= high)
+		{
+			int middle = (low + high) >>> 1;
+			Block block = blocks.get(middle);
+			if (row < block.firstRow)
+				high = middle - 1;
+			else if (row >= block.firstRow + block.rows)
+				low = middle + 1;
+			else
+				return middle;
+		}
+		return blocks.size();
+	}
+
+	/** Copies the rows of <code>block</code> that fall in the range of <code>values</code>, which starts at <code>firstRow</code>. */
+	private static void copy(Block block, long[] decoded, long firstRow, long[] values)
+	{
+		long from = Math.max(block.firstRow, firstRow);
+		long to = Math.min(block.firstRow + block.rows, firstRow + values.length);
+		if (from < to)
+			System.arraycopy(decoded, (int) (from - block.firstRow), values, (int) (from - firstRow), (int) (to - from));
+	}
+
+	/**
+	 * Decodes one column of a block into <code>values</code>.
+	 * @param block The block, positioned after its row count.
+	 * @param count The number of rows in the block.
+	 * @param column The index of the column.
+	 * @param values The array to fill with the <code>count</code> values of the column.
+	 */
+	private static void readBlock(ByteBuffer block, int count, int column, long[] values) throws IOException
+	{
+		//Skip the columns before this one.
+		for (int c = 0; c < column; c++)
+			skipColumn(block, count);
+
+		int row = 0;
+		long value = block.getLong();
+		int width = block.get();
+		values[row++] = value;
+		if (width == 0)
+		{
+			for (int r = 1; r < count; r++)
+				values[row++] = value;
+			return;
+		}
+
+		long mask = width == 64 ? -1L : (1L << width) - 1;
+		long word = block.getLong();
+		int used = 0;
+		for (int r = 1; r < count; r++)
+		{
+			long delta = word >>> used;
+			used += width;
+			if (used >= 64)
+			{
+				used -= 64;
+				if (r < count - 1 || used > 0)
+				{
+					word = block.getLong();
+					if (used > 0)
+						delta |= word << (width - used);
+				}
+			}
+			delta &= mask;
+			value += (delta >>> 1) ^ -(delta & 1);
+			values[row++] = value;
+		}
+	}
+}
@@ -0,0 +1,191 @@
+package com.marklalor.monopolysim.game.data;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+
+import com.marklalor.monopolysim.game.metrics.DataFlushEvent;
+import com.marklalor.monopolysim.game.metrics.FlightEvents;
+
+/**
+ * Writes rows of counters to a compact binary file, readable with {@link BinaryDataReader}.
+ * <p>
+ * The file is little-endian. It starts with a header:
+ * <ul>
+ * <li>int: {@link #MAGIC}</li>
+ * <li>int: {@link #VERSION}</li>
+ * <li>int: number of columns</li>
+ * <li>for each column, a short length followed by the UTF-8 name of the column (the same names as the CSV headings)</li>
+ * </ul>
+ * The rows follow in blocks of up to {@link #BLOCK_ROWS} rows, stored column by column:
+ * <ul>
+ * <li>int: number of rows in the block</li>
+ * <li>for each column, the long value of the first row, a byte giving the bits used per delta, and the zigzag-encoded
+ * differences between each following row and the one before, packed into longs</li>
+ * </ul>
+ * Since the counters change very little from one row to the next, most columns need one or two bits per row.
+ */
+public class BinaryDataWriter
+{
+	/** "MSIM", identifies the file format. */
+	public static final int MAGIC = 0x4D49534D;
+	public static final int VERSION = 1;
+	/** Maximum number of rows in each block. */
+	public static final int BLOCK_ROWS = 4096;
+
+	private File file;
+	private FileChannel channel;
+	private ByteBuffer buffer;
+	/** Bytes written to the file by this writer, read by other threads for monitoring. */
+	private volatile long bytesWritten = 0;
+	private int columns;
+
+	/** Values of the rows of the current block, by column. */
+	private long[][] block;
+	private int rows = 0;
+
+	/**
+	 * Opens the file and writes the header.
+	 * @param file The file to write to.
+	 * @param columnNames The name of each column.
+	 * @param resumeOffset The length returned by {@link #sync()} to continue an existing file from, or -1 to start a new one.
+	 * @throws IOException If the file could not be opened or written.
+	 */
+	public BinaryDataWriter(File file, String[] columnNames, long resumeOffset) throws IOException
+	{
+		this.file = file;
+		this.columns = columnNames.length;
+		this.block = new long[columns][BLOCK_ROWS];
+
+		//Large enough for a block where every delta needs all 64 bits.
+		this.buffer = ByteBuffer.allocateDirect(4 + columns * (9 + 8 * BLOCK_ROWS)).order(ByteOrder.LITTLE_ENDIAN);
+
+		if (resumeOffset >= 0)
+		{
+			//Drop anything written after the checkpoint, then continue from there.
+			this.channel = FileChannel.open(file.toPath(), StandardOpenOption.WRITE);
+			channel.truncate(resumeOffset);
+			channel.position(resumeOffset);
+			return;
+		}
+		
+		this.channel = FileChannel.open(file.toPath(), StandardOpenOption.WRITE, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
+		buffer.putInt(MAGIC);
+		buffer.putInt(VERSION);
+		buffer.putInt(columns);
+		for (String name : columnNames)
+		{
+			byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+			buffer.putShort((short) bytes.length);
+			buffer.put(bytes);
+		}
+		drain();
+	}
+
+	/**
+	 * Adds a row. It is written once its block is full, or on {@link #close()}.
+	 * @param values The value of each column.
+	 * @throws IOException If a block could not be written.
+	 */
+	public void write(long[] values) throws IOException
+	{
+		for (int c = 0; c < columns; c++)
+			block[c][rows] = values[c];
+		rows++;
+
+		if (rows == BLOCK_ROWS)
+			writeBlock();
+	}
+
+	private void writeBlock() throws IOException
+	{
+		if (rows == 0)
+			return;
+
+		buffer.putInt(rows);
+		for (int c = 0; c < columns; c++)
+		{
+			long[] column = block[c];
+			buffer.putLong(column[0]);
+
+			//Find the bits needed by the largest delta.
+			long all = 0;
+			for (int r = 1; r < rows; r++)
+				all |= zigzag(column[r] - column[r - 1]);
+			int width = 64 - Long.numberOfLeadingZeros(all);
+			buffer.put((byte) width);
+			if (width == 0)
+				continue;
+
+			long word = 0;
+			int used = 0;
+			for (int r = 1; r < rows; r++)
+			{
+				long delta = zigzag(column[r] - column[r - 1]);
+				word |= delta << used;
+				used += width;
+				if (used >= 64)
+				{
+					buffer.putLong(word);
+					used -= 64;
+					//The bits of the delta that did not fit in the previous word.
+					word = used == 0 ? 0 : delta >>> (width - used);
+				}
+			}
+			if (used > 0)
+				buffer.putLong(word);
+		}
+		rows = 0;
+		drain();
+	}
+
+	private static long zigzag(long value)
+	{
+		return (value << 1) ^ (value >> 63);
+	}
+
+	private void drain() throws IOException
+	{
+		DataFlushEvent event = FlightEvents.beginFlush();
+		buffer.flip();
+		int bytes = buffer.remaining();
+		while (buffer.hasRemaining())
+			channel.write(buffer);
+		buffer.clear();
+		bytesWritten += bytes;
+		FlightEvents.endFlush(event, file, bytes);
+	}
+
+	/**
+	 * @return The bytes written to the file by this writer, including the header.
+	 */
+	public long getBytesWritten()
+	{
+		return bytesWritten;
+	}
+
+	/**
+	 * Writes the rows added so far, ending the current block early.
+	 * @return The length of the file, from which it can be continued.
+	 * @throws IOException If the rows could not be written.
+	 */
+	public long sync() throws IOException
+	{
+		writeBlock();
+		return channel.position();
+	}
+	
+	/**
+	 * Writes the remaining rows and closes the file.
+	 * @throws IOException If the rows could not be written or the file closed.
+	 */
+	public void close() throws IOException
+	{
+		writeBlock();
+		channel.close();
+	}
+}
@@ -1,44 +1,90 @@
 package com.marklalor.monopolysim.game.data;
 
 import java.io.BufferedWriter;
+import java.io.File;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.CharBuffer;
 
 import com.marklalor.monopolysim.Main;
+import com.marklalor.monopolysim.game.Board;
 import com.marklalor.monopolysim.game.Game;
+import com.marklalor.monopolysim.game.metrics.DataFlushEvent;
+import com.marklalor.monopolysim.game.metrics.FlightEvents;
 
 
 /**
  * Utility for outputting lines of CSV data to the data file specified by the user. 
  * @author Mark Lalor
- * TODO: Do not use Main.DATA_FILE, have that File be passed through the constructor instead.
  */
 public class Data
 {
-	private String lastLine = "";
+	/** Number of columns in each row of data before the hits of each space, besides the one of each die. */
+	public static final int FIXED_COLUMNS = 7;
+	
+	/** Holds the most recently written line, followed by a line separator. */
+	private RowEncoder row = new RowEncoder();
+	/** Writes the data in binary instead, or <code>null</code> if writing CSV data. */
+	private BinaryDataWriter binaryOut = null;
+	/** Reused to take the values of each binary row. */
+	private long[] values;
 	private Game game;
+	private File dataFile;
 	private BufferedWriter dataOut = null;
 	private int dataCount = 0;
+	private int dataInterval;
+	/** Writes the data on a background thread, or <code>null</code> if every line is written and flushed immediately. */
+	private AsyncDataWriter asyncOut = null;
+	//Only changed by the simulation thread, and read by others for monitoring.
+	private volatile long rowsWritten = 0;
+	private volatile long bytesWritten = 0;
 	
 	/**
 	 * Links the given {@link Game} and opens the data output writer.
 	 * <p>
 	 * The first line is written with the proper headings for the CSV data.
 	 * @param game The game to draw the data from.
+	 * @param dataFile The file to write the CSV data to, or <code>null</code> to write nothing.
+	 * @param dataInterval Writes a line only every <code>dataInterval</code> roll(s).
+	 * @param async <code>true</code> to write CSV data in batches on a background thread.
+	 * @param format The format to write the data in.
+	 * @param resumeOffset The length returned by {@link #sync()} to continue an existing data file from, or -1 to
+	 * start a new one.
 	 */
-	public Data(Game game)
+	public Data(Game game, File dataFile, int dataInterval, boolean async, DataFormat format, long resumeOffset)
 	{
-		if (Main.DATA_FILE == null)
+		if (dataFile == null)
 			return;
 		this.game = game;
+		this.dataFile = dataFile;
+		this.dataInterval = dataInterval;
 	    
 	    try
 		{
-			dataOut = new BufferedWriter(new FileWriter(Main.DATA_FILE));
-			dataOut.write("Rolls,Moves,Position,Doubles,Go Passes,Distance Moved,Die1,Die2,In Jail?,");
-			for (int i = 0; i < 40; i++)
-				dataOut.write(i + " (" + game.getBoard().getSpace(i).getName() + ")" + (i!=39?",":""));
-			dataOut.write(System.lineSeparator());
+	    	if (format == DataFormat.BINARY)
+	    	{
+	    		values = new long[getColumns(game.getBoard(), game.getRoll().getDiceCount())];
+	    		binaryOut = new BinaryDataWriter(dataFile, getColumnNames(game.getBoard(), game.getRoll().getDiceCount()), resumeOffset);
+	    		return;
+	    	}
+	    	
+	    	if (resumeOffset >= 0)
+	    	{
+	    		//Drop anything written after the checkpoint, then continue from there.
+	    		RandomAccessFile file = new RandomAccessFile(dataFile, "rw");
+	    		file.setLength(resumeOffset);
+	    		file.close();
+	    		dataOut = new BufferedWriter(new FileWriter(dataFile, true), async ? AsyncDataWriter.FLUSH_SIZE : 8192);
+	    	}
+	    	else
+	    	{
+	    		dataOut = new BufferedWriter(new FileWriter(dataFile), async ? AsyncDataWriter.FLUSH_SIZE : 8192);
+	    		dataOut.write(getHeader(game.getBoard(), game.getRoll().getDiceCount()));
+	    		dataOut.write(System.lineSeparator());
+	    	}
+			if (async)
+				asyncOut = new AsyncDataWriter(dataOut, dataFile);
 		}
 	    catch(IOException e)
 		{
@@ -48,45 +94,180 @@ public class Data
 		}
 	}
 	
+	/**
+	 * Creates the line of CSV headings naming each column of the data.
+	 * @param board The board to name the spaces from.
+	 * @param dice The number of dice rolled.
+	 * @return The CSV headings, without a line separator.
+	 */
+	public static String getHeader(Board board, int dice)
+	{
+		String[] names = getColumnNames(board, dice);
+		StringBuilder header = new StringBuilder();
+		for (int i = 0; i < names.length; i++)
+			header.append(names[i] + (i != names.length - 1 ? "," : ""));
+		return header.toString();
+	}
+	
+	/**
+	 * @param board The board the data is drawn from.
+	 * @param dice The number of dice rolled.
+	 * @return The number of columns in each row of data: the fixed ones, one for each die and one for each space.
+	 */
+	public static int getColumns(Board board, int dice)
+	{
+		return FIXED_COLUMNS + dice + board.size();
+	}
+	
+	/**
+	 * Names each column of the data.
+	 * @param board The board to name the spaces from.
+	 * @param dice The number of dice rolled, each named "Die1", "Die2" and so on.
+	 * @return The name of each column, in the order of {@link Game#snapshot(long[])}.
+	 */
+	public static String[] getColumnNames(Board board, int dice)
+	{
+		String[] names = new String[getColumns(board, dice)];
+		System.arraycopy(new String[] { "Rolls", "Moves", "Position", "Doubles", "Go Passes", "Distance Moved" }, 0, names, 0, FIXED_COLUMNS - 1);
+		for (int d = 0; d < dice; d++)
+			names[FIXED_COLUMNS - 1 + d] = "Die" + (d + 1);
+		names[FIXED_COLUMNS - 1 + dice] = "In Jail?";
+		for (int i = 0; i < board.size(); i++)
+			names[FIXED_COLUMNS + dice + i] = i + " (" + board.getSpace(i).getName() + ")";
+		return names;
+	}
+	
 	/**
 	 * Draws CSV data from the given {@link Game} and writes a line of it to end of the data output writer.
 	 */
 	public void writeLine()
 	{
-		if (Main.DATA_FILE == null)
+		if (dataOut == null && binaryOut == null)
 			return;
 		//Save a line of CSV data.
 		dataCount ++;
-		if (dataCount == Main.DATA_INTERVAL)
+		if (dataCount == dataInterval)
     	{
     		dataCount = 0;
-    		try
+    		write();
+    	}
+	}
+	
+	/**
+	 * Draws CSV data from the given {@link Game} and writes a line of it regardless of the data interval.
+	 */
+	public void write()
+	{
+		if (dataOut == null && binaryOut == null)
+			return;
+		try
+		{
+			if (binaryOut != null)
 			{
-    			lastLine = game.generateData();
-    			String val = lastLine + System.lineSeparator();
-				dataOut.write(val);
-				if (Main.DEBUGCSV) System.out.print(val);
-			    dataOut.flush();
+				game.snapshot(values);
+				binaryOut.write(values);
+				rowsWritten++;
+				return;
 			}
-    		catch(IOException e)
+			
+			row.reset();
+			game.encodeData(row);
+			row.append(System.lineSeparator());
+			rowsWritten++;
+			bytesWritten += row.getLength();
+			if (asyncOut != null)
 			{
-    			System.out.println("Failed to write to file!");
-				e.printStackTrace();
-				System.exit(1);
+				asyncOut.write(row.getChars(), 0, row.getLength());
+				return;
 			}
-    	}
+			
+			dataOut.write(row.getChars(), 0, row.getLength());
+			if (Main.DEBUGCSV) System.out.append(CharBuffer.wrap(row.getChars(), 0, row.getLength()));
+			DataFlushEvent event = FlightEvents.beginFlush();
+		    dataOut.flush();
+		    FlightEvents.endFlush(event, dataFile, row.getLength());
+		}
+		catch(IOException e)
+		{
+			System.out.println("Failed to write to file!");
+			e.printStackTrace();
+			System.exit(1);
+		}
 	}
 
+	/**
+	 * Makes sure that every line written so far has reached the data file.
+	 * @return The length of the data file, from which it can be continued.
+	 */
+	public long sync()
+	{
+		if (dataOut == null && binaryOut == null)
+			return -1;
+		try
+		{
+			if (binaryOut != null)
+				return binaryOut.sync();
+			
+			if (asyncOut != null)
+				asyncOut.sync();
+			else
+				dataOut.flush();
+			return dataFile.length();
+		}
+		catch(IOException e)
+		{
+			System.out.println("Failed to write to file!");
+			e.printStackTrace();
+			System.exit(1);
+			return -1;
+		}
+	}
+	
+	/**
+	 * @return The rows written since the data file was opened (or continued).
+	 */
+	public long getRowsWritten()
+	{
+		return rowsWritten;
+	}
+	
+	/**
+	 * @return The bytes of rows written since the data file was opened (or continued). Binary data is counted as it
+	 * reaches the file, header included, one block at a time.
+	 */
+	public long getBytesWritten()
+	{
+		return binaryOut != null ? binaryOut.getBytesWritten() : bytesWritten;
+	}
+	
+	/**
+	 * @return The number of rolls since the last line was written.
+	 */
+	public int getDataCount()
+	{
+		return dataCount;
+	}
+	
+	public void setDataCount(int dataCount)
+	{
+		this.dataCount = dataCount;
+	}
+	
 	/**
 	 * Closes the data output writer.
 	 */
 	public void close()
 	{
-		if (Main.DATA_FILE == null)
+		if (dataOut == null && binaryOut == null)
 			return;
 		try
 		{
-			dataOut.close();
+			if (binaryOut != null)
+				binaryOut.close();
+			else if (asyncOut != null)
+				asyncOut.close();
+			else
+				dataOut.close();
 		}
 	    catch(IOException e)
 		{
@@ -96,7 +277,8 @@ public class Data
 	}
 	
 	/**
-	 * Gets the {@link BufferedWriter} being used to output CSV data.
+	 * Gets the {@link BufferedWriter} being used to output CSV data. When writing asynchronously, it belongs to the
+	 * background thread and must not be written to.
 	 * @return a {@link BufferedWriter}.
 	 */
 	public BufferedWriter getDataOut()
@@ -106,10 +288,13 @@ public class Data
 	
 	/**
 	 * Gets the last line that was written to the {@link BufferedWriter}.
-	 * @return The most recently written line.
+	 * It may be read from another thread while a line is being written, and is then only part of a line.
+	 * @return The most recently written line, or an empty <code>String</code> when writing binary data.
 	 */
 	public String getLastLine()
 	{
-		return lastLine;
+		char[] chars = row.getChars();
+		int length = Math.min(row.getLength(), chars.length) - System.lineSeparator().length();
+		return length > 0 ? new String(chars, 0, length) : "";
 	}
 }
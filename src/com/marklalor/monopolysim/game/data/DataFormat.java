@@ -0,0 +1,20 @@
+package com.marklalor.monopolysim.game.data;
+
+/**
+ * The formats the simulation data can be saved in.
+ */
+public enum DataFormat
+{
+	/** Text, one comma separated line per row. */
+	CSV,
+	/** Compact binary columns, see {@link BinaryDataWriter}. */
+	BINARY;
+	
+	/**
+	 * @return The file extension of this format, including the dot.
+	 */
+	public String getExtension()
+	{
+		return this == CSV ? ".csv" : ".msim";
+	}
+}
@@ -0,0 +1,125 @@
+package com.marklalor.monopolysim.game.data;
+
+/**
+ * Reusable buffer that a line of CSV data is encoded into, digit by digit.
+ * <p>
+ * Numbers are converted to text without going through {@link String} or {@link StringBuilder}, so encoding a line
+ * allocates nothing once the buffer has grown to the length of a line.
+ */
+public class RowEncoder
+{
+	/** The tens and ones digits of every number from 0 to 99. */
+	private static final char[] TENS = new char[100], ONES = new char[100];
+	static
+	{
+		for (int i = 0; i < 100; i++)
+		{
+			TENS[i] = (char) ('0' + i / 10);
+			ONES[i] = (char) ('0' + i % 10);
+		}
+	}
+
+	private char[] chars = new char[512];
+	private int length = 0;
+
+	/**
+	 * Empties the buffer to encode a new line.
+	 */
+	public void reset()
+	{
+		length = 0;
+	}
+
+	private void ensureCapacity(int capacity)
+	{
+		if (capacity > chars.length)
+		{
+			char[] grown = new char[Math.max(capacity, chars.length * 2)];
+			System.arraycopy(chars, 0, grown, 0, length);
+			chars = grown;
+		}
+	}
+
+	public RowEncoder append(char c)
+	{
+		ensureCapacity(length + 1);
+		chars[length++] = c;
+		return this;
+	}
+
+	public RowEncoder append(boolean value)
+	{
+		return append(value ? "true" : "false");
+	}
+
+	public RowEncoder append(String value)
+	{
+		ensureCapacity(length + value.length());
+		value.getChars(0, value.length(), chars, length);
+		length += value.length();
+		return this;
+	}
+
+	/**
+	 * Appends the decimal digits of a number.
+	 * @param value The number to append.
+	 * @return This encoder.
+	 */
+	public RowEncoder append(long value)
+	{
+		if (value == Long.MIN_VALUE)
+			return append(Long.toString(value));
+		if (value < 0)
+		{
+			append('-');
+			value = -value;
+		}
+
+		//Count the digits, then fill them in from the last one, two at a time.
+		int digits = 1;
+		for (long bound = 10; digits < 19 && value >= bound; bound *= 10)
+			digits++;
+		ensureCapacity(length + digits);
+
+		int end = length + digits;
+		int i = end;
+		while (value >= 100)
+		{
+			int pair = (int) (value % 100);
+			value /= 100;
+			chars[--i] = ONES[pair];
+			chars[--i] = TENS[pair];
+		}
+		chars[--i] = ONES[(int) value];
+		if (value >= 10)
+			chars[--i] = TENS[(int) value];
+
+		length = end;
+		return this;
+	}
+
+	/**
+	 * @return The buffer holding the encoded characters. Only the first {@link #getLength()} are used.
+	 */
+	public char[] getChars()
+	{
+		return chars;
+	}
+
+	/**
+	 * @return The number of characters encoded.
+	 */
+	public int getLength()
+	{
+		return length;
+	}
+
+	/**
+	 * @return A new <code>String</code> of the characters encoded.
+	 */
+	@Override
+	public String toString()
+	{
+		return new String(chars, 0, length);
+	}
+}
@@ -0,0 +1,250 @@
+package com.marklalor.monopolysim.game.display;
+
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.awt.image.IndexColorModel;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageTypeSpecifier;
+import javax.imageio.ImageWriter;
+import javax.imageio.metadata.IIOMetadata;
+import javax.imageio.metadata.IIOMetadataNode;
+import javax.imageio.stream.ImageOutputStream;
+
+/**
+ * Streams frames into a single looping animated GIF, instead of saving one image file per frame.
+ * <p>
+ * Only the first frame is written in full. Each frame after it only holds the smallest rectangle containing every
+ * pixel that changed since the frame before, drawn over the previous frame, so a frame where a few spaces change
+ * color takes a few hundred bytes.
+ * <p>
+ * Each frame is shown for {@link #DELAY} for every <code>interval</code> rolls until the next frame, so frames that
+ * were dropped along the way leave the frame before them on screen for as long as they would have been shown, and the
+ * animation keeps the pace of the rolls. A frame is therefore only written once the next one is known, or the
+ * animation is flushed.
+ */
+public class AnimationWriter
+{
+	/** Time each frame is shown for, in hundredths of a second. */
+	public static final int DELAY = 10;
+	/** The longest delay a GIF frame can have. */
+	private static final int MAX_DELAY = 0xFFFF;
+	/** Ends a GIF file. */
+	private static final int TRAILER = 0x3B;
+	
+	private ImageWriter writer;
+	private ImageOutputStream out;
+	private long interval;
+	/** Pixels of the previous and current frames. */
+	private int[] previous = null, current = null;
+	/** The last frame, not yet written, or <code>null</code>. */
+	private IIOImage pending = null;
+	private IIOMetadataNode pendingRoot;
+	private long pendingRolls;
+	
+	/**
+	 * Opens the file and starts the animation.
+	 * @param file The file to write to. It is replaced if it exists.
+	 * @param interval The rolls between two frames.
+	 * @throws IOException If the file could not be opened or no GIF writer is available.
+	 */
+	public AnimationWriter(File file, long interval) throws IOException
+	{
+		this.interval = Math.max(1, interval);
+		if (file.exists() && !file.delete())
+			throw new IOException("Could not replace " + file + "!");
+		if (!ImageIO.getImageWritersByFormatName("gif").hasNext())
+			throw new IOException("No GIF writer available!");
+		writer = ImageIO.getImageWritersByFormatName("gif").next();
+		out = ImageIO.createImageOutputStream(file);
+		writer.setOutput(out);
+		writer.prepareWriteSequence(null);
+	}
+	
+	/**
+	 * Adds a frame to the end of the animation, and writes the frame before it.
+	 * @param image The frame. Every frame must have the same size.
+	 * @param rolls The rolls of the game the frame shows.
+	 * @throws IOException If the frame before could not be written.
+	 */
+	public void write(BufferedImage image, long rolls) throws IOException
+	{
+		int width = image.getWidth(), height = image.getHeight();
+		if (current == null)
+			current = new int[width * height];
+		image.getRGB(0, 0, width, height, current, 0, width);
+		
+		Rectangle changed = previous == null ? new Rectangle(0, 0, width, height) : getChanged(width, height);
+		//A frame must still be written to keep the timing, even if nothing changed.
+		if (changed == null)
+			changed = new Rectangle(0, 0, 1, 1);
+		//Copied rather than taken with getSubimage, whose offset into the image the GIF writer does not follow.
+		BufferedImage part = new BufferedImage(image.getColorModel(), image.getRaster().createCompatibleWritableRaster(changed.width, changed.height), false, null);
+		part.getRaster().setRect(-changed.x, -changed.y, image.getRaster());
+		
+		IIOMetadata metadata = writer.getDefaultImageMetadata(ImageTypeSpecifier.createFromRenderedImage(part), null);
+		String format = metadata.getNativeMetadataFormatName();
+		IIOMetadataNode root = (IIOMetadataNode) metadata.getAsTree(format);
+		
+		IIOMetadataNode descriptor = getNode(root, "ImageDescriptor");
+		descriptor.setAttribute("imageLeftPosition", Integer.toString(changed.x));
+		descriptor.setAttribute("imageTopPosition", Integer.toString(changed.y));
+		descriptor.setAttribute("imageWidth", Integer.toString(changed.width));
+		descriptor.setAttribute("imageHeight", Integer.toString(changed.height));
+		descriptor.setAttribute("interlaceFlag", "FALSE");
+		
+		//Keep the palette of an indexed image, which the writer would otherwise replace with its own.
+		if (part.getColorModel() instanceof IndexColorModel)
+			root.appendChild(getColorTable((IndexColorModel) part.getColorModel()));
+		
+		IIOMetadataNode control = getNode(root, "GraphicControlExtension");
+		control.setAttribute("disposalMethod", "doNotDispose");
+		control.setAttribute("userInputFlag", "FALSE");
+		control.setAttribute("transparentColorFlag", "FALSE");
+		control.setAttribute("transparentColorIndex", "0");
+		
+		if (previous == null)
+		{
+			//Loop forever.
+			IIOMetadataNode extension = new IIOMetadataNode("ApplicationExtension");
+			extension.setAttribute("applicationID", "NETSCAPE");
+			extension.setAttribute("authenticationCode", "2.0");
+			extension.setUserObject(new byte[] { 1, 0, 0 });
+			getNode(root, "ApplicationExtensions").appendChild(extension);
+		}
+		writePending(Math.max(1, (rolls - pendingRolls) / interval));
+		pending = new IIOImage(part, null, metadata);
+		pendingRoot = root;
+		pendingRolls = rolls;
+		
+		int[] swap = previous;
+		previous = current;
+		current = swap;
+	}
+	
+	/**
+	 * Writes the frame waiting for the next one, if any.
+	 * @param frames The number of frames it is shown for.
+	 */
+	private void writePending(long frames) throws IOException
+	{
+		if (pending == null)
+			return;
+		IIOMetadataNode control = getNode(pendingRoot, "GraphicControlExtension");
+		control.setAttribute("delayTime", Long.toString(Math.min(MAX_DELAY, DELAY * frames)));
+		IIOMetadata metadata = pending.getMetadata();
+		metadata.setFromTree(metadata.getNativeMetadataFormatName(), pendingRoot);
+		writer.writeToSequence(pending, null);
+		pending = null;
+		pendingRoot = null;
+	}
+	
+	/**
+	 * Writes every frame so far, the last one shown for {@link #DELAY}, and flushes them to the file, so that the
+	 * animation can be continued from this point (see {@link #finish(File, long)}).
+	 * @return The length of the file.
+	 * @throws IOException If the frames could not be written.
+	 */
+	public long flush() throws IOException
+	{
+		writePending(1);
+		out.flush();
+		return out.getStreamPosition();
+	}
+	
+	/**
+	 * Ends an animation that was left unfinished, cutting off any frames after the given length.
+	 * @param file The animation.
+	 * @param length A length returned by {@link #flush()}.
+	 * @throws IOException If the animation could not be cut or ended.
+	 */
+	public static void finish(File file, long length) throws IOException
+	{
+		RandomAccessFile animation = new RandomAccessFile(file, "rw");
+		try
+		{
+			if (animation.length() < length)
+				throw new IOException("The animation " + file + " is shorter than at the checkpoint!");
+			animation.setLength(length);
+			animation.seek(length);
+			animation.write(TRAILER);
+		}
+		finally
+		{
+			animation.close();
+		}
+	}
+	
+	/**
+	 * @return The bounds of the pixels that differ between the current and previous frames, or <code>null</code> if
+	 * none do.
+	 */
+	private Rectangle getChanged(int width, int height)
+	{
+		int left = width, right = -1, top = height, bottom = -1;
+		for (int y = 0; y < height; y++)
+		{
+			int row = y * width;
+			for (int x = 0; x < width; x++)
+			{
+				if (current[row + x] != previous[row + x])
+				{
+					left = Math.min(left, x);
+					right = Math.max(right, x);
+					top = Math.min(top, y);
+					bottom = y;
+				}
+			}
+		}
+		return right < 0 ? null : new Rectangle(left, top, right - left + 1, bottom - top + 1);
+	}
+	
+	/** Creates a local color table holding the colors of the model, padded to a power of two as GIF requires. */
+	private static IIOMetadataNode getColorTable(IndexColorModel model)
+	{
+		int size = 2;
+		while (size < model.getMapSize())
+			size *= 2;
+		IIOMetadataNode table = new IIOMetadataNode("LocalColorTable");
+		table.setAttribute("sizeOfLocalColorTable", Integer.toString(size));
+		table.setAttribute("sortFlag", "FALSE");
+		for (int i = 0; i < size; i++)
+		{
+			int rgb = i < model.getMapSize() ? model.getRGB(i) : 0;
+			IIOMetadataNode entry = new IIOMetadataNode("ColorTableEntry");
+			entry.setAttribute("index", Integer.toString(i));
+			entry.setAttribute("red", Integer.toString((rgb >> 16) & 0xFF));
+			entry.setAttribute("green", Integer.toString((rgb >> 8) & 0xFF));
+			entry.setAttribute("blue", Integer.toString(rgb & 0xFF));
+			table.appendChild(entry);
+		}
+		return table;
+	}
+	
+	/** Gets the child of the metadata tree with the given name, adding it if there is none. */
+	private static IIOMetadataNode getNode(IIOMetadataNode root, String name)
+	{
+		for (int i = 0; i < root.getLength(); i++)
+			if (root.item(i).getNodeName().equalsIgnoreCase(name))
+				return (IIOMetadataNode) root.item(i);
+		IIOMetadataNode node = new IIOMetadataNode(name);
+		root.appendChild(node);
+		return node;
+	}
+	
+	/**
+	 * Ends the animation and closes the file.
+	 * @throws IOException If the animation could not be ended or the file closed.
+	 */
+	public void close() throws IOException
+	{
+		writePending(1);
+		writer.endWriteSequence();
+		out.close();
+		writer.dispose();
+	}
+}
@@ -1,6 +1,9 @@
 package com.marklalor.monopolysim.game.display;
 
+import java.awt.Font;
 import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
 import java.awt.image.BufferedImage;
 import java.io.File;
 import java.io.IOException;
@@ -12,6 +15,9 @@ import com.marklalor.monopolysim.game.Game;
 /**
  * Contains a {@link BufferedImage} and {@link Graphics2D} object to generate and save a (low or high quality)
  * image from the data of the given {@link Game}
+ * <p>
+ * The image is a heatmap of the board: the spaces are laid out around a square of 11 by 11 cells, as on a real
+ * board, and colored by how often they have been landed on.
  * @author Mark Lalor
  */
 public abstract class Display
@@ -22,7 +28,11 @@ public abstract class Display
 	 */
 	public static int WIDTH, HEIGHT;
 	
+	/** Font of any text drawn on the image. */
+	protected static final Font FONT = new Font(Font.SANS_SERIF, Font.PLAIN, 10);
 	
+	/** Size of the image of this display, which may differ from that of the last display created. */
+	protected int width, height;
 	/** Whether the subclass is the high or low quality version. */
 	protected boolean hiQ;
 	/** For saving the Graphics2D data. */
@@ -30,7 +40,7 @@ public abstract class Display
 	/** For drawing the data contained within the Game instance. */
 	protected Graphics2D graphics;
 	/** For providing the data needed to draw the image. */
-	protected Game game;
+	protected Frame frame;
 	
 	/**
 	 * Creates a new Display with the image provided by {@link #createImage()} and
@@ -40,8 +50,10 @@ public abstract class Display
 	public Display()
 	{
 		image = createImage();
-		WIDTH = image.getWidth();
-		HEIGHT = image.getHeight();
+		width = image.getWidth();
+		height = image.getHeight();
+		WIDTH = width;
+		HEIGHT = height;
 	}
 	
 	public Graphics2D getGraphics()
@@ -59,6 +71,46 @@ public abstract class Display
 		return !hiQ;
 	}
 	
+	public BufferedImage getImage()
+	{
+		return image;
+	}
+	
+	/**
+	 * Gets the area of a space on the board, which takes up the left, square part of the image. "Go" is in the
+	 * bottom right corner and the positions go clockwise from there, a quarter of the board along each side.
+	 * @param position The position of the space.
+	 * @return The bounds of the space, in pixels.
+	 */
+	protected Rectangle getBounds(int position)
+	{
+		//Spaces between corners, 10 on the standard board.
+		int side = (frame.getBoard().size() + 3) / 4;
+		int cell = height / (side + 1);
+		int column, row;
+		if (position <= side)
+		{
+			column = side - position;
+			row = side;
+		}
+		else if (position <= 2 * side)
+		{
+			column = 0;
+			row = 2 * side - position;
+		}
+		else if (position <= 3 * side)
+		{
+			column = position - 2 * side;
+			row = 0;
+		}
+		else
+		{
+			column = side;
+			row = position - 3 * side;
+		}
+		return new Rectangle(column * cell, row * cell, cell, cell);
+	}
+	
 	/**
 	 * Draws the <code>Graphics</code> instance onto the <code>BufferedImage</code> instance 
 	 * and then saves it to the given <code>File</code>
@@ -69,10 +121,7 @@ public abstract class Display
 	{
 		try
 		{
-			//Draw the graphics into the BufferedImage.
-			graphics.drawImage(image, null, 0, 0);
 			//Save the BufferedImage into the file.
-			//image.flush(); TODO: try flushing.
 			ImageIO.write(image, "png", file);
 		}
 		catch(IOException e)
@@ -90,25 +139,130 @@ public abstract class Display
 		return true;
 	}
 	
+	/**
+	 * Adds the <code>BufferedImage</code> instance as the next frame of an animation.
+	 * @param animation The animation to add the image to.
+	 * @return <code>true</code> if the frame was written successfully, <code>false</code> otherwise.
+	 */
+	public boolean append(AnimationWriter animation)
+	{
+		try
+		{
+			animation.write(image, frame.getRolls());
+		}
+		catch(IOException e)
+		{
+			System.out.println("Could not write to the animation!");
+			e.printStackTrace();
+			return false;
+		}
+		finally
+		{
+			//Make sure the graphics is always disposed of.
+			graphics.dispose();
+		}
+		
+		return true;
+	}
+	
 	//Abstract methods.
 	/**
 	 * Generates a new {@link BufferedImage} for this <code>Display</code>.
 	 * @return The {@link BufferedImage} to represent this <code>Display</code>.
 	 */
 	protected abstract BufferedImage createImage();
+	/**
+	 * Draws a single space of the board, with the mark of the current position if the player is on it.
+	 * @param i The position of the space.
+	 */
+	protected abstract void drawSpace(int i);
+	/**
+	 * Draws the key and counters beside the board, over whatever was there before.
+	 */
+	protected abstract void drawKey();
+	
 	/**
 	 * Draws the current {@link Game} data onto the <code>Graphics2D graphics</code>.
 	 */
-	public abstract void draw();
+	public void draw()
+	{
+		graphics.setColor(java.awt.Color.WHITE);
+		graphics.fillRect(0, 0, width, height);
+		for (int i = 0; i < frame.getBoard().size(); i++)
+			drawSpace(i);
+		drawKey();
+	}
 	
 	/**
-	 * Draws the data on the display from the data in the given {@link Game}
-	 * @param game {@link Game} instance with the data to render.
+	 * Draws the data on the display from the data in the given {@link Frame}
+	 * @param frame {@link Frame} copied from the {@link Game} with the data to render.
 	 */
-	public void draw(Game game)
+	public void draw(Frame frame)
 	{
-		this.game = game;
-		this.graphics = image.createGraphics();
+		this.frame = frame;
+		createGraphics();
 		this.draw();
 	}
+	
+	/**
+	 * Redraws only the given spaces and the key, leaving the rest of the image as it was.
+	 * @param frame {@link Frame} copied from the {@link Game} with the data to render.
+	 * @param spaces Whether each space should be redrawn.
+	 */
+	public void draw(Frame frame, boolean[] spaces)
+	{
+		this.frame = frame;
+		createGraphics();
+		for (int i = 0; i < spaces.length; i++)
+			if (spaces[i])
+				drawSpace(i);
+		drawKey();
+		graphics.dispose();
+	}
+	
+	/**
+	 * Makes the given {@link Frame} the current one without drawing it, such as to compare {@link #getLook(int)} of
+	 * each space against how it was last drawn.
+	 * @param frame {@link Frame} copied from the {@link Game} with the data to render.
+	 */
+	public void setFrame(Frame frame)
+	{
+		this.frame = frame;
+	}
+	
+	private void createGraphics()
+	{
+		this.graphics = image.createGraphics();
+		graphics.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+		graphics.setFont(FONT);
+	}
+	
+	/**
+	 * @param i The position of the space.
+	 * @return The shade of heat the space is drawn with, from 0 to 255.
+	 */
+	protected int getShade(int i)
+	{
+		return (int) (frame.getHeat(i) * 255);
+	}
+	
+	/**
+	 * @param i The position of the space.
+	 * @return The share of the hits of the space, in tenths of a percent.
+	 */
+	protected long getPermille(int i)
+	{
+		return frame.getTotalHits() == 0 ? 0 : frame.getHits(i) * 1000 / frame.getTotalHits();
+	}
+	
+	/**
+	 * Sums up how a space is shown in the current frame: its heat, its share of the hits to a tenth of a percent and
+	 * whether the player is on it. A space only needs to be redrawn when this changes.
+	 * @param i The position of the space.
+	 * @return A value that differs whenever the space would look different.
+	 */
+	public long getLook(int i)
+	{
+		return (long) getShade(i) << 32 | getPermille(i) << 1 | (frame.getPosition() == i ? 1 : 0);
+	}
 }
@@ -1,13 +1,83 @@
 package com.marklalor.monopolysim.game.display;
 
+import java.awt.FontMetrics;
+import java.awt.GradientPaint;
+import java.awt.Rectangle;
 import java.awt.image.BufferedImage;
 
+import com.marklalor.monopolysim.game.space.Space;
+import com.marklalor.monopolysim.game.space.property.Property;
+
+/**
+ * Draws the heatmap in full color, fading each space from white to red by how often it has been landed on, with
+ * the color of each property and the percentage of hits of each space.
+ */
 public class DisplayHQ extends Display
 {
+	private static final java.awt.Color COLD = Palette.WHITE, HOT = Palette.RED;
+	
+	@Override
+	protected void drawSpace(int i)
+	{
+		FontMetrics metrics = graphics.getFontMetrics();
+		Rectangle bounds = getBounds(i);
+		graphics.setColor(heat(getShade(i) / 255.0));
+		graphics.fill(bounds);
+		
+		//A band of the color of the property along its top.
+		Space space = frame.getBoard().getSpace(i);
+		if (space instanceof Property)
+		{
+			graphics.setColor(Palette.get(((Property) space).getColor()));
+			graphics.fillRect(bounds.x, bounds.y, bounds.width, bounds.height / 4);
+		}
+		
+		graphics.setColor(Palette.BLACK);
+		graphics.draw(bounds);
+		long permille = getPermille(i);
+		String percent = permille / 10 + "." + permille % 10;
+		graphics.drawString(percent, bounds.x + (bounds.width - metrics.stringWidth(percent)) / 2, bounds.y + bounds.height - 4);
+		
+		//Mark the current position.
+		if (frame.getPosition() == i)
+		{
+			graphics.setColor(Palette.BLUE);
+			graphics.fillOval(bounds.x + bounds.width / 3, bounds.y + bounds.height / 3, bounds.width / 3, bounds.height / 3);
+		}
+	}
+	
 	@Override
-	public void draw()
+	protected void drawKey()
+	{
+		//Counters and key beside the board.
+		int x = height + 20;
+		graphics.setColor(Palette.WHITE);
+		graphics.fillRect(height, 0, width - height, height);
+		graphics.setColor(Palette.BLACK);
+		graphics.drawString("Rolls: " + frame.getRolls(), x, 20);
+		graphics.drawString("Moves: " + frame.getMoves(), x, 36);
+		graphics.drawString("Doubles: " + frame.getDoubles(), x, 52);
+		graphics.drawString("Go passes: " + frame.getGoPasses(), x, 68);
+		graphics.drawString("Distance moved: " + frame.getDistanceMoved(), x, 84);
+		graphics.drawString("Most hits: " + frame.getMaxHits() + (frame.isInJail() ? " (in jail)" : ""), x, 100);
+		graphics.setPaint(new GradientPaint(x, 120, HOT, x, height - 20, COLD));
+		graphics.fillRect(x, 120, 20, height - 140);
+		graphics.setColor(Palette.BLACK);
+		graphics.drawRect(x, 120, 20, height - 140);
+		graphics.drawString("Most", x + 26, 130);
+		graphics.drawString("Least", x + 26, height - 20);
+	}
+	
+	/**
+	 * @param intensity A value from 0 (never landed on) to 1 (the most landed on space).
+	 * @return The color of the space.
+	 */
+	private static java.awt.Color heat(double intensity)
 	{
-		// TODO draw on HQ graphics;
+		return new java.awt.Color(
+			(int) (COLD.getRed() + (HOT.getRed() - COLD.getRed()) * intensity),
+			(int) (COLD.getGreen() + (HOT.getGreen() - COLD.getGreen()) * intensity),
+			(int) (COLD.getBlue() + (HOT.getBlue() - COLD.getBlue()) * intensity));
 	}
 
 	@Override
@@ -1,20 +1,62 @@
 package com.marklalor.monopolysim.game.display;
 
+import java.awt.Rectangle;
 import java.awt.image.BufferedImage;
 
-import com.marklalor.monopolysim.game.space.property.Color;
 
+/**
+ * Draws the heatmap with the 10 colors of the indexed {@link Palette#model}, so that every space falls into one of a
+ * few bands of heat.
+ */
 public class DisplayLQ extends Display
 {
+	/** Colors of the bands of heat, from the least landed on space to the most. */
+	private static final java.awt.Color[] HEAT = { Palette.WHITE, Palette.YELLOW, Palette.ORANGE, Palette.RED, Palette.SADDLE_BROWN };
+	
 	@Override
-	public void draw()
+	protected void drawSpace(int i)
 	{
-		// TODO draw on LQ graphics;
+		Rectangle bounds = getBounds(i);
+		graphics.setColor(HEAT[getShade(i)]);
+		graphics.fill(bounds);
+		graphics.setColor(Palette.BLACK);
+		graphics.draw(bounds);
+		
+		//Mark the current position.
+		if (frame.getPosition() == i)
+		{
+			graphics.setColor(Palette.BLUE);
+			graphics.fillRect(bounds.x + bounds.width / 3, bounds.y + bounds.height / 3, bounds.width / 3, bounds.height / 3);
+		}
+	}
+	
+	/**
+	 * @return The band of heat of the space, an index into {@link #HEAT}.
+	 */
+	@Override
+	protected int getShade(int i)
+	{
+		return (int) Math.round(frame.getHeat(i) * (HEAT.length - 1));
+	}
+	
+	@Override
+	protected void drawKey()
+	{
+		//Key of the bands, beside the board.
+		int x = height + 10;
+		int size = height / 11;
+		for (int i = 0; i < HEAT.length; i++)
+		{
+			graphics.setColor(HEAT[HEAT.length - 1 - i]);
+			graphics.fillRect(x, 10 + i * size, size, size);
+			graphics.setColor(Palette.BLACK);
+			graphics.drawRect(x, 10 + i * size, size, size);
+		}
 	}
 
 	@Override
 	protected BufferedImage createImage()
 	{
-		return new BufferedImage(300, 200, BufferedImage.TYPE_BYTE_INDEXED, Color.model);
+		return new BufferedImage(300, 200, BufferedImage.TYPE_BYTE_INDEXED, Palette.model);
 	}
 }
@@ -0,0 +1,164 @@
+package com.marklalor.monopolysim.game.display;
+
+import com.marklalor.monopolysim.game.Board;
+import com.marklalor.monopolysim.game.Game;
+
+/**
+ * A copy of the state of a {@link Game} that a {@link Display} draws from, so that the game can carry on while
+ * the frame is rendered on another thread.
+ * <p>
+ * A frame may be filled again with {@link #update(Game)}, so that a live view can reuse the same frames.
+ */
+public class Frame
+{
+	private Board board;
+	private long rolls;
+	private long moves;
+	private long doubles;
+	private long goPasses;
+	private long distanceMoved;
+	private int position;
+	private boolean inJail;
+	private long[] hits;
+	private long totalHits;
+	private long maxHits;
+	/** Range of hits that {@link #getHeat(int)} spreads from 0 to 1. */
+	private long heatMin, heatMax;
+	
+	/**
+	 * Copies the state of the game.
+	 * @param game The game to copy.
+	 */
+	public Frame(Game game)
+	{
+		this(game.getBoard());
+		update(game);
+	}
+	
+	/**
+	 * Creates an empty frame, to be filled with {@link #update(Game)}.
+	 * @param board The board of the game.
+	 */
+	public Frame(Board board)
+	{
+		this.board = board;
+		this.hits = new long[board.size()];
+	}
+	
+	/**
+	 * Copies the current state of the game into this frame.
+	 * @param game The game to copy.
+	 */
+	public void update(Game game)
+	{
+		this.rolls = game.getRolls();
+		this.moves = game.getMoves();
+		this.doubles = game.getDoubles();
+		this.goPasses = game.getGoPasses();
+		this.distanceMoved = game.getDistanceMoved();
+		this.position = game.getPosition();
+		this.inJail = board.getJail().isInJail();
+		
+		//The jail, which is landed on several times more often than any other space, and "Go To Jail", which is
+		//never landed on, are left out of the range of heat, as they would otherwise leave the rest of the board
+		//looking the same.
+		int jail = board.getJail().getPosition();
+		totalHits = 0;
+		maxHits = 0;
+		heatMin = Long.MAX_VALUE;
+		heatMax = 0;
+		for (int i = 0; i < hits.length; i++)
+		{
+			hits[i] = board.getSpace(i).getHits();
+			totalHits += hits[i];
+			maxHits = Math.max(maxHits, hits[i]);
+			if (i == jail || board.getType(i) == Board.GO_TO_JAIL)
+				continue;
+			heatMin = Math.min(heatMin, hits[i]);
+			heatMax = Math.max(heatMax, hits[i]);
+		}
+	}
+	
+	/**
+	 * Gets the board of the game. Only the names, positions and colors of its spaces may be read, since its hits
+	 * keep changing.
+	 * @return The board.
+	 */
+	public Board getBoard()
+	{
+		return board;
+	}
+	
+	public long getRolls()
+	{
+		return rolls;
+	}
+	
+	public long getMoves()
+	{
+		return moves;
+	}
+	
+	public long getDoubles()
+	{
+		return doubles;
+	}
+	
+	public long getGoPasses()
+	{
+		return goPasses;
+	}
+	
+	public long getDistanceMoved()
+	{
+		return distanceMoved;
+	}
+	
+	public int getPosition()
+	{
+		return position;
+	}
+	
+	public boolean isInJail()
+	{
+		return inJail;
+	}
+	
+	/**
+	 * @param i The position of the space.
+	 * @return The number of times the space had been landed on.
+	 */
+	public long getHits(int i)
+	{
+		return hits[i];
+	}
+	
+	/**
+	 * @return The largest number of hits of any space.
+	 */
+	public long getMaxHits()
+	{
+		return maxHits;
+	}
+	
+	/**
+	 * @return The total number of hits of every space.
+	 */
+	public long getTotalHits()
+	{
+		return totalHits;
+	}
+	
+	/**
+	 * Gets how hot a space is compared to the others, from the least to the most landed on space, leaving out the
+	 * jail and "Go To Jail".
+	 * @param i The position of the space.
+	 * @return A value from 0 to 1.
+	 */
+	public double getHeat(int i)
+	{
+		if (heatMax <= heatMin)
+			return 0;
+		return Math.max(0, Math.min(1, (double) (hits[i] - heatMin) / (heatMax - heatMin)));
+	}
+}
@@ -0,0 +1,61 @@
+package com.marklalor.monopolysim.game.display;
+
+import com.marklalor.monopolysim.game.Game;
+
+/**
+ * Hands frames of a running {@link Game} to a live view without locks, and without copying the game on every turn.
+ * <p>
+ * Two frames are kept. The view asks for a frame with {@link #request()}; on its next turn the simulation copies the
+ * game into the frame the view is not using and publishes it. Until then {@link #offer(Game)} costs the simulation a
+ * single volatile read. The view may read the published frame until it asks for the next one.
+ */
+public class FrameExchange
+{
+	private Frame[] frames = new Frame[2];
+	/** Index of the frame last published, or -1 before the first one. */
+	private volatile int published = -1;
+	/** True while the view is waiting for a new frame. */
+	private volatile boolean requested = true;
+	
+	/**
+	 * @param game The game the frames are copied from.
+	 */
+	public FrameExchange(Game game)
+	{
+		frames[0] = new Frame(game.getBoard());
+		frames[1] = new Frame(game.getBoard());
+	}
+	
+	/**
+	 * Publishes a copy of the game if the view has asked for one. Called by the simulation thread after each turn.
+	 * @param game The game to copy.
+	 */
+	public void offer(Game game)
+	{
+		if (!requested)
+			return;
+		int back = published == 0 ? 1 : 0;
+		frames[back].update(game);
+		published = back;
+		requested = false;
+	}
+	
+	/**
+	 * Gets the newest frame, if one was published since the last {@link #request()}.
+	 * @return The frame, or <code>null</code> if the simulation has not answered the last request yet.
+	 */
+	public Frame poll()
+	{
+		if (requested)
+			return null;
+		return frames[published];
+	}
+	
+	/**
+	 * Asks the simulation for a new frame. The frame returned by {@link #poll()} must no longer be read.
+	 */
+	public void request()
+	{
+		requested = true;
+	}
+}
@@ -0,0 +1,20 @@
+package com.marklalor.monopolysim.game.display;
+
+/**
+ * The ways the images of the board can be saved.
+ */
+public enum ImageFormat
+{
+	/** One PNG image per frame, in a folder. */
+	PNG,
+	/** Every frame in a single animated GIF, see {@link AnimationWriter}. */
+	GIF;
+	
+	/**
+	 * @return The extension of the file the images are saved to, including the dot, or an empty string for a folder.
+	 */
+	public String getExtension()
+	{
+		return this == GIF ? ".gif" : "";
+	}
+}
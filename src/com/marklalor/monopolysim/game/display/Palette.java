@@ -0,0 +1,62 @@
+package com.marklalor.monopolysim.game.display;
+
+import java.awt.image.IndexColorModel;
+
+import com.marklalor.monopolysim.game.space.property.Color;
+
+/**
+ * The {@link java.awt.Color} behind each of the monopoly {@link Color colors}, kept apart from them so that only
+ * drawing a board loads <code>java.awt</code>.
+ * <p>
+ * Also creates a {@link java.awt.image.IndexColorModel} of all the colors.
+ */
+public final class Palette
+{
+	public static final java.awt.Color
+		SADDLE_BROWN = new java.awt.Color(Color.SADDLE_BROWN),
+		SKY_BLUE = new java.awt.Color(Color.SKY_BLUE),
+		DARK_ORCHID = new java.awt.Color(Color.DARK_ORCHID),
+		ORANGE = new java.awt.Color(Color.ORANGE),
+		RED = new java.awt.Color(Color.RED),
+		YELLOW = new java.awt.Color(Color.YELLOW),
+		GREEN = new java.awt.Color(Color.GREEN),
+		BLUE = new java.awt.Color(Color.BLUE),
+		BLACK = new java.awt.Color(Color.BLACK),
+		WHITE = new java.awt.Color(Color.WHITE);
+	
+	/**
+	 * 10-color model for saving low-quality PNG images using an indexed color palette. Reducing the possible colors from 256^3 (16.777216 million colors) to only 10.
+	 */
+	public static final IndexColorModel model;
+	//Creates the static IndexColorModel.
+	static
+	{
+		//Store some RGB values.
+	    byte[] reds = new byte[Color.amount];
+	    byte[] greens = new byte[Color.amount];
+	    byte[] blues = new byte[Color.amount];
+	    
+	    for (int i = 0; i < Color.amount; i++)
+	    {
+	    	reds[i] = (byte) (Color.ALL[i] >> 16);
+	    	greens[i] = (byte) (Color.ALL[i] >> 8);
+	    	blues[i] = (byte) Color.ALL[i];
+	    }
+	    
+	    //Create the color model from the RGB data.
+	    model = new IndexColorModel(4, Color.amount, reds, greens, blues);
+	}
+	
+	private Palette()
+	{
+	}
+	
+	/**
+	 * @param rgb The RGB value of a color, such as the color of a property.
+	 * @return The color.
+	 */
+	public static java.awt.Color get(int rgb)
+	{
+		return new java.awt.Color(rgb);
+	}
+}
@@ -0,0 +1,278 @@
+package com.marklalor.monopolysim.game.display;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.marklalor.monopolysim.Main;
+import com.marklalor.monopolysim.game.Game;
+import com.marklalor.monopolysim.game.metrics.FlightEvents;
+import com.marklalor.monopolysim.game.metrics.ImageSaveEvent;
+
+/**
+ * Saves an image of the board every <code>imageInterval</code> roll(s), to the image folder or animation specified
+ * by the user.
+ * <p>
+ * The game is only copied into a {@link Frame} on the simulation thread. Drawing and PNG encoding happen on a small
+ * pool of worker threads, each with its own {@link Display}. An animation is written by a single worker instead, so
+ * that its frames stay in order. When every worker is busy and the queue of frames is full, new frames are dropped
+ * rather than holding up the simulation. An animation shows the frame before the dropped ones for as long as they would
+ * have been shown (see {@link AnimationWriter}).
+ */
+public class Renderer
+{
+	/** Number of worker threads drawing and encoding frames. */
+	public static final int THREADS = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() / 2));
+	/** Number of frames that may wait for a free worker. */
+	public static final int QUEUE_SIZE = 2 * THREADS;
+	
+	private Game game;
+	private File folder;
+	/** The animation the frames are added to, or <code>null</code> if saving one PNG image per frame. */
+	private AnimationWriter animation = null;
+	private int imageInterval;
+	private int imageCount = 0;
+	private ThreadPoolExecutor pool = null;
+	private ThreadLocal<Display> displays;
+	private AtomicLong dropped = new AtomicLong();
+	private AtomicLong saved = new AtomicLong();
+	/** The most recent frame, if it was dropped, so that the final state of the board is always saved. */
+	private Frame lastDropped = null;
+	
+	/**
+	 * @param game The game to draw.
+	 * @param folder The folder to save the images to (or the animation file for {@link ImageFormat#GIF}), or
+	 * <code>null</code> to save nothing.
+	 * @param imageInterval Saves an image only every <code>imageInterval</code> roll(s).
+	 * @param highQuality <code>true</code> to draw with {@link DisplayHQ}, <code>false</code> for {@link DisplayLQ}.
+	 * @param format The format to save the images in.
+	 */
+	public Renderer(Game game, File folder, int imageInterval, final boolean highQuality, ImageFormat format)
+	{
+		if (folder == null || imageInterval <= 0)
+			return;
+		this.game = game;
+		this.folder = folder;
+		this.imageInterval = imageInterval;
+		
+		int threads = THREADS;
+		if (format == ImageFormat.GIF)
+		{
+			//A folder chosen by the user holds the animation.
+			if (folder.isDirectory())
+				this.folder = new File(folder, "board" + format.getExtension());
+			try
+			{
+				animation = new AnimationWriter(this.folder, imageInterval);
+			}
+			catch(IOException e)
+			{
+				System.out.println("Could not open the animation file!");
+				e.printStackTrace();
+				System.exit(1);
+			}
+			threads = 1;
+		}
+		else if (!folder.isDirectory() && !folder.mkdirs())
+		{
+			System.out.println("Could not create the image folder!");
+			System.exit(1);
+		}
+		
+		displays = new ThreadLocal<Display>()
+		{
+			@Override
+			protected Display initialValue()
+			{
+				return highQuality ? new DisplayHQ() : new DisplayLQ();
+			}
+		};
+		pool = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<Runnable>(QUEUE_SIZE), new ThreadFactory()
+		{
+			private AtomicInteger count = new AtomicInteger();
+			
+			@Override
+			public Thread newThread(Runnable r)
+			{
+				Thread thread = new Thread(r, "Image Renderer " + count.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		//Started now so that sync() can queue work for them.
+		pool.prestartAllCoreThreads();
+	}
+	
+	/**
+	 * Copies the game into a frame to be saved if <code>imageInterval</code> rolls have passed since the last one.
+	 */
+	public void writeFrame()
+	{
+		if (pool == null)
+			return;
+		imageCount ++;
+		if (imageCount == imageInterval)
+		{
+			imageCount = 0;
+			submit(new Frame(game));
+		}
+	}
+	
+	/**
+	 * Hands a frame to the workers to be drawn and saved, or drops it if they are too far behind.
+	 * @param frame The frame to save.
+	 */
+	public void submit(final Frame frame)
+	{
+		if (pool == null)
+			return;
+		if (pool.getQueue().remainingCapacity() == 0)
+		{
+			dropped.incrementAndGet();
+			lastDropped = frame;
+			if (Main.DEBUG) System.out.println("Dropped the image of roll " + frame.getRolls() + ".");
+			return;
+		}
+		lastDropped = null;
+		pool.execute(new Runnable()
+		{
+			@Override
+			public void run()
+			{
+				render(frame);
+			}
+		});
+	}
+	
+	private void render(Frame frame)
+	{
+		ImageSaveEvent event = FlightEvents.beginImageSave();
+		Display display = displays.get();
+		display.draw(frame);
+		File file = animation != null ? folder : new File(folder, frame.getRolls() + ".png");
+		boolean success = animation != null ? display.append(animation) : display.save(file);
+		if (success)
+			saved.incrementAndGet();
+		FlightEvents.endImageSave(event, file, frame.getRolls(), success);
+	}
+	
+	/**
+	 * Waits for the frames already handed to the worker to be added to the animation, and flushes it.
+	 * @return The length of the animation, from which it can be continued, or -1 if no animation is written.
+	 * @throws IOException If the animation could not be written.
+	 */
+	public long sync() throws IOException
+	{
+		if (animation == null)
+			return -1;
+		//The animation has a single worker, which takes the frames in order.
+		FutureTask<Long> flush = new FutureTask<Long>(new Callable<Long>()
+		{
+			@Override
+			public Long call() throws IOException
+			{
+				return animation.flush();
+			}
+		});
+		try
+		{
+			pool.getQueue().put(flush);
+			return flush.get();
+		}
+		catch(InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+			throw new IOException("Interrupted while flushing the animation!", e);
+		}
+		catch(ExecutionException e)
+		{
+			throw new IOException("Could not flush the animation!", e.getCause());
+		}
+	}
+	
+	/**
+	 * @return The animation file or image folder, or <code>null</code> if nothing is saved.
+	 */
+	public File getFile()
+	{
+		return folder;
+	}
+	
+	/**
+	 * @return The rolls since the last frame was taken.
+	 */
+	public int getImageCount()
+	{
+		return imageCount;
+	}
+	
+	/**
+	 * @param imageCount The rolls since the last frame was taken, to keep taking frames at the same rolls on resuming.
+	 */
+	public void setImageCount(int imageCount)
+	{
+		this.imageCount = imageCount;
+	}
+	
+	/**
+	 * @return The number of images saved so far.
+	 */
+	public long getSaved()
+	{
+		return saved.get();
+	}
+	
+	/**
+	 * @return The number of frames dropped because the workers were too far behind.
+	 */
+	public long getDropped()
+	{
+		return dropped.get();
+	}
+	
+	/**
+	 * Waits for the frames already handed to the workers to be saved, then stops the workers and ends the animation.
+	 * The last frame is saved even if it was dropped.
+	 */
+	public void close()
+	{
+		if (pool == null)
+			return;
+		pool.shutdown();
+		try
+		{
+			pool.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+		}
+		catch(InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+		}
+		if (lastDropped != null)
+		{
+			render(lastDropped);
+			dropped.decrementAndGet();
+		}
+		if (animation != null)
+		{
+			try
+			{
+				animation.close();
+			}
+			catch(IOException e)
+			{
+				System.out.println("Could not close the animation!");
+				e.printStackTrace();
+			}
+		}
+		if (dropped.get() > 0)
+			System.out.println("Dropped " + dropped.get() + " image(s) that could not be saved fast enough.");
+	}
+}
@@ -0,0 +1,213 @@
+package com.marklalor.monopolysim.game.display;
+
+import java.awt.Dimension;
+import java.awt.DisplayMode;
+import java.awt.Graphics;
+import java.awt.GraphicsEnvironment;
+import java.awt.Rectangle;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+
+import javax.swing.JFrame;
+import javax.swing.JPanel;
+import javax.swing.SwingUtilities;
+import javax.swing.Timer;
+
+import com.marklalor.monopolysim.game.Game;
+
+/**
+ * Shows the board heatmap and the counters of a running {@link Game} in a window.
+ * <p>
+ * The viewer pulls a frame through a {@link FrameExchange} once per refresh of the screen, rather than being pushed
+ * one every turn, so the simulation is only slowed by the copy of the game at that rate. Only the spaces that look
+ * different from the last frame, and the counters, are redrawn and repainted.
+ */
+public class Viewer
+{
+	/** Rate the window is updated at when the refresh rate of the screen is not known. */
+	public static final int DEFAULT_REFRESH_RATE = 60;
+	
+	private FrameExchange exchange;
+	private Display display;
+	private JFrame window;
+	private JPanel panel;
+	private Timer timer;
+	/** How each space looked when last drawn, see {@link Display#getLook(int)}. */
+	private long[] looks;
+	private boolean[] changed;
+	private boolean first = true;
+	/** Whether the window was opened, set by the thread that created the viewer. */
+	private boolean opened = false;
+	
+	/**
+	 * Opens the window.
+	 * @param game The game to show.
+	 * @param highQuality <code>true</code> to draw with {@link DisplayHQ}, <code>false</code> for {@link DisplayLQ}.
+	 */
+	public Viewer(Game game, final boolean highQuality)
+	{
+		exchange = new FrameExchange(game);
+		looks = new long[game.getBoard().size()];
+		changed = new boolean[game.getBoard().size()];
+		try
+		{
+			SwingUtilities.invokeAndWait(new Runnable()
+			{
+				@Override
+				public void run()
+				{
+					open(highQuality);
+				}
+			});
+			opened = true;
+		}
+		catch(Exception e)
+		{
+			//The simulation goes on without the window.
+			System.out.println("Could not open the viewer!");
+			e.printStackTrace();
+		}
+	}
+	
+	private void open(boolean highQuality)
+	{
+		display = highQuality ? new DisplayHQ() : new DisplayLQ();
+		panel = new JPanel()
+		{
+			private static final long serialVersionUID = 1L;
+			
+			@Override
+			protected void paintComponent(Graphics g)
+			{
+				//Only the clipped area, the spaces that changed, is copied.
+				g.drawImage(display.getImage(), 0, 0, null);
+			}
+		};
+		panel.setPreferredSize(new Dimension(display.getImage().getWidth(), display.getImage().getHeight()));
+		
+		window = new JFrame("Monopoly Simulator");
+		window.setDefaultCloseOperation(JFrame.DISPOSE_ON_CLOSE);
+		window.addWindowListener(new WindowAdapter()
+		{
+			@Override
+			public void windowClosed(WindowEvent e)
+			{
+				timer.stop();
+			}
+		});
+		window.add(panel);
+		window.pack();
+		window.setResizable(false);
+		window.setVisible(true);
+		
+		timer = new Timer(1000 / getRefreshRate(), new ActionListener()
+		{
+			@Override
+			public void actionPerformed(ActionEvent e)
+			{
+				refresh();
+			}
+		});
+		timer.start();
+	}
+	
+	/**
+	 * @return The refresh rate of the screen, in Hz.
+	 */
+	private static int getRefreshRate()
+	{
+		DisplayMode mode = GraphicsEnvironment.getLocalGraphicsEnvironment().getDefaultScreenDevice().getDisplayMode();
+		int rate = mode.getRefreshRate();
+		return rate == DisplayMode.REFRESH_RATE_UNKNOWN ? DEFAULT_REFRESH_RATE : rate;
+	}
+	
+	/**
+	 * Draws the newest frame, if there is one, and asks for the next.
+	 */
+	private void refresh()
+	{
+		Frame frame = exchange.poll();
+		if (frame == null)
+			return;
+		
+		if (first)
+		{
+			display.draw(frame);
+			for (int i = 0; i < looks.length; i++)
+				looks[i] = display.getLook(i);
+			first = false;
+			exchange.request();
+			panel.repaint();
+			return;
+		}
+		
+		//Find what changed against the last frame before drawing it.
+		display.setFrame(frame);
+		for (int i = 0; i < looks.length; i++)
+		{
+			long look = display.getLook(i);
+			changed[i] = look != looks[i];
+			looks[i] = look;
+		}
+		display.draw(frame, changed);
+		exchange.request();
+		
+		for (int i = 0; i < changed.length; i++)
+			if (changed[i])
+				panel.repaint(display.getBounds(i));
+		int board = display.getImage().getHeight();
+		panel.repaint(new Rectangle(board, 0, display.getImage().getWidth() - board, board));
+	}
+	
+	/**
+	 * Publishes the state of the game if the window is waiting for it. Called by the simulation thread after each turn.
+	 * Does nothing if the window could not be opened.
+	 * @param game The game being shown.
+	 */
+	public void offer(Game game)
+	{
+		if (!opened)
+			return;
+		exchange.offer(game);
+	}
+	
+	/**
+	 * Publishes the final state of the game and keeps it on screen until the window is closed. Does nothing if the
+	 * window could not be opened.
+	 * @param game The game being shown.
+	 */
+	public void finish(Game game)
+	{
+		if (!opened)
+			return;
+		try
+		{
+			//Stop the refreshes first, so none can be reading a frame while the last one is published.
+			SwingUtilities.invokeAndWait(new Runnable()
+			{
+				@Override
+				public void run()
+				{
+					timer.stop();
+				}
+			});
+		}
+		catch(Exception e)
+		{
+			e.printStackTrace();
+		}
+		exchange.request();
+		exchange.offer(game);
+		SwingUtilities.invokeLater(new Runnable()
+		{
+			@Override
+			public void run()
+			{
+				refresh();
+				window.setTitle(window.getTitle() + " (finished)");
+			}
+		});
+	}
+}
@@ -0,0 +1,66 @@
+package com.marklalor.monopolysim.game.full;
+
+/**
+ * The {@link Strategy strategies} that come with the simulator.
+ */
+public enum BuiltInStrategy implements Strategy
+{
+	/** Buys everything it lands on, and builds and pays off mortgages while keeping {@link FullGame#RESERVE}. */
+	GREEDY,
+	/** Like {@link #GREEDY}, but keeps $500 back when buying as well as when building. */
+	CAUTIOUS,
+	/** Like {@link #GREEDY}, but never buys utilities. */
+	NO_UTILITIES,
+	/** Like {@link #GREEDY}, but never builds houses. */
+	NO_HOUSES;
+
+	private static final int CAUTIOUS_RESERVE = 500;
+
+	@Override
+	public String getName()
+	{
+		return toString().toLowerCase();
+	}
+
+	@Override
+	public boolean buy(FullGame game, int player, int position)
+	{
+		switch (this)
+		{
+			case CAUTIOUS:
+				return game.getCash(player) - game.getPrice(position) >= CAUTIOUS_RESERVE;
+			case NO_UTILITIES:
+				return !game.isUtility(position);
+			default:
+				return true;
+		}
+	}
+
+	@Override
+	public boolean unmortgage(FullGame game, int player, int position)
+	{
+		return game.getCash(player) - game.getUnmortgageCost(position) >= getReserve();
+	}
+
+	@Override
+	public boolean build(FullGame game, int player, int position)
+	{
+		return this != NO_HOUSES && game.getCash(player) - game.getHouseCost(position) >= getReserve();
+	}
+
+	private int getReserve()
+	{
+		return this == CAUTIOUS ? CAUTIOUS_RESERVE : FullGame.RESERVE;
+	}
+
+	/**
+	 * Finds a strategy by its name.
+	 * @param name The name, in any case.
+	 * @return The strategy.
+	 * @throws IllegalArgumentException If there is no strategy with that name.
+	 */
+	public static BuiltInStrategy forName(String name)
+	{
+		return valueOf(name.toUpperCase());
+	}
+}
@@ -0,0 +1,640 @@
+package com.marklalor.monopolysim.game.full;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import com.marklalor.monopolysim.game.Board;
+import com.marklalor.monopolysim.game.card.CardAction;
+import com.marklalor.monopolysim.game.space.Space;
+import com.marklalor.monopolysim.game.space.property.Property;
+import com.marklalor.monopolysim.game.space.special.Go;
+import com.marklalor.monopolysim.game.space.special.IncomeTax;
+import com.marklalor.monopolysim.game.space.special.Jail;
+import com.marklalor.monopolysim.game.space.special.LuxuryTax;
+import com.marklalor.monopolysim.game.space.special.Railroad;
+import com.marklalor.monopolysim.game.space.special.Utility;
+import com.marklalor.monopolysim.roll.random.RandomSource;
+
+/**
+ * Plays complete games of Monopoly between several players, with money, property ownership, rent, houses and
+ * bankruptcy.
+ * <p>
+ * Everything about the layout (prices, rents, color groups, card destinations) is read once from the {@link Board},
+ * and the state of a game is kept in a few flat arrays indexed by player or by position, which are reset rather than
+ * reallocated between games. The same instance can play any number of games, one after another.
+ * <p>
+ * Each seat follows a {@link Strategy}, which decides what to buy, which mortgages to pay off and where to build;
+ * the engine only offers what the player can afford. Houses are always built evenly on complete color groups. Players
+ * raise money by selling houses and then mortgaging properties when they owe more than they have, and a player who
+ * still cannot pay is bankrupt and hands what is left to their creditor. Cards that only move money, auctions, trades
+ * and the limited supply of houses are not played.
+ */
+public class FullGame
+{
+	/** Cash each player starts with. */
+	public static final int STARTING_CASH = 1500;
+	/** Turns of each player after which a game that nobody has won is a draw. */
+	public static final int MAX_ROUNDS = 1000;
+	/** Cash a player following the {@link BuiltInStrategy#GREEDY} strategy keeps back when building. */
+	public static final int RESERVE = 150;
+	/** Owner of a property nobody owns, and creditor of money owed to the bank. */
+	public static final int BANK = -1;
+	/** Houses on a property with a hotel. */
+	public static final int HOTEL = 5;
+
+	//Kinds of space, precomputed for each position.
+	private static final byte OTHER = 0, PROPERTY = 1, RAILROAD = 2, UTILITY = 3, TAX = 4, CHANCE = 5, COMMUNITY_CHEST = 6, GO_TO_JAIL = 7;
+
+	private Board board;
+	private RandomSource random;
+	private int size;
+	private int maxPlayers;
+
+	//The layout, read from the board.
+	private byte[] kind;
+	private int[] price;
+	private int[] houseCost;
+	/** Rent of each property with 0 to 5 houses, indexed by <code>position * 6 + houses</code>. */
+	private int[] rent;
+	private int[] tax;
+	/** Color group of each property, or -1. */
+	private int[] group;
+	/** Positions of the properties of each color group. */
+	private int[][] groups;
+	private int jail;
+
+	//The state of the current game.
+	private int players;
+	private Strategy[] strategies;
+	/** Every seat following {@link BuiltInStrategy#GREEDY}. */
+	private Strategy[] greedy;
+	private int[] position;
+	private int[] cash;
+	private boolean[] inJail;
+	private int[] jailTurns;
+	private boolean[] bankrupt;
+	private int alive;
+	private int[] owner;
+	private int[] houses;
+	private boolean[] mortgaged;
+	private int rounds;
+	//Kept up to date as properties change hands, so that rent and building need no scans of the board.
+	/** Player owning the whole of each color group, or {@link #BANK}. */
+	private int[] groupOwner;
+	private int[] railroadCount;
+	private int[] utilityCount;
+	private int[] mortgagedCount;
+
+	/**
+	 * @param board The board to play on. Its chance and community chest cards are drawn from.
+	 * @param random The source the dice are rolled with.
+	 * @param maxPlayers The most players any game will have.
+	 */
+	public FullGame(Board board, RandomSource random, int maxPlayers)
+	{
+		this.board = board;
+		this.random = random;
+		this.maxPlayers = maxPlayers;
+		this.size = board.size();
+
+		kind = new byte[size];
+		price = new int[size];
+		houseCost = new int[size];
+		rent = new int[size * (HOTEL + 1)];
+		tax = new int[size];
+		group = new int[size];
+		Arrays.fill(group, -1);
+		List<Integer> colors = new ArrayList<Integer>();
+		List<List<Integer>> members = new ArrayList<List<Integer>>();
+
+		for (int i = 0; i < size; i++)
+		{
+			Space space = board.getSpace(i);
+			if (space instanceof Property)
+			{
+				Property property = (Property) space;
+				kind[i] = PROPERTY;
+				price[i] = property.getPrice();
+				houseCost[i] = property.getHouseCost();
+				for (int h = 0; h <= HOTEL; h++)
+					rent[i * (HOTEL + 1) + h] = property.getRent(h);
+				int g = colors.indexOf(property.getColor());
+				if (g < 0)
+				{
+					g = colors.size();
+					colors.add(property.getColor());
+					members.add(new ArrayList<Integer>());
+				}
+				group[i] = g;
+				members.get(g).add(i);
+			}
+			else if (space instanceof Railroad)
+			{
+				kind[i] = RAILROAD;
+				price[i] = Railroad.PRICE;
+			}
+			else if (space instanceof Utility)
+			{
+				kind[i] = UTILITY;
+				price[i] = Utility.PRICE;
+			}
+			else if (space instanceof IncomeTax)
+			{
+				kind[i] = TAX;
+				tax[i] = IncomeTax.AMOUNT;
+			}
+			else if (space instanceof LuxuryTax)
+			{
+				kind[i] = TAX;
+				tax[i] = LuxuryTax.AMOUNT;
+			}
+			else if (board.getType(i) == Board.CHANCE)
+				kind[i] = CHANCE;
+			else if (board.getType(i) == Board.COMMUNITY_CHEST)
+				kind[i] = COMMUNITY_CHEST;
+			else if (board.getType(i) == Board.GO_TO_JAIL)
+				kind[i] = GO_TO_JAIL;
+			else
+				kind[i] = OTHER;
+		}
+		groups = new int[members.size()][];
+		for (int g = 0; g < groups.length; g++)
+			groups[g] = toArray(members.get(g));
+		jail = board.getJail().getPosition();
+
+		position = new int[maxPlayers];
+		cash = new int[maxPlayers];
+		inJail = new boolean[maxPlayers];
+		jailTurns = new int[maxPlayers];
+		bankrupt = new boolean[maxPlayers];
+		owner = new int[size];
+		houses = new int[size];
+		mortgaged = new boolean[size];
+		groupOwner = new int[groups.length];
+		railroadCount = new int[maxPlayers];
+		utilityCount = new int[maxPlayers];
+		mortgagedCount = new int[maxPlayers];
+		greedy = new Strategy[maxPlayers];
+		Arrays.fill(greedy, BuiltInStrategy.GREEDY);
+	}
+
+	private static int[] toArray(List<Integer> list)
+	{
+		int[] array = new int[list.size()];
+		for (int i = 0; i < array.length; i++)
+			array[i] = list.get(i);
+		return array;
+	}
+
+	/**
+	 * Plays a complete game where every player follows the {@link BuiltInStrategy#GREEDY} strategy. Seat 0 moves
+	 * first.
+	 * @param players The number of players, from 2 to the most given to the constructor.
+	 * @return The seat of the winner, or -1 if nobody had won after {@link #MAX_ROUNDS} rounds.
+	 */
+	public int play(int players)
+	{
+		return play(greedy, players);
+	}
+
+	/**
+	 * Plays a complete game with one player for each strategy. Seat 0 moves first.
+	 * @param strategies The strategy of each seat, from 2 to the most players given to the constructor.
+	 * @return The seat of the winner, or -1 if nobody had won after {@link #MAX_ROUNDS} rounds.
+	 */
+	public int play(Strategy... strategies)
+	{
+		return play(strategies, strategies.length);
+	}
+
+	private int play(Strategy[] strategies, int players)
+	{
+		if (players < 2 || players > maxPlayers)
+			throw new IllegalArgumentException("A game needs 2 to " + maxPlayers + " players!");
+		this.strategies = strategies;
+		reset(players);
+
+		for (rounds = 0; rounds < MAX_ROUNDS; rounds++)
+		{
+			for (int p = 0; p < players; p++)
+			{
+				if (bankrupt[p])
+					continue;
+				turn(p);
+				if (alive == 1)
+				{
+					rounds++;
+					return winner();
+				}
+			}
+		}
+		return -1;
+	}
+
+	private void reset(int players)
+	{
+		this.players = players;
+		this.alive = players;
+		for (int p = 0; p < players; p++)
+		{
+			position[p] = Go.POSITION;
+			cash[p] = STARTING_CASH;
+			inJail[p] = false;
+			jailTurns[p] = 0;
+			bankrupt[p] = false;
+			railroadCount[p] = 0;
+			utilityCount[p] = 0;
+			mortgagedCount[p] = 0;
+		}
+		Arrays.fill(owner, BANK);
+		Arrays.fill(houses, 0);
+		Arrays.fill(mortgaged, false);
+		Arrays.fill(groupOwner, BANK);
+	}
+	
+	/**
+	 * Gives a space to a new owner, keeping the counts of what each player owns up to date.
+	 * @param s The position of the space.
+	 * @param p The new owner, or {@link #BANK}.
+	 */
+	private void setOwner(int s, int p)
+	{
+		int previous = owner[s];
+		owner[s] = p;
+		if (kind[s] == RAILROAD)
+		{
+			if (previous != BANK) railroadCount[previous]--;
+			if (p != BANK) railroadCount[p]++;
+		}
+		else if (kind[s] == UTILITY)
+		{
+			if (previous != BANK) utilityCount[previous]--;
+			if (p != BANK) utilityCount[p]++;
+		}
+		else if (kind[s] == PROPERTY)
+		{
+			int g = group[s];
+			groupOwner[g] = p;
+			for (int m : groups[g])
+				if (owner[m] != p)
+					groupOwner[g] = BANK;
+		}
+		if (mortgaged[s])
+		{
+			if (previous != BANK) mortgagedCount[previous]--;
+			if (p != BANK) mortgagedCount[p]++;
+		}
+	}
+	
+	private void setMortgaged(int s, boolean value)
+	{
+		mortgaged[s] = value;
+		mortgagedCount[owner[s]] += value ? 1 : -1;
+	}
+
+	private int winner()
+	{
+		for (int p = 0; p < players; p++)
+			if (!bankrupt[p])
+				return p;
+		return -1;
+	}
+
+	/**
+	 * Plays one turn of a player: rolls until they stop rolling doubles, then builds.
+	 */
+	private void turn(int p)
+	{
+		int doubles = 0;
+		while (true)
+		{
+			int die1 = random.nextInt(6) + 1;
+			int die2 = random.nextInt(6) + 1;
+			int dice = die1 + die2;
+			boolean isDouble = die1 == die2;
+
+			if (inJail[p])
+			{
+				if (isDouble)
+					inJail[p] = false;
+				else if (++jailTurns[p] == 3)
+				{
+					//Forced to pay the way out on the third failed roll.
+					inJail[p] = false;
+					pay(p, Jail.FINE, BANK);
+					if (bankrupt[p])
+						return;
+				}
+				else
+					break;
+				//Leaving jail moves by the roll, but does not roll again.
+				move(p, dice);
+				break;
+			}
+
+			if (isDouble && ++doubles == 3)
+			{
+				sendToJail(p);
+				break;
+			}
+			move(p, dice);
+			if (bankrupt[p] || inJail[p] || !isDouble)
+				break;
+		}
+		if (!bankrupt[p])
+			build(p);
+	}
+
+	private void sendToJail(int p)
+	{
+		position[p] = jail;
+		inJail[p] = true;
+		jailTurns[p] = 0;
+	}
+
+	/**
+	 * Moves a player forward and resolves the space they land on, following any cards that move them again.
+	 */
+	private void move(int p, int dice)
+	{
+		int to = position[p] + dice;
+		while (to >= size)
+		{
+			to -= size;
+			cash[p] += Go.SALARY;
+		}
+		position[p] = to;
+
+		while (true)
+		{
+			int at = position[p];
+			CardAction action;
+			switch (kind[at])
+			{
+				case PROPERTY:
+				case RAILROAD:
+				case UTILITY:
+					int o = owner[at];
+					if (o == BANK)
+					{
+						if (cash[p] >= price[at] && strategies[p].buy(this, p, at))
+						{
+							cash[p] -= price[at];
+							setOwner(at, p);
+						}
+					}
+					else if (o != p && !mortgaged[at])
+						pay(p, getRent(at, dice), o);
+					return;
+				case TAX:
+					pay(p, tax[at], BANK);
+					return;
+				case GO_TO_JAIL:
+					sendToJail(p);
+					return;
+				case CHANCE:
+					action = board.getChance().getCardAction();
+					break;
+				case COMMUNITY_CHEST:
+					action = board.getCommunityChest().getCardAction();
+					break;
+				default:
+					return;
+			}
+
+			//Chance or community chest.
+			switch (action)
+			{
+				case DO_NOTHING:
+					return;
+				case GO_DIRECTLY_TO_JAIL_DO_NOT_PASS_GO:
+					sendToJail(p);
+					return;
+				case GO_BACK_THREE_SPACES:
+					position[p] = (at + size - 3) % size;
+					break;
+				default:
+					int destination = board.getDestination(at, action);
+					if (destination <= at)
+						cash[p] += Go.SALARY;
+					position[p] = destination;
+			}
+		}
+	}
+
+	/**
+	 * Gets the rent owed for landing on a space.
+	 * @param at The position of the space.
+	 * @param dice The roll that moved the player, for utilities.
+	 * @return The rent.
+	 */
+	private int getRent(int at, int dice)
+	{
+		int o = owner[at];
+		switch (kind[at])
+		{
+			case RAILROAD:
+				return Railroad.RENTS[railroadCount[o] - 1];
+			case UTILITY:
+				return Utility.MULTIPLIERS[utilityCount[o] - 1] * dice;
+			default:
+				int h = houses[at];
+				int base = rent[at * (HOTEL + 1) + h];
+				//Rent is doubled on an unimproved property when its owner has the whole color group.
+				return h == 0 && groupOwner[group[at]] == o ? base * 2 : base;
+		}
+	}
+
+	/**
+	 * Makes a player pay, raising money or going bankrupt if they cannot.
+	 * @param p The player paying.
+	 * @param amount The amount owed.
+	 * @param creditor The player paid, or {@link #BANK}.
+	 */
+	private void pay(int p, int amount, int creditor)
+	{
+		cash[p] -= amount;
+		if (cash[p] < 0)
+			raise(p);
+		if (cash[p] < 0)
+		{
+			//Whatever could be raised goes to the creditor.
+			if (creditor != BANK)
+				cash[creditor] += amount + cash[p];
+			goBankrupt(p, creditor);
+			return;
+		}
+		if (creditor != BANK)
+			cash[creditor] += amount;
+	}
+
+	/**
+	 * Sells houses, then mortgages properties, until the player is out of debt or has nothing left to sell.
+	 */
+	private void raise(int p)
+	{
+		for (int s = size - 1; s >= 0 && cash[p] < 0; s--)
+		{
+			while (owner[s] == p && houses[s] > 0 && cash[p] < 0)
+			{
+				houses[s]--;
+				cash[p] += houseCost[s] / 2;
+			}
+		}
+		for (int s = 0; s < size && cash[p] < 0; s++)
+		{
+			if (owner[s] == p && !mortgaged[s] && houses[s] == 0)
+			{
+				setMortgaged(s, true);
+				cash[p] += price[s] / 2;
+			}
+		}
+	}
+
+	/**
+	 * Removes a player from the game. Their properties go to the creditor as they are, or back to the bank.
+	 */
+	private void goBankrupt(int p, int creditor)
+	{
+		bankrupt[p] = true;
+		alive--;
+		cash[p] = 0;
+		for (int s = 0; s < size; s++)
+		{
+			if (owner[s] != p)
+				continue;
+			houses[s] = 0;
+			if (creditor == BANK && mortgaged[s])
+				setMortgaged(s, false);
+			setOwner(s, creditor);
+		}
+	}
+
+	/**
+	 * Pays off mortgages, then builds evenly on every complete color group of the player, as far as their strategy
+	 * wants to and they can afford.
+	 */
+	private void build(int p)
+	{
+		Strategy strategy = strategies[p];
+		for (int s = 0; s < size && mortgagedCount[p] > 0; s++)
+		{
+			int cost = getUnmortgageCost(s);
+			if (owner[s] == p && mortgaged[s] && cash[p] >= cost && strategy.unmortgage(this, p, s))
+			{
+				setMortgaged(s, false);
+				cash[p] -= cost;
+			}
+		}
+
+		for (int g = 0; g < groups.length; g++)
+		{
+			int[] members = groups[g];
+			if (groupOwner[g] != p || anyMortgaged(members))
+				continue;
+
+			boolean built = true;
+			while (built)
+			{
+				built = false;
+				//Build on the property with the fewest houses, to keep the group even.
+				int fewest = members[0];
+				for (int s : members)
+					if (houses[s] < houses[fewest])
+						fewest = s;
+				if (houses[fewest] < HOTEL && cash[p] >= houseCost[fewest] && strategy.build(this, p, fewest))
+				{
+					houses[fewest]++;
+					cash[p] -= houseCost[fewest];
+					built = true;
+				}
+			}
+		}
+	}
+
+	private boolean anyMortgaged(int[] spaces)
+	{
+		for (int s : spaces)
+			if (mortgaged[s])
+				return true;
+		return false;
+	}
+
+	/**
+	 * @return The number of rounds played in the last game.
+	 */
+	public int getRounds()
+	{
+		return rounds;
+	}
+
+	/**
+	 * @param p The seat of the player.
+	 * @return The cash the player has, or had at the end of the last game.
+	 */
+	public int getCash(int p)
+	{
+		return cash[p];
+	}
+
+	/**
+	 * @param position The position of a space.
+	 * @return The price of the property, railroad or utility, or 0 if the space cannot be bought.
+	 */
+	public int getPrice(int position)
+	{
+		return price[position];
+	}
+
+	/**
+	 * @param position The position of a space.
+	 * @return The cost of each house on the property, or 0 if the space is not a property.
+	 */
+	public int getHouseCost(int position)
+	{
+		return houseCost[position];
+	}
+
+	/**
+	 * @param position The position of a mortgaged space.
+	 * @return The cost of paying off the mortgage: the amount it raised plus 10% interest.
+	 */
+	public int getUnmortgageCost(int position)
+	{
+		return price[position] / 2 + price[position] / 20;
+	}
+
+	/**
+	 * @param position The position of a space.
+	 * @return The houses on the property, {@link #HOTEL} for a hotel.
+	 */
+	public int getHouses(int position)
+	{
+		return houses[position];
+	}
+
+	/**
+	 * @param position The position of a space.
+	 * @return The seat of the owner of the space, or {@link #BANK}.
+	 */
+	public int getOwner(int position)
+	{
+		return owner[position];
+	}
+
+	public boolean isRailroad(int position)
+	{
+		return kind[position] == RAILROAD;
+	}
+
+	public boolean isUtility(int position)
+	{
+		return kind[position] == UTILITY;
+	}
+
+	public Board getBoard()
+	{
+		return board;
+	}
+}
@@ -0,0 +1,145 @@
+package com.marklalor.monopolysim.game.full;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import com.marklalor.monopolysim.Settings;
+import com.marklalor.monopolysim.game.Board;
+import com.marklalor.monopolysim.roll.random.RandomSource;
+
+/**
+ * Plays many complete games across several worker threads, each with its own {@link FullGame}, and counts the wins
+ * of each starting seat.
+ */
+public class FullGameSimulation
+{
+	private Settings settings;
+	private long games;
+	private int players;
+
+	/**
+	 * @param settings The threads, seed, generator and deck mode to play with.
+	 * @param games The number of games to play.
+	 * @param players The number of players of each game.
+	 */
+	public FullGameSimulation(Settings settings, long games, int players)
+	{
+		this.settings = settings;
+		this.games = games;
+		this.players = players;
+	}
+
+	/**
+	 * Plays every game.
+	 * @return The results of all the games.
+	 * @throws InterruptedException If interrupted while waiting for the workers.
+	 */
+	public Result run() throws InterruptedException
+	{
+		int threads = Math.max(1, settings.getThreads());
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		List<Future<Result>> workers = new ArrayList<Future<Result>>(threads);
+		//Every worker gets its own stream split from the seed, in order, so the run can be replayed.
+		RandomSource random = settings.getGenerator().create(settings.getSeed());
+
+		for (int i = 0; i < threads; i++)
+		{
+			final long budget = games / threads + (i < games % threads ? 1 : 0);
+			final RandomSource workerRandom = random.split();
+			workers.add(executor.submit(new Callable<Result>()
+			{
+				@Override
+				public Result call()
+				{
+					FullGame game = new FullGame(new Board(workerRandom, settings.getDeckMode(), settings.getLayout()), workerRandom, players);
+					Result result = new Result(players);
+					for (long g = 0; g < budget; g++)
+						result.add(game.play(players), game.getRounds());
+					return result;
+				}
+			}));
+		}
+		executor.shutdown();
+
+		Result result = new Result(players);
+		try
+		{
+			for (Future<Result> worker : workers)
+				result.merge(worker.get());
+		}
+		catch(ExecutionException e)
+		{
+			executor.shutdownNow();
+			throw new IllegalStateException("A game worker failed!", e.getCause());
+		}
+		return result;
+	}
+
+	/**
+	 * Wins of each starting seat, draws and rounds played, over a number of games.
+	 */
+	public static class Result
+	{
+		private long[] wins;
+		private long draws = 0;
+		private long games = 0;
+		private long rounds = 0;
+
+		public Result(int players)
+		{
+			this.wins = new long[players];
+		}
+
+		/**
+		 * Counts a game.
+		 * @param winner The seat of the winner, or -1 for a draw.
+		 * @param rounds The number of rounds the game lasted.
+		 */
+		public void add(int winner, int rounds)
+		{
+			games++;
+			this.rounds += rounds;
+			if (winner < 0)
+				draws++;
+			else
+				wins[winner]++;
+		}
+
+		public void merge(Result other)
+		{
+			for (int p = 0; p < wins.length; p++)
+				wins[p] += other.wins[p];
+			draws += other.draws;
+			games += other.games;
+			rounds += other.rounds;
+		}
+
+		public long getWins(int seat)
+		{
+			return wins[seat];
+		}
+
+		public long getDraws()
+		{
+			return draws;
+		}
+
+		public long getGames()
+		{
+			return games;
+		}
+
+		/**
+		 * @return The average number of rounds of a game.
+		 */
+		public double getAverageRounds()
+		{
+			return games == 0 ? 0 : (double) rounds / games;
+		}
+	}
+}
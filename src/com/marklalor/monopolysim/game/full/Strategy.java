@@ -0,0 +1,42 @@
+package com.marklalor.monopolysim.game.full;
+
+/**
+ * The decisions a player makes in a {@link FullGame}: what to buy, which mortgages to pay off and where to build.
+ * <p>
+ * The game only asks about what the player can afford, and reads the rest of the state through the getters of
+ * {@link FullGame}. The same instance plays every seat it is given, in every game and on every thread of a
+ * {@link Tournament}, so implementations should keep no state of their own.
+ */
+public interface Strategy
+{
+	/**
+	 * @return The name the strategy is reported under.
+	 */
+	public String getName();
+
+	/**
+	 * @param game The game being played.
+	 * @param player The seat of the player deciding.
+	 * @param position The property, railroad or utility the player landed on, which nobody owns.
+	 * @return Whether to buy it for {@link FullGame#getPrice(int)}.
+	 */
+	public boolean buy(FullGame game, int player, int position);
+
+	/**
+	 * @param game The game being played.
+	 * @param player The seat of the player deciding.
+	 * @param position A mortgaged space of the player.
+	 * @return Whether to pay off the mortgage for {@link FullGame#getUnmortgageCost(int)}.
+	 */
+	public boolean unmortgage(FullGame game, int player, int position);
+
+	/**
+	 * Asked repeatedly at the end of each turn of the player, for the property with the fewest houses of each of their
+	 * complete color groups, until they answer no or the group has hotels.
+	 * @param game The game being played.
+	 * @param player The seat of the player deciding.
+	 * @param position The property to build on.
+	 * @return Whether to build a house there for {@link FullGame#getHouseCost(int)}.
+	 */
+	public boolean build(FullGame game, int player, int position);
+}
@@ -0,0 +1,339 @@
+package com.marklalor.monopolysim.game.full;
+
+import java.text.DecimalFormat;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
+
+import com.marklalor.monopolysim.Settings;
+import com.marklalor.monopolysim.game.Board;
+import com.marklalor.monopolysim.roll.random.RandomSource;
+
+/**
+ * Plays every pair of {@link Strategy strategies} against each other in two-player games, and ranks them by their
+ * score: a win counts 1, a draw 1/2 and a loss 0.
+ * <p>
+ * Each matchup is played in waves of small batches of games on a {@link ForkJoinPool}, so that threads left idle by a
+ * finished matchup steal batches from the others. Every worker thread keeps its own {@link Board}, random stream and
+ * {@link FullGame} for the whole tournament. The two strategies swap seats every game, so the advantage of moving
+ * first cancels out.
+ * <p>
+ * After each wave the score of the matchup and its confidence interval are printed, and the matchup stops as soon as
+ * the interval no longer contains 1/2, once it has played at least {@link #getMinGames()} games. Lopsided matchups
+ * are settled in a few thousand games; even ones run up to {@link #getMaxGames()}. Since the matchups are checked
+ * again after every wave, the interval should be wider than the usual 95% one.
+ * <p>
+ * Which thread plays which batch is up to the pool, so unlike {@link FullGameSimulation} a tournament does not
+ * replay exactly from its seed.
+ */
+public class Tournament
+{
+	/** Games played by each task. */
+	public static final int BATCH = 250;
+
+	private Settings settings;
+	private List<Strategy> strategies;
+	private long maxGames;
+	private long minGames = 2000;
+	private double z = 3;
+
+	private RandomSource random;
+	private ThreadLocal<FullGame> games;
+	private Score[] standings;
+	private DecimalFormat df = new DecimalFormat("#0.00");
+
+	/**
+	 * @param settings The threads, seed, generator and deck mode to play with.
+	 * @param strategies The strategies to rank, at least two.
+	 * @param maxGames The most games of each matchup.
+	 */
+	public Tournament(Settings settings, List<Strategy> strategies, long maxGames)
+	{
+		if (strategies.size() < 2)
+			throw new IllegalArgumentException("A tournament needs at least two strategies!");
+		this.settings = settings;
+		this.strategies = strategies;
+		this.maxGames = maxGames;
+	}
+
+	/**
+	 * Plays every matchup until it is settled or has played {@link #getMaxGames()} games.
+	 * @return The score of each strategy over all its games, in the order the strategies were given.
+	 */
+	public Score[] run()
+	{
+		random = settings.getGenerator().create(settings.getSeed());
+		games = new ThreadLocal<FullGame>()
+		{
+			@Override
+			protected FullGame initialValue()
+			{
+				RandomSource workerRandom = split();
+				return new FullGame(new Board(workerRandom, settings.getDeckMode(), settings.getLayout()), workerRandom, 2);
+			}
+		};
+		standings = new Score[strategies.size()];
+		for (int i = 0; i < standings.length; i++)
+			standings[i] = new Score();
+
+		List<Matchup> matchups = new ArrayList<Matchup>();
+		for (int a = 0; a < strategies.size(); a++)
+			for (int b = a + 1; b < strategies.size(); b++)
+				matchups.add(new Matchup(a, b));
+
+		ForkJoinPool pool = new ForkJoinPool(Math.max(1, settings.getThreads()));
+		try
+		{
+			pool.invoke(new RecursiveAction()
+			{
+				private static final long serialVersionUID = 1L;
+
+				@Override
+				protected void compute()
+				{
+					invokeAll(matchups);
+				}
+			});
+		}
+		finally
+		{
+			pool.shutdown();
+		}
+		return standings;
+	}
+
+	private synchronized RandomSource split()
+	{
+		return random.split();
+	}
+
+	/**
+	 * Every wave of a matchup, the results of its batches are folded into the standings and printed.
+	 */
+	private synchronized void report(Matchup matchup, Score wave)
+	{
+		standings[matchup.a].add(wave);
+		standings[matchup.b].add(wave.reverse());
+		Score score = matchup.score;
+		System.out.println(strategies.get(matchup.a).getName() + " vs " + strategies.get(matchup.b).getName() + ": "
+		        + format(score) + " after " + score.getGames() + " games" + (matchup.isSettled() ? " (settled)" : ""));
+	}
+
+	/**
+	 * Formats a score with its confidence interval.
+	 * @param score The score.
+	 * @return The score as a percentage, with the half-width of its interval.
+	 */
+	public String format(Score score)
+	{
+		return df.format(score.getScore() * 100) + "% +/- " + df.format(score.getHalfWidth(z) * 100) + "%";
+	}
+
+	/**
+	 * Plays two strategies against each other in waves of batches.
+	 */
+	private class Matchup extends RecursiveAction
+	{
+		private static final long serialVersionUID = 1L;
+
+		private int a, b;
+		/** The score of the first strategy. */
+		private Score score = new Score();
+
+		public Matchup(int a, int b)
+		{
+			this.a = a;
+			this.b = b;
+		}
+
+		@Override
+		protected void compute()
+		{
+			int parallelism = Math.max(1, getPool().getParallelism());
+			while (!isSettled())
+			{
+				List<Batch> wave = new ArrayList<Batch>();
+				for (long planned = 0; wave.size() < parallelism && score.getGames() + planned < maxGames; planned += BATCH)
+					wave.add(new Batch(this, (int) Math.min(BATCH, maxGames - score.getGames() - planned)));
+
+				Score waveScore = new Score();
+				for (Batch batch : ForkJoinTask.invokeAll(wave))
+					waveScore.add(batch.join());
+				score.add(waveScore);
+				report(this, waveScore);
+			}
+		}
+
+		private boolean isSettled()
+		{
+			if (score.getGames() >= maxGames)
+				return true;
+			if (score.getGames() < minGames)
+				return false;
+			double halfWidth = score.getHalfWidth(z);
+			return score.getScore() - halfWidth > 0.5 || score.getScore() + halfWidth < 0.5;
+		}
+	}
+
+	/**
+	 * Plays a few games of a matchup on the game of the current worker thread.
+	 */
+	private class Batch extends RecursiveTask<Score>
+	{
+		private static final long serialVersionUID = 1L;
+
+		private Matchup matchup;
+		private int count;
+
+		public Batch(Matchup matchup, int count)
+		{
+			this.matchup = matchup;
+			this.count = count;
+		}
+
+		@Override
+		protected Score compute()
+		{
+			FullGame game = games.get();
+			Strategy[] first = {strategies.get(matchup.a), strategies.get(matchup.b)};
+			Strategy[] second = {first[1], first[0]};
+			Score score = new Score();
+			for (int g = 0; g < count; g++)
+			{
+				//Swap seats every game.
+				if (g % 2 == 0)
+					score.add(game.play(first), 0);
+				else
+					score.add(game.play(second), 1);
+			}
+			return score;
+		}
+	}
+
+	/**
+	 * Wins, draws and losses of one side, with the confidence interval of its score.
+	 */
+	public static class Score
+	{
+		private long wins = 0;
+		private long draws = 0;
+		private long losses = 0;
+
+		/**
+		 * Counts a game.
+		 * @param winner The seat of the winner, or -1 for a draw.
+		 * @param seat The seat this side played.
+		 */
+		public void add(int winner, int seat)
+		{
+			if (winner < 0)
+				draws++;
+			else if (winner == seat)
+				wins++;
+			else
+				losses++;
+		}
+
+		public void add(Score other)
+		{
+			wins += other.wins;
+			draws += other.draws;
+			losses += other.losses;
+		}
+
+		/**
+		 * @return The same games, seen from the other side.
+		 */
+		public Score reverse()
+		{
+			Score reverse = new Score();
+			reverse.wins = losses;
+			reverse.draws = draws;
+			reverse.losses = wins;
+			return reverse;
+		}
+
+		public long getWins()
+		{
+			return wins;
+		}
+
+		public long getDraws()
+		{
+			return draws;
+		}
+
+		public long getLosses()
+		{
+			return losses;
+		}
+
+		public long getGames()
+		{
+			return wins + draws + losses;
+		}
+
+		/**
+		 * @return The average score of a game, from 0 to 1.
+		 */
+		public double getScore()
+		{
+			long games = getGames();
+			return games == 0 ? 0.5 : (wins + draws / 2.0) / games;
+		}
+
+		/**
+		 * Gets the half-width of the normal confidence interval of the score.
+		 * @param z The number of standard errors, for example 1.96 for 95%.
+		 * @return The half-width, or 1/2 before any game has been played.
+		 */
+		public double getHalfWidth(double z)
+		{
+			long games = getGames();
+			if (games == 0)
+				return 0.5;
+			double score = getScore();
+			double variance = (wins + draws / 4.0) / games - score * score;
+			return z * Math.sqrt(Math.max(0, variance) / games);
+		}
+	}
+
+	public long getMaxGames()
+	{
+		return maxGames;
+	}
+
+	public void setMaxGames(long maxGames)
+	{
+		this.maxGames = maxGames;
+	}
+
+	/**
+	 * @return The games each matchup plays before it can be settled.
+	 */
+	public long getMinGames()
+	{
+		return minGames;
+	}
+
+	public void setMinGames(long minGames)
+	{
+		this.minGames = minGames;
+	}
+
+	/**
+	 * @return The number of standard errors of the confidence intervals, 3 by default.
+	 */
+	public double getZ()
+	{
+		return z;
+	}
+
+	public void setZ(double z)
+	{
+		this.z = z;
+	}
+}
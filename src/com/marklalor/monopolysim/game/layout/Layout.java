@@ -0,0 +1,491 @@
+package com.marklalor.monopolysim.game.layout;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import com.marklalor.monopolysim.game.Board;
+import com.marklalor.monopolysim.game.card.Card;
+import com.marklalor.monopolysim.game.card.CardAction;
+import com.marklalor.monopolysim.game.card.ChanceCard;
+import com.marklalor.monopolysim.game.card.CommunityChestCard;
+import com.marklalor.monopolysim.game.space.property.Color;
+
+/**
+ * The spaces and cards of a board, read once from a small text file and compiled into flat arrays that every
+ * {@link Board} built from it shares.
+ * <p>
+ * Each line of the file is a list of fields separated by <code>|</code>. Blank lines and lines starting with
+ * <code>#</code> are skipped. The spaces are listed in order, starting from Go:
+ * <ul>
+ * <li><code>go | Go</code>: a space of the given {@link SpaceKind kind} (<code>chance</code>, <code>community chest</code>,
+ * <code>railroad</code>, <code>jail</code>, ...) and its name.</li>
+ * <li><code>property | Boardwalk | BLUE | 400 | 200 | 50 200 600 1400 1700 2000</code>: a property, with its color
+ * (a {@link Color} name or <code>#RRGGBB</code>), its price, the cost of a house and its rents with no houses, 1 to 4
+ * houses and a hotel.</li>
+ * </ul>
+ * The board must start with Go and have exactly one jail. Two other kinds of lines change the cards:
+ * <ul>
+ * <li><code>deck | chance | ADVANCE_TO_GO GO_BACK_THREE_SPACES ...</code>: the {@link CardAction}s of the chance or
+ * community chest deck, up to {@link Card#SIZE}. The rest of the deck does nothing.</li>
+ * <li><code>target | TAKE_A_WALK_ON_THE_BOARDWALK | Mayfair</code>: the space a card advancing to a named space
+ * goes to, for boards whose spaces have other names.</li>
+ * </ul>
+ * Without a <code>deck</code> line, a deck has the standard cards. Without a <code>target</code> line, a card goes to
+ * the space with the standard name (such as "Illinois Avenue").
+ * <p>
+ * Everything a game looks up while it moves (the type of each space and where each card leads from each space) is
+ * worked out here, once per layout.
+ */
+public class Layout
+{
+	/** Number of card actions in each row of the destination table. */
+	public static final int ACTIONS = CardAction.values().length;
+
+	/** The standard US board, in the format of a layout file. */
+	private static final String[] STANDARD_LINES =
+		{
+			// From "Go" (inclusive) To "Jail" (exclusive)
+			/*0*/"go | Go",
+			/*1*/"property | Mediterranean Avenue | SADDLE_BROWN | 60 | 50 | 2 10 30 90 160 250",
+			/*2*/"community chest | Community Chest",
+			/*3*/"property | Baltic Avenue | SADDLE_BROWN | 60 | 50 | 4 20 60 180 320 450",
+			/*4*/"income tax | Income Tax",
+			/*5*/"railroad | Reading Railroad",
+			/*6*/"property | Oriental Avenue | SKY_BLUE | 100 | 50 | 6 30 90 270 400 550",
+			/*7*/"chance | Chance",
+			/*8*/"property | Vermont Avenue | SKY_BLUE | 100 | 50 | 6 30 90 270 400 550",
+			/*9*/"property | Connecticut Avenue | SKY_BLUE | 120 | 50 | 8 40 100 300 450 600",
+			// From "Jail" (inclusive) to "Free Parking" (exclusive)
+			/*10*/"jail | Jail / Just Visiting",
+			/*11*/"property | St. Charles Place | DARK_ORCHID | 140 | 100 | 10 50 150 450 625 750",
+			/*12*/"utility | Electric Company",
+			/*13*/"property | States Avenue | DARK_ORCHID | 140 | 100 | 10 50 150 450 625 750",
+			/*14*/"property | Virginia Avenue | DARK_ORCHID | 160 | 100 | 12 60 180 500 700 900",
+			/*15*/"railroad | Pennsylvania Railroad",
+			/*16*/"property | St. James Place | ORANGE | 180 | 100 | 14 70 200 550 750 950",
+			/*17*/"community chest | Community Chest",
+			/*18*/"property | Tennessee Avenue | ORANGE | 180 | 100 | 14 70 200 550 750 950",
+			/*19*/"property | New York Avenue | ORANGE | 200 | 100 | 16 80 220 600 800 1000",
+			// From "Free Parking" (inclusive) to "Go To Jail" (exclusive)
+			/*20*/"free parking | Free Parking",
+			/*21*/"property | Kentucky Avenue | RED | 220 | 150 | 18 90 250 700 875 1050",
+			/*22*/"chance | Chance",
+			/*23*/"property | Indiana Avenue | RED | 220 | 150 | 18 90 250 700 875 1050",
+			/*24*/"property | Illinois Avenue | RED | 240 | 150 | 20 100 300 750 925 1100",
+			/*25*/"railroad | B&O Railroad",
+			/*26*/"property | Atlantic Avenue | YELLOW | 260 | 150 | 22 110 330 800 975 1150",
+			/*27*/"property | Ventnor Avenue | YELLOW | 260 | 150 | 22 110 330 800 975 1150",
+			/*28*/"utility | Water Works",
+			/*29*/"property | Marvin Gardens | YELLOW | 280 | 150 | 24 120 360 850 1025 1200",
+			// From "Go To Jail" (inclusive) to "Go" (exclusive)
+			/*30*/"go to jail | Go To Jail",
+			/*31*/"property | Pacific Avenue | GREEN | 300 | 200 | 26 130 390 900 1100 1275",
+			/*32*/"property | North Carolina Avenue | GREEN | 300 | 200 | 26 130 390 900 1100 1275",
+			/*33*/"community chest | Community Chest",
+			/*34*/"property | Pennsylvania Avenue | GREEN | 320 | 200 | 28 150 450 1000 1200 1400",
+			/*35*/"railroad | Short Line",
+			/*36*/"chance | Chance",
+			/*37*/"property | Park Place | BLUE | 350 | 200 | 35 175 500 1100 1300 1500",
+			/*38*/"luxury tax | Luxury Tax",
+			/*39*/"property | Boardwalk | BLUE | 400 | 200 | 50 200 600 1400 1700 2000",
+		};
+
+	/** The standard US board. */
+	public static final Layout STANDARD = parse(Arrays.asList(STANDARD_LINES), null);
+
+	/** The file the layout was read from, or <code>null</code> for {@link #STANDARD}. */
+	private File file;
+	private int size;
+	private SpaceKind[] kinds;
+	private String[] names;
+	//Only set for properties.
+	private int[] colors;
+	private int[] prices;
+	private int[] houseCosts;
+	private int[][] rents;
+
+	/** Type code of each space, as returned by {@link Board#getType(int)}. */
+	private byte[] types;
+	/** Where each {@link CardAction} moves the player from each position, indexed by <code>position * ACTIONS + action</code>. */
+	private int[] destinations;
+	private int jail;
+	private CardAction[] chance = ChanceCard.ACTIONS;
+	private CardAction[] communityChest = CommunityChestCard.ACTIONS;
+
+	private Layout()
+	{
+	}
+
+	/**
+	 * Reads a layout file.
+	 * @param file The file to read.
+	 * @return The layout.
+	 * @throws IOException If the file could not be read.
+	 * @throws IllegalArgumentException If the file is not a valid layout.
+	 */
+	public static Layout load(File file) throws IOException
+	{
+		return parse(Files.readAllLines(file.toPath(), StandardCharsets.UTF_8), file);
+	}
+
+	/**
+	 * Reads the lines of a layout.
+	 * @param lines The lines, in the format described above.
+	 * @param file The file the lines were read from, or <code>null</code>.
+	 * @return The layout.
+	 * @throws IllegalArgumentException If the lines are not a valid layout.
+	 */
+	public static Layout parse(List<String> lines, File file)
+	{
+		Layout layout = new Layout();
+		layout.file = file;
+		List<String[]> spaces = new ArrayList<String[]>();
+		String[] targets = new String[ACTIONS];
+		targets[CardAction.ADVANCE_TO_ILLINOIS_AVE.ordinal()] = "Illinois Avenue";
+		targets[CardAction.ADVANCE_TO_ST_CHARLES_PLACE.ordinal()] = "St. Charles Place";
+		targets[CardAction.TAKE_A_TRIP_TO_READING_RAILROAD.ordinal()] = "Reading Railroad";
+		targets[CardAction.TAKE_A_WALK_ON_THE_BOARDWALK.ordinal()] = "Boardwalk";
+
+		for (int n = 0; n < lines.size(); n++)
+		{
+			String line = lines.get(n).trim();
+			if (line.isEmpty() || line.startsWith("#"))
+				continue;
+			String[] fields = line.split("\\|");
+			for (int f = 0; f < fields.length; f++)
+				fields[f] = fields[f].trim();
+			//Messages are only put together on failure, so that a valid layout is read without building any text.
+			int where = n + 1;
+
+			if (fields[0].equalsIgnoreCase("deck"))
+			{
+				if (fields.length != 3)
+					throw error(where, "should be: deck | chance or community chest | actions");
+				CardAction[] actions = actions(fields[2], where);
+				SpaceKind deck = SpaceKind.forName(fields[1]);
+				if (deck == SpaceKind.CHANCE)
+					layout.chance = actions;
+				else if (deck == SpaceKind.COMMUNITY_CHEST)
+					layout.communityChest = actions;
+				else
+					throw error(where, "names no deck: " + fields[1]);
+			}
+			else if (fields[0].equalsIgnoreCase("target"))
+			{
+				if (fields.length != 3)
+					throw error(where, "should be: target | action | space name");
+				targets[action(fields[1], where).ordinal()] = fields[2];
+			}
+			else
+			{
+				SpaceKind kind = SpaceKind.forName(fields[0]);
+				if (kind == null)
+					throw error(where, "has an unknown kind of space: " + fields[0]);
+				if (fields.length != (kind == SpaceKind.PROPERTY ? 6 : 2))
+					throw error(where, kind == SpaceKind.PROPERTY ? "should be: property | name | color | price | house cost | rents" : "should be: kind | name");
+				spaces.add(fields);
+			}
+		}
+
+		layout.compile(spaces, targets);
+		return layout;
+	}
+
+	private static IllegalArgumentException error(int line, String message)
+	{
+		return new IllegalArgumentException("Line " + line + " of the layout " + message);
+	}
+
+	private static CardAction action(String name, int where)
+	{
+		for (CardAction action : CardAction.values())
+			if (action.name().equalsIgnoreCase(name))
+				return action;
+		throw error(where, "has an unknown card action: " + name);
+	}
+
+	private static CardAction[] actions(String field, int where)
+	{
+		String[] names = words(field);
+		if (names.length > Card.SIZE)
+			throw error(where, "has more than " + Card.SIZE + " cards");
+		CardAction[] actions = new CardAction[names.length];
+		for (int i = 0; i < names.length; i++)
+			actions[i] = action(names[i], where);
+		return actions;
+	}
+
+	/**
+	 * Splits a field on spaces and tabs, without a regular expression.
+	 */
+	private static String[] words(String field)
+	{
+		List<String> words = new ArrayList<String>();
+		int start = -1;
+		for (int i = 0; i <= field.length(); i++)
+		{
+			boolean blank = i == field.length() || Character.isWhitespace(field.charAt(i));
+			if (blank && start >= 0)
+			{
+				words.add(field.substring(start, i));
+				start = -1;
+			}
+			else if (!blank && start < 0)
+				start = i;
+		}
+		return words.toArray(new String[words.size()]);
+	}
+
+	private int number(String field, String what, int position)
+	{
+		return number(field, 10, what, position);
+	}
+
+	private int number(String field, int radix, String what, int position)
+	{
+		try
+		{
+			return Integer.parseInt(field, radix);
+		}
+		catch(NumberFormatException e)
+		{
+			throw new IllegalArgumentException("The " + what + " of " + names[position] + " is not a number: " + field);
+		}
+	}
+
+	/**
+	 * Fills in the arrays of every space, then works out the type of each space and where each card leads.
+	 */
+	private void compile(List<String[]> spaces, String[] targets)
+	{
+		size = spaces.size();
+		kinds = new SpaceKind[size];
+		names = new String[size];
+		colors = new int[size];
+		prices = new int[size];
+		houseCosts = new int[size];
+		rents = new int[size][];
+		types = new byte[size];
+		jail = -1;
+
+		for (int i = 0; i < size; i++)
+		{
+			String[] fields = spaces.get(i);
+			kinds[i] = SpaceKind.forName(fields[0]);
+			names[i] = fields[1];
+			switch (kinds[i])
+			{
+				case PROPERTY:
+					colors[i] = fields[2].startsWith("#") ? number(fields[2].substring(1), 16, "color", i) : Color.get(fields[2]);
+					if (colors[i] < 0)
+						throw new IllegalArgumentException("The color of " + names[i] + " is unknown: " + fields[2]);
+					prices[i] = number(fields[3], "price", i);
+					houseCosts[i] = number(fields[4], "house cost", i);
+					String[] values = words(fields[5]);
+					if (values.length != 6)
+						throw new IllegalArgumentException("The rents of " + names[i] + " need 6 values, from no houses to a hotel");
+					rents[i] = new int[values.length];
+					for (int r = 0; r < values.length; r++)
+						rents[i][r] = number(values[r], "rent", i);
+					break;
+				case CHANCE:
+					types[i] = Board.CHANCE;
+					break;
+				case COMMUNITY_CHEST:
+					types[i] = Board.COMMUNITY_CHEST;
+					break;
+				case GO_TO_JAIL:
+					types[i] = Board.GO_TO_JAIL;
+					break;
+				case JAIL:
+					if (jail >= 0)
+						throw new IllegalArgumentException("A layout can only have one jail");
+					jail = i;
+					break;
+				default:
+					break;
+			}
+		}
+		if (size == 0 || kinds[0] != SpaceKind.GO)
+			throw new IllegalArgumentException("A layout must start with Go");
+		if (jail < 0)
+			throw new IllegalArgumentException("A layout must have a jail");
+
+		//Where each card leads from each space, -1 for a card that does not advance the player.
+		destinations = new int[size * ACTIONS];
+		Arrays.fill(destinations, -1);
+		for (CardAction action : CardAction.values())
+		{
+			int named = targets[action.ordinal()] == null ? -1 : find(targets[action.ordinal()]);
+			for (int i = 0; i < size; i++)
+			{
+				int destination;
+				switch (action)
+				{
+					case ADVANCE_TO_GO:
+						destination = 0;
+						break;
+					case ADVANCE_TOKEN_TO_NEAREST_UTILITY:
+						destination = nearest(SpaceKind.UTILITY, i);
+						break;
+					case ADVANCE_TOKEN_TO_THE_NEAREST_RAILROAD:
+						destination = nearest(SpaceKind.RAILROAD, i);
+						break;
+					case ADVANCE_TO_ILLINOIS_AVE:
+					case ADVANCE_TO_ST_CHARLES_PLACE:
+					case TAKE_A_TRIP_TO_READING_RAILROAD:
+					case TAKE_A_WALK_ON_THE_BOARDWALK:
+						destination = named;
+						break;
+					default:
+						continue;
+				}
+				destinations[i * ACTIONS + action.ordinal()] = destination;
+			}
+		}
+		check(chance, "chance");
+		check(communityChest, "community chest");
+	}
+
+	/**
+	 * Makes sure every card of a deck that advances the player has somewhere to go.
+	 */
+	private void check(CardAction[] deck, String name)
+	{
+		for (CardAction action : deck)
+		{
+			switch (action)
+			{
+				case GO_DIRECTLY_TO_JAIL_DO_NOT_PASS_GO:
+				case GO_BACK_THREE_SPACES:
+				case DO_NOTHING:
+					continue;
+				default:
+					if (destinations[action.ordinal()] < 0)
+						throw new IllegalArgumentException("The " + name + " card " + action + " leads to no space of the layout");
+			}
+		}
+	}
+
+	private int find(String name)
+	{
+		for (int i = 0; i < size; i++)
+			if (names[i].equalsIgnoreCase(name))
+				return i;
+		return -1;
+	}
+
+	/**
+	 * @return The first space of the kind from the given position onwards, wrapping around the board, or -1.
+	 */
+	private int nearest(SpaceKind kind, int position)
+	{
+		for (int distance = 0; distance < size; distance++)
+		{
+			int i = (position + distance) % size;
+			if (kinds[i] == kind)
+				return i;
+		}
+		return -1;
+	}
+
+	/**
+	 * @return The file the layout was read from, or <code>null</code> for {@link #STANDARD}.
+	 */
+	public File getFile()
+	{
+		return file;
+	}
+
+	/**
+	 * @return The number of spaces.
+	 */
+	public int size()
+	{
+		return size;
+	}
+
+	public SpaceKind getKind(int position)
+	{
+		return kinds[position];
+	}
+
+	public String getName(int position)
+	{
+		return names[position];
+	}
+
+	/**
+	 * @param position The position of a property.
+	 * @return The RGB value of its color.
+	 */
+	public int getColor(int position)
+	{
+		return colors[position];
+	}
+
+	public int getPrice(int position)
+	{
+		return prices[position];
+	}
+
+	public int getHouseCost(int position)
+	{
+		return houseCosts[position];
+	}
+
+	/**
+	 * @param position The position of a property.
+	 * @return A new array of its rents, with no houses, 1 to 4 houses and a hotel.
+	 */
+	public int[] getRents(int position)
+	{
+		return rents[position].clone();
+	}
+
+	/**
+	 * @return The type code of every space, shared by every board of this layout, which must not change it.
+	 */
+	public byte[] getTypes()
+	{
+		return types;
+	}
+
+	/**
+	 * @return Where each {@link CardAction} moves the player from each position, indexed by
+	 * <code>position * ACTIONS + action</code>, shared by every board of this layout, which must not change it.
+	 */
+	public int[] getDestinations()
+	{
+		return destinations;
+	}
+
+	/**
+	 * @return The position of the jail.
+	 */
+	public int getJail()
+	{
+		return jail;
+	}
+
+	/**
+	 * @return The actions of the chance deck.
+	 */
+	public CardAction[] getChance()
+	{
+		return chance.clone();
+	}
+
+	/**
+	 * @return The actions of the community chest deck.
+	 */
+	public CardAction[] getCommunityChest()
+	{
+		return communityChest.clone();
+	}
+}
@@ -0,0 +1,78 @@
+package com.marklalor.monopolysim.game.layout;
+
+import com.marklalor.monopolysim.game.space.Space;
+import com.marklalor.monopolysim.game.space.property.Property;
+import com.marklalor.monopolysim.game.space.special.Chance;
+import com.marklalor.monopolysim.game.space.special.CommunityChest;
+import com.marklalor.monopolysim.game.space.special.FreeParking;
+import com.marklalor.monopolysim.game.space.special.Go;
+import com.marklalor.monopolysim.game.space.special.GoToJail;
+import com.marklalor.monopolysim.game.space.special.IncomeTax;
+import com.marklalor.monopolysim.game.space.special.Jail;
+import com.marklalor.monopolysim.game.space.special.LuxuryTax;
+import com.marklalor.monopolysim.game.space.special.Railroad;
+import com.marklalor.monopolysim.game.space.special.Utility;
+
+/**
+ * The kinds of space a {@link Layout} can place on the board, each creating its own subclass of {@link Space}.
+ */
+public enum SpaceKind
+{
+	GO,
+	PROPERTY,
+	COMMUNITY_CHEST,
+	CHANCE,
+	INCOME_TAX,
+	RAILROAD,
+	JAIL,
+	UTILITY,
+	FREE_PARKING,
+	GO_TO_JAIL,
+	LUXURY_TAX;
+	
+	/**
+	 * @return A new space of this kind, with no position or name yet.
+	 */
+	public Space create()
+	{
+		switch (this)
+		{
+			case GO:
+				return new Go();
+			case PROPERTY:
+				return new Property();
+			case COMMUNITY_CHEST:
+				return new CommunityChest();
+			case CHANCE:
+				return new Chance();
+			case INCOME_TAX:
+				return new IncomeTax();
+			case RAILROAD:
+				return new Railroad();
+			case JAIL:
+				return new Jail();
+			case UTILITY:
+				return new Utility();
+			case FREE_PARKING:
+				return new FreeParking();
+			case GO_TO_JAIL:
+				return new GoToJail();
+			default:
+				return new LuxuryTax();
+		}
+	}
+	
+	/**
+	 * Finds a kind by the name a layout file gives it.
+	 * @param name The name, in any case, with spaces or underscores between words, such as "community chest".
+	 * @return The kind, or <code>null</code> if there is none of that name.
+	 */
+	public static SpaceKind forName(String name)
+	{
+		String key = name.trim().toUpperCase().replace(' ', '_');
+		for (SpaceKind kind : values())
+			if (kind.name().equals(key))
+				return kind;
+		return null;
+	}
+}
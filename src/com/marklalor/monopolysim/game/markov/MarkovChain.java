@@ -0,0 +1,340 @@
+package com.marklalor.monopolysim.game.markov;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.math.BigDecimal;
+
+import com.marklalor.monopolysim.game.Board;
+import com.marklalor.monopolysim.game.card.Card;
+import com.marklalor.monopolysim.game.card.CardAction;
+import com.marklalor.monopolysim.game.data.Data;
+import com.marklalor.monopolysim.game.space.Space;
+import com.marklalor.monopolysim.game.space.special.Chance;
+import com.marklalor.monopolysim.game.space.special.CommunityChest;
+import com.marklalor.monopolysim.game.space.special.GoToJail;
+import com.marklalor.monopolysim.roll.Roll;
+
+/**
+ * Calculates the exact long-run landing probabilities of every space, instead of estimating them by simulation.
+ * <p>
+ * Every roll of the dice is a step of a Markov chain with the same rules as {@link com.marklalor.monopolysim.game.Game#turn()}.
+ * A player out of jail is on one of the spaces of the board with 0, 1 or 2 doubles in a row, and a player in jail has been
+ * there for 0, 1 or 2 turns. Each roll lands exactly one hit, on the space the roll ends on, so the stationary
+ * distribution of the chain is the landing frequency of each space.
+ */
+public class MarkovChain
+{
+	/** Doubles in a row that send the player to jail. */
+	public static final int DOUBLES_LIMIT = 3;
+	/** Turns in jail after which the player pays their way out. */
+	public static final int JAIL_TURNS = 3;
+	private Board board;
+	/** The dice, whose ways to fall are the steps of the chain. */
+	private Roll roll;
+	private int spaces;
+	private int jail;
+	private int states;
+
+	/** Probability of moving from the first state to the second one in one roll. */
+	private double[][] transition;
+	/** Expected moves, go passes and distance moved of a roll from each state. */
+	private double[] moves, goPasses, distanceMoved;
+	/** Long-run probability of each state. */
+	private double[] stationary;
+
+	/**
+	 * Builds the transition matrix of the given board with the standard dice and solves it.
+	 * @param board The board whose layout and cards to use.
+	 */
+	public MarkovChain(Board board)
+	{
+		this(board, Roll.parse(Roll.DEFAULT_DICE, null));
+	}
+
+	/**
+	 * Builds the transition matrix of the given board and solves it.
+	 * @param board The board whose layout and cards to use.
+	 * @param roll The dice, which are never rolled.
+	 */
+	public MarkovChain(Board board, Roll roll)
+	{
+		this.board = board;
+		this.roll = roll;
+		this.spaces = board.size();
+		this.jail = board.getJail().getPosition();
+		this.states = spaces * DOUBLES_LIMIT + JAIL_TURNS;
+
+		this.transition = new double[states][states];
+		this.moves = new double[states];
+		this.goPasses = new double[states];
+		this.distanceMoved = new double[states];
+
+		build();
+		this.stationary = solve();
+	}
+
+	/** @return The state of a player out of jail. */
+	private int free(int position, int doublesInARow)
+	{
+		return doublesInARow * spaces + position;
+	}
+
+	/** @return The state of a player in jail. */
+	private int jailed(int jailsInARow)
+	{
+		return spaces * DOUBLES_LIMIT + jailsInARow;
+	}
+
+	/** @return The space a state's hit is recorded on. */
+	private int spaceOf(int state)
+	{
+		return state < spaces * DOUBLES_LIMIT ? state % spaces : jail;
+	}
+
+	private void build()
+	{
+		for (int outcome = 0; outcome < roll.getOutcomes(); outcome++)
+		{
+			double p = roll.getOutcomeProbability(outcome);
+			int value = roll.getOutcomeSum(outcome);
+			boolean isDouble = roll.isOutcomeDouble(outcome);
+
+			//Out of jail.
+			for (int d = 0; d < DOUBLES_LIMIT; d++)
+			{
+				for (int position = 0; position < spaces; position++)
+				{
+					int from = free(position, d);
+					if (!isDouble)
+					{
+						moves[from] += p;
+						move(from, position, value, 0, p);
+					}
+					else if (d + 1 < DOUBLES_LIMIT)
+					{
+						//The roll again does not count as another move.
+						move(from, position, value, d + 1, p);
+					}
+					else
+					{
+						moves[from] += p;
+						transition[from][jailed(0)] += p;
+					}
+				}
+			}
+
+			//In jail. Every roll from jail is a move, since doubles do not roll again.
+			for (int j = 0; j < JAIL_TURNS; j++)
+			{
+				int from = jailed(j);
+				moves[from] += p;
+				if (isDouble)
+					move(from, jail, value, 1, p);
+				else if (j + 1 == JAIL_TURNS)
+					move(from, jail, value, 0, p);
+				else
+					transition[from][jailed(j + 1)] += p;
+			}
+		}
+	}
+
+	/**
+	 * Moves <code>distance</code> spaces and follows the landing space, like {@link com.marklalor.monopolysim.game.Game#move(int)}.
+	 */
+	private void move(int from, int position, int distance, int doublesInARow, double p)
+	{
+		distanceMoved[from] += p * Math.abs(distance);
+		int landing = position + distance;
+		while (landing >= spaces)
+		{
+			landing -= spaces;
+			goPasses[from] += p;
+		}
+		if (landing < 0)
+			landing += spaces;
+
+		Space space = board.getSpace(landing);
+		if (space instanceof GoToJail)
+			transition[from][jailed(0)] += p;
+		else if (space instanceof Chance)
+			draw(from, space, board.getChance(), doublesInARow, p);
+		else if (space instanceof CommunityChest)
+			draw(from, space, board.getCommunityChest(), doublesInARow, p);
+		else
+			transition[from][free(landing, doublesInARow)] += p;
+	}
+
+	/**
+	 * Follows each card of the deck, like {@link CardAction#use(com.marklalor.monopolysim.game.Game)}.
+	 */
+	private void draw(int from, Space space, Card card, int doublesInARow, double p)
+	{
+		CardAction[] actions = card.getActions();
+		double each = p / Card.SIZE;
+
+		for (CardAction action : actions)
+		{
+			switch (action)
+			{
+				case GO_DIRECTLY_TO_JAIL_DO_NOT_PASS_GO:
+					transition[from][jailed(0)] += each;
+					break;
+				case GO_BACK_THREE_SPACES:
+					move(from, space.getPosition(), -3, doublesInARow, each);
+					break;
+				case DO_NOTHING:
+					transition[from][free(space.getPosition(), doublesInARow)] += each;
+					break;
+				default:
+					move(from, space.getPosition(), space.distanceTo(board.getDestination(space.getPosition(), action)), doublesInARow, each);
+			}
+		}
+
+		//The rest of the deck does not move the player.
+		transition[from][free(space.getPosition(), doublesInARow)] += each * (Card.SIZE - actions.length);
+	}
+
+	/**
+	 * Solves <code>&pi;P = &pi;</code> with <code>&Sigma;&pi; = 1</code> by Gaussian elimination. The chain only has
+	 * 123 states, so a dense solve takes well under a millisecond.
+	 * @return The stationary distribution.
+	 */
+	private double[] solve()
+	{
+		//Rows of (P^T - I), with the last equation replaced by the normalization.
+		double[][] a = new double[states][states + 1];
+		for (int i = 0; i < states; i++)
+		{
+			for (int j = 0; j < states; j++)
+				a[i][j] = transition[j][i] - (i == j ? 1 : 0);
+		}
+		for (int j = 0; j <= states; j++)
+			a[states - 1][j] = 1;
+
+		for (int column = 0; column < states; column++)
+		{
+			int pivot = column;
+			for (int row = column + 1; row < states; row++)
+				if (Math.abs(a[row][column]) > Math.abs(a[pivot][column]))
+					pivot = row;
+			double[] swap = a[column];
+			a[column] = a[pivot];
+			a[pivot] = swap;
+
+			//Guards against a singular system rather than dividing by zero.
+			if (Math.abs(a[column][column]) < 1e-300)
+				continue;
+
+			for (int row = 0; row < states; row++)
+			{
+				if (row == column || a[row][column] == 0)
+					continue;
+				double factor = a[row][column] / a[column][column];
+				for (int j = column; j <= states; j++)
+					a[row][j] -= factor * a[column][j];
+			}
+		}
+
+		double[] pi = new double[states];
+		for (int i = 0; i < states; i++)
+			pi[i] = Math.abs(a[i][i]) < 1e-300 ? 0 : a[i][states] / a[i][i];
+		return pi;
+	}
+
+	/**
+	 * Gets the long-run probability of a roll landing on each space.
+	 * @return An array of probabilities indexed by space position.
+	 */
+	public double[] getLandingProbabilities()
+	{
+		double[] probabilities = new double[spaces];
+		for (int state = 0; state < states; state++)
+			probabilities[spaceOf(state)] += stationary[state];
+		return probabilities;
+	}
+
+	/**
+	 * @return The long-run probability of being in jail after a roll.
+	 */
+	public double getJailProbability()
+	{
+		double probability = 0;
+		for (int j = 0; j < JAIL_TURNS; j++)
+			probability += stationary[jailed(j)];
+		return probability;
+	}
+
+	/**
+	 * @return The probability of a roll being a double, whatever the state.
+	 */
+	public double getDoubleProbability()
+	{
+		double probability = 0;
+		for (int outcome = 0; outcome < roll.getOutcomes(); outcome++)
+			if (roll.isOutcomeDouble(outcome))
+				probability += roll.getOutcomeProbability(outcome);
+		return probability;
+	}
+
+	/** @return The long-run expected value of the given per-state rewards. */
+	private double expected(double[] rewards)
+	{
+		double sum = 0;
+		for (int state = 0; state < states; state++)
+			sum += stationary[state] * rewards[state];
+		return sum;
+	}
+
+	/**
+	 * Formats an expected value without an exponent, so that budgets as large as 10^12 rolls keep every digit.
+	 */
+	private static String plain(double value)
+	{
+		return BigDecimal.valueOf(value).toPlainString();
+	}
+
+	//Statistics.
+	//Same columns as Game.generateData(), holding the expected values after the given number of rolls.
+	//Position and the dice have no long-run value and are left empty, and "In Jail?" holds the probability of being in jail.
+	public String generateData(long rolls)
+	{
+		StringBuilder b = new StringBuilder();
+		b.append(rolls).append(',');
+		b.append(plain(rolls * expected(moves))).append(',');
+		b.append(',');
+		b.append(plain(rolls * getDoubleProbability())).append(',');
+		b.append(plain(rolls * expected(goPasses))).append(',');
+		b.append(plain(rolls * expected(distanceMoved))).append(',');
+		for (int d = 0; d < roll.getDiceCount(); d++)
+			b.append(',');
+		b.append(getJailProbability());
+
+		for (double probability : getLandingProbabilities())
+			b.append(',').append(plain(rolls * probability));
+		return b.toString();
+	}
+
+	/**
+	 * Writes the CSV headings and a line of {@link #generateData(long)} to the given file.
+	 * @param file The file to write to.
+	 * @param rolls The number of rolls to give the expected values for.
+	 * @throws IOException If the file could not be written.
+	 */
+	public void write(File file, long rolls) throws IOException
+	{
+		BufferedWriter out = new BufferedWriter(new FileWriter(file));
+		try
+		{
+			out.write(Data.getHeader(board, roll.getDiceCount()));
+			out.write(System.lineSeparator());
+			out.write(generateData(rolls));
+			out.write(System.lineSeparator());
+		}
+		finally
+		{
+			out.close();
+		}
+	}
+}
@@ -0,0 +1,48 @@
+package com.marklalor.monopolysim.game.metrics;
+
+import java.io.File;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Threshold;
+
+/**
+ * A Flight Recorder event spanning a write of data to the data file: a flush of CSV data, or a block of binary data.
+ * <p>
+ * CSV data written without the asynchronous writer is flushed after every row, so only flushes taking at least a
+ * millisecond are recorded unless the recording asks for a lower threshold.
+ */
+@Name("com.marklalor.monopolysim.DataFlush")
+@Label("Data Flush")
+@Category("Monopoly Simulator")
+@Description("Data written to the data file")
+@Threshold("1 ms")
+public class DataFlushEvent extends Event
+{
+	@Label("File")
+	private String file;
+	@Label("Bytes")
+	@Description("Bytes written since the previous flush")
+	@DataAmount
+	private long bytes;
+
+	/**
+	 * Ends the flush begun with {@link #begin()} and commits it if the recording wants it.
+	 * @param file The data file.
+	 * @param bytes The bytes written since the previous flush.
+	 */
+	public void finish(File file, long bytes)
+	{
+		end();
+		if (shouldCommit())
+		{
+			this.file = file.getPath();
+			this.bytes = bytes;
+			commit();
+		}
+	}
+}
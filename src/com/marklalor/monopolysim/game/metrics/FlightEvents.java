@@ -0,0 +1,79 @@
+package com.marklalor.monopolysim.game.metrics;
+
+import java.io.File;
+
+import jdk.jfr.FlightRecorder;
+
+/**
+ * Creates the Flight Recorder events of the simulator, but only while Flight Recorder is running.
+ * <p>
+ * Loading an event class registers it with Flight Recorder, which loads a few hundred classes and adds a few hundred
+ * milliseconds to a short run, so runs that are not recorded never load them. A recording started while a simulation
+ * is running, with <code>jcmd &lt;pid&gt; JFR.start</code>, is picked up from the next event on.
+ */
+public class FlightEvents
+{
+	private FlightEvents()
+	{
+	}
+
+	/**
+	 * @return Whether Flight Recorder has been started in this JVM.
+	 */
+	public static boolean isRecording()
+	{
+		return FlightRecorder.isInitialized();
+	}
+
+	/**
+	 * Begins a flush of the data file.
+	 * @return The event to pass to {@link #endFlush(DataFlushEvent, File, long)}, or <code>null</code> if not recording.
+	 */
+	public static DataFlushEvent beginFlush()
+	{
+		if (!isRecording())
+			return null;
+		DataFlushEvent event = new DataFlushEvent();
+		event.begin();
+		return event;
+	}
+
+	/**
+	 * Ends a flush of the data file.
+	 * @param event The event returned by {@link #beginFlush()}.
+	 * @param file The data file.
+	 * @param bytes The bytes written since the previous flush.
+	 */
+	public static void endFlush(DataFlushEvent event, File file, long bytes)
+	{
+		if (event != null)
+			event.finish(file, bytes);
+	}
+
+	/**
+	 * Begins drawing and saving an image.
+	 * @return The event to pass to {@link #endImageSave(ImageSaveEvent, File, long, boolean)}, or <code>null</code>
+	 *         if not recording.
+	 */
+	public static ImageSaveEvent beginImageSave()
+	{
+		if (!isRecording())
+			return null;
+		ImageSaveEvent event = new ImageSaveEvent();
+		event.begin();
+		return event;
+	}
+
+	/**
+	 * Ends drawing and saving an image.
+	 * @param event The event returned by {@link #beginImageSave()}.
+	 * @param file The image or animation file.
+	 * @param rolls The rolls of the game the image shows.
+	 * @param saved Whether the image was written successfully.
+	 */
+	public static void endImageSave(ImageSaveEvent event, File file, long rolls, boolean saved)
+	{
+		if (event != null)
+			event.finish(file, rolls, saved);
+	}
+}
@@ -0,0 +1,47 @@
+package com.marklalor.monopolysim.game.metrics;
+
+import java.io.File;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * A Flight Recorder event spanning the drawing and saving of one image of the board, either as its own PNG file or as
+ * the next frame of an animation.
+ */
+@Name("com.marklalor.monopolysim.ImageSave")
+@Label("Image Save")
+@Category("Monopoly Simulator")
+@Description("An image of the board drawn and saved")
+public class ImageSaveEvent extends Event
+{
+	@Label("File")
+	private String file;
+	@Label("Rolls")
+	@Description("Rolls of the game the image shows")
+	private long rolls;
+	@Label("Saved")
+	@Description("Whether the image was written successfully")
+	private boolean saved;
+
+	/**
+	 * Ends the save begun with {@link #begin()} and commits it if the recording wants it.
+	 * @param file The image or animation file.
+	 * @param rolls The rolls of the game the image shows.
+	 * @param saved Whether the image was written successfully.
+	 */
+	public void finish(File file, long rolls, boolean saved)
+	{
+		end();
+		if (shouldCommit())
+		{
+			this.file = file.getPath();
+			this.rolls = rolls;
+			this.saved = saved;
+			commit();
+		}
+	}
+}
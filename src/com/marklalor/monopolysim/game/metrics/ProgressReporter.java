@@ -0,0 +1,165 @@
+package com.marklalor.monopolysim.game.metrics;
+
+import java.text.DecimalFormat;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.marklalor.monopolysim.Main;
+import com.marklalor.monopolysim.Settings;
+import com.marklalor.monopolysim.game.Game;
+import com.marklalor.monopolysim.game.data.Data;
+
+/**
+ * Prints the progress of a simulation from a thread of its own, every {@link #PERIOD_MILLIS} milliseconds, so that the
+ * loops playing the turns never touch the console.
+ * <p>
+ * Each loop publishes the rolls of its game to the counter given by {@link #track(Game)} after every turn, with
+ * {@link AtomicLong#lazySet(long)}, which is no more than a plain store. The reporter adds the counters up and prints
+ * the rolls, the percentage of the rolls to simulate, the rolls per second since it started and the time left at that
+ * pace. When the settings ask for the console to be cleared, it is cleared before each report, and the last line of
+ * data is printed under it.
+ */
+public class ProgressReporter
+{
+	/** Milliseconds between two reports. */
+	public static final long PERIOD_MILLIS = 250;
+
+	private Settings settings;
+	/** The rolls of each game, published by the thread playing it. */
+	private List<AtomicLong> counters = new CopyOnWriteArrayList<AtomicLong>();
+	/** Rolls the games had already played when they were tracked, such as those of a checkpoint. */
+	private AtomicLong startRolls = new AtomicLong();
+	/** The data whose last line is printed when clearing the console, or <code>null</code>. */
+	private volatile Data data;
+	private ScheduledExecutorService executor;
+	private long start;
+	private DecimalFormat percent = new DecimalFormat("#0.000");
+	private DecimalFormat rate = new DecimalFormat("#,##0");
+
+	/**
+	 * @param settings The settings of the run.
+	 */
+	public ProgressReporter(Settings settings)
+	{
+		this.settings = settings;
+	}
+
+	/**
+	 * Adds a game playing rolls of the run. Its rolls are added to those of the other games.
+	 * @param game The game.
+	 * @return The counter to publish the rolls of the game to, with <code>lazySet(game.getRolls())</code>.
+	 */
+	public AtomicLong track(Game game)
+	{
+		AtomicLong counter = new AtomicLong(game.getRolls());
+		startRolls.addAndGet(game.getRolls());
+		counters.add(counter);
+		return counter;
+	}
+
+	/**
+	 * @param data The data of the game writing it, whose last line is printed when clearing the console.
+	 */
+	public void setData(Data data)
+	{
+		this.data = data;
+	}
+
+	/**
+	 * Starts reporting. Nothing is reported while debugging, as every roll is printed already.
+	 * @return This reporter.
+	 */
+	public ProgressReporter start()
+	{
+		start = System.nanoTime();
+		if (Main.DEBUG)
+			return this;
+		executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactory()
+		{
+			@Override
+			public Thread newThread(Runnable r)
+			{
+				Thread thread = new Thread(r, "Progress Reporter");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		executor.scheduleAtFixedRate(new Runnable()
+		{
+			@Override
+			public void run()
+			{
+				report();
+			}
+		}, PERIOD_MILLIS, PERIOD_MILLIS, TimeUnit.MILLISECONDS);
+		return this;
+	}
+
+	/**
+	 * Stops reporting, and reports the progress one last time.
+	 */
+	public void stop()
+	{
+		if (executor == null)
+			return;
+		executor.shutdownNow();
+		try
+		{
+			executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+		}
+		catch(InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+		}
+		executor = null;
+		report();
+	}
+
+	/**
+	 * @return The rolls so far, over every game, as last published.
+	 */
+	public long getRolls()
+	{
+		long rolls = 0;
+		for (AtomicLong counter : counters)
+			rolls += counter.get();
+		return rolls;
+	}
+
+	private void report()
+	{
+		long rolls = getRolls();
+		long target = settings.getRolls();
+		double seconds = (System.nanoTime() - start) / 1e9;
+		double perSecond = seconds > 0 ? (rolls - startRolls.get()) / seconds : 0;
+
+		StringBuilder b = new StringBuilder();
+		b.append("Roll ").append(rolls).append('/').append(target);
+		b.append(" (").append(percent.format(target > 0 ? (double) rolls * 100 / target : 100)).append("%), ");
+		b.append(rate.format(perSecond)).append(" rolls/s, ETA ");
+		if (rolls >= target)
+			b.append(eta(0));
+		else if (perSecond > 0)
+			b.append(eta((long) Math.ceil((target - rolls) / perSecond)));
+		else
+			b.append("unknown");
+
+		if (settings.isClear())
+			Main.clearConsole();
+		System.out.println(b);
+		Data data = this.data;
+		if (settings.isClear() && data != null)
+			System.out.println(data.getLastLine());
+		System.out.flush();
+	}
+
+	private static String eta(long seconds)
+	{
+		return String.format("%d:%02d:%02d", seconds / 3600, seconds / 60 % 60, seconds % 60);
+	}
+}
@@ -0,0 +1,325 @@
+package com.marklalor.monopolysim.game.metrics;
+
+import java.lang.management.ManagementFactory;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import com.marklalor.monopolysim.Settings;
+import com.marklalor.monopolysim.game.Checkpoint;
+import com.marklalor.monopolysim.game.Game;
+import com.marklalor.monopolysim.game.layout.Layout;
+
+/**
+ * Publishes the metrics of a simulation as a platform MXBean, so that it can be monitored over JMX while it runs.
+ * <p>
+ * Nothing is counted here. The loop playing each game (one per thread) publishes its rolls and turns to the
+ * {@link Counters} given by {@link #track(Game)} after every turn, and the hits of each space every
+ * {@link Counters#HITS_TURNS} turns, with {@link AtomicLong#lazySet(long)}, which is no more than a plain store. The
+ * metrics only ever read those counters, never the games themselves, which belong to the threads playing them. The
+ * rows and bytes written are read from the {@link com.marklalor.monopolysim.game.data.Data} of the game writing the
+ * data, the images from its {@link com.marklalor.monopolysim.game.display.Renderer} and the checkpoint latency from
+ * the {@link Checkpoint}, which all publish them as volatile fields.
+ * <p>
+ * They are only registered when the settings ask for it, as starting the platform MBean server about doubles the
+ * classes a short run loads.
+ */
+public class SimulationMetrics implements SimulationMetricsMXBean
+{
+	/** Domain of the name the metrics are registered under. */
+	public static final String DOMAIN = "com.marklalor.monopolysim";
+
+	private Settings settings;
+	/** The name the metrics are registered under, or <code>null</code> if they are not. */
+	private ObjectName name;
+	/** The counters of each game playing the rolls, added from their own threads. */
+	private List<Counters> counters = new CopyOnWriteArrayList<Counters>();
+	/** Rolls the games had already played when they were tracked, such as those of a checkpoint. */
+	private AtomicLong startRolls = new AtomicLong();
+	private AtomicLong startTurns = new AtomicLong();
+	/** The game writing the data and images, which may not play any rolls itself. */
+	private volatile Game output;
+	private volatile Checkpoint checkpoint;
+	private long start = System.nanoTime();
+
+	/**
+	 * @param settings The settings of the run.
+	 */
+	public SimulationMetrics(Settings settings)
+	{
+		this.settings = settings;
+	}
+
+	/**
+	 * Adds a game playing rolls of the run. Its rolls, turns and hits are added to those of the other games.
+	 * @param game The game.
+	 * @return The counters to publish the progress of the game to, with {@link Counters#publish()} after every turn.
+	 */
+	public Counters track(Game game)
+	{
+		Counters counters = new Counters(game);
+		startRolls.addAndGet(game.getRolls());
+		startTurns.addAndGet(game.getMoves());
+		this.counters.add(counters);
+		return counters;
+	}
+
+	/**
+	 * The progress of one game, published by the thread playing it.
+	 */
+	public static class Counters
+	{
+		/** Turns between two publications of the hits of each space. */
+		public static final int HITS_TURNS = 1024;
+
+		private Game game;
+		private AtomicLong rolls;
+		private AtomicLong turns;
+		private AtomicLongArray hits;
+		/** Turns left until the hits are published again. */
+		private int untilHits = HITS_TURNS;
+
+		private Counters(Game game)
+		{
+			this.game = game;
+			this.rolls = new AtomicLong(game.getRolls());
+			this.turns = new AtomicLong(game.getMoves());
+			this.hits = new AtomicLongArray(game.getBoard().size());
+			publishHits();
+		}
+
+		/**
+		 * Publishes the rolls and turns of the game, and its hits every {@link #HITS_TURNS} calls. Only called by the
+		 * thread playing the game, after each turn.
+		 */
+		public void publish()
+		{
+			rolls.lazySet(game.getRolls());
+			turns.lazySet(game.getMoves());
+			if (--untilHits == 0)
+			{
+				untilHits = HITS_TURNS;
+				publishHits();
+			}
+		}
+
+		/**
+		 * Publishes everything, once the game has stopped.
+		 */
+		public void finish()
+		{
+			rolls.lazySet(game.getRolls());
+			turns.lazySet(game.getMoves());
+			publishHits();
+		}
+
+		private void publishHits()
+		{
+			for (int i = 0; i < hits.length(); i++)
+				hits.lazySet(i, game.getBoard().getSpace(i).getHits());
+		}
+	}
+
+	/**
+	 * @param output The game writing the data and images of the run.
+	 */
+	public void setOutput(Game output)
+	{
+		this.output = output;
+	}
+
+	/**
+	 * @param checkpoint The checkpoint of the run, or <code>null</code> if none is saved.
+	 */
+	public void setCheckpoint(Checkpoint checkpoint)
+	{
+		this.checkpoint = checkpoint;
+	}
+
+	/**
+	 * Registers the metrics with the platform MBean server if {@link Settings#isMetrics()}. A run whose metrics cannot
+	 * be registered, such as a second run with the same seed in the same JVM, is not stopped.
+	 * @return These metrics.
+	 */
+	public SimulationMetrics register()
+	{
+		if (!settings.isMetrics())
+			return this;
+		try
+		{
+			ObjectName name = new ObjectName(DOMAIN + ":type=Simulation,seed=" + settings.getSeed());
+			ManagementFactory.getPlatformMBeanServer().registerMBean(this, name);
+			this.name = name;
+		}
+		catch(JMException e)
+		{
+			System.out.println("Could not register the simulation metrics!");
+			e.printStackTrace();
+		}
+		return this;
+	}
+
+	/**
+	 * Removes the metrics from the platform MBean server, if they were registered.
+	 */
+	public void unregister()
+	{
+		if (name == null)
+			return;
+		MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+		try
+		{
+			server.unregisterMBean(name);
+		}
+		catch(JMException e)
+		{
+			System.out.println("Could not unregister the simulation metrics!");
+			e.printStackTrace();
+		}
+		name = null;
+	}
+
+	/**
+	 * @return The name the metrics are registered under, such as
+	 *         <code>com.marklalor.monopolysim:type=Simulation,seed=42</code>, or <code>null</code> if they are not.
+	 */
+	public ObjectName getObjectName()
+	{
+		return name;
+	}
+
+	@Override
+	public long getSeed()
+	{
+		return settings.getSeed();
+	}
+
+	@Override
+	public long getTargetRolls()
+	{
+		return settings.getRolls();
+	}
+
+	@Override
+	public long getRolls()
+	{
+		long rolls = 0;
+		for (Counters game : counters)
+			rolls += game.rolls.get();
+		return rolls;
+	}
+
+	@Override
+	public long getTurns()
+	{
+		long turns = 0;
+		for (Counters game : counters)
+			turns += game.turns.get();
+		return turns;
+	}
+
+	@Override
+	public double getRollsPerSecond()
+	{
+		return perSecond(getRolls() - startRolls.get());
+	}
+
+	@Override
+	public double getTurnsPerSecond()
+	{
+		return perSecond(getTurns() - startTurns.get());
+	}
+
+	private double perSecond(long count)
+	{
+		double seconds = getElapsedSeconds();
+		return seconds > 0 ? count / seconds : 0;
+	}
+
+	@Override
+	public double getElapsedSeconds()
+	{
+		return (System.nanoTime() - start) / 1e9;
+	}
+
+	@Override
+	public long getRowsWritten()
+	{
+		Game game = output;
+		return game == null ? 0 : game.getData().getRowsWritten();
+	}
+
+	@Override
+	public long getBytesWritten()
+	{
+		Game game = output;
+		return game == null ? 0 : game.getData().getBytesWritten();
+	}
+
+	@Override
+	public long getImagesSaved()
+	{
+		Game game = output;
+		return game == null ? 0 : game.getRenderer().getSaved();
+	}
+
+	@Override
+	public long getImagesDropped()
+	{
+		Game game = output;
+		return game == null ? 0 : game.getRenderer().getDropped();
+	}
+
+	@Override
+	public long getCheckpoints()
+	{
+		Checkpoint checkpoint = this.checkpoint;
+		return checkpoint == null ? 0 : checkpoint.getSaves();
+	}
+
+	@Override
+	public double getLastCheckpointMillis()
+	{
+		Checkpoint checkpoint = this.checkpoint;
+		return checkpoint == null ? 0 : checkpoint.getLastSaveNanos() / 1e6;
+	}
+
+	@Override
+	public double getAverageCheckpointMillis()
+	{
+		Checkpoint checkpoint = this.checkpoint;
+		return checkpoint == null || checkpoint.getSaves() == 0 ? 0 : checkpoint.getTotalSaveNanos() / 1e6 / checkpoint.getSaves();
+	}
+
+	@Override
+	public double getMaxCheckpointMillis()
+	{
+		Checkpoint checkpoint = this.checkpoint;
+		return checkpoint == null ? 0 : checkpoint.getMaxSaveNanos() / 1e6;
+	}
+
+	@Override
+	public String[] getSpaceNames()
+	{
+		Layout layout = settings.getLayout();
+		String[] names = new String[layout.size()];
+		for (int i = 0; i < names.length; i++)
+			names[i] = layout.getName(i);
+		return names;
+	}
+
+	@Override
+	public long[] getSpaceHits()
+	{
+		long[] hits = new long[settings.getLayout().size()];
+		for (Counters game : counters)
+			for (int i = 0; i < hits.length; i++)
+				hits[i] += game.hits.get(i);
+		return hits;
+	}
+}
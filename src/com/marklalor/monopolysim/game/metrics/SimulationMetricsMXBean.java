@@ -0,0 +1,97 @@
+package com.marklalor.monopolysim.game.metrics;
+
+/**
+ * The metrics of a running simulation, as seen through JMX (by <code>jconsole</code>, a JMX exporter or any other
+ * client) under the name given by {@link SimulationMetrics#getObjectName()}.
+ * <p>
+ * Every value is read from the simulation as it runs, without stopping it, so the counters may be a few turns behind,
+ * and the hits of each space up to {@link SimulationMetrics.Counters#HITS_TURNS} turns behind.
+ */
+public interface SimulationMetricsMXBean
+{
+	/**
+	 * @return The seed of the run.
+	 */
+	long getSeed();
+
+	/**
+	 * @return The rolls to simulate.
+	 */
+	long getTargetRolls();
+
+	/**
+	 * @return The rolls so far, over every thread.
+	 */
+	long getRolls();
+
+	/**
+	 * @return The turns so far, over every thread. A turn of doubles and the rolls following it count as one.
+	 */
+	long getTurns();
+
+	/**
+	 * @return The rolls per second since the simulation started or resumed.
+	 */
+	double getRollsPerSecond();
+
+	/**
+	 * @return The turns per second since the simulation started or resumed.
+	 */
+	double getTurnsPerSecond();
+
+	/**
+	 * @return The seconds since the simulation started or resumed.
+	 */
+	double getElapsedSeconds();
+
+	/**
+	 * @return The rows of data written since the simulation started or resumed.
+	 */
+	long getRowsWritten();
+
+	/**
+	 * @return The bytes of data written since the simulation started or resumed. Rows written asynchronously are
+	 *         counted once handed to the writer thread, and binary rows once their block is written.
+	 */
+	long getBytesWritten();
+
+	/**
+	 * @return The images of the board saved so far.
+	 */
+	long getImagesSaved();
+
+	/**
+	 * @return The images of the board dropped because the renderer was too far behind.
+	 */
+	long getImagesDropped();
+
+	/**
+	 * @return The checkpoints saved so far.
+	 */
+	long getCheckpoints();
+
+	/**
+	 * @return The milliseconds the last checkpoint took to save, or 0 if none was saved.
+	 */
+	double getLastCheckpointMillis();
+
+	/**
+	 * @return The average milliseconds a checkpoint took to save, or 0 if none was saved.
+	 */
+	double getAverageCheckpointMillis();
+
+	/**
+	 * @return The longest milliseconds a checkpoint took to save, or 0 if none was saved.
+	 */
+	double getMaxCheckpointMillis();
+
+	/**
+	 * @return The name of each space, indexed by position.
+	 */
+	String[] getSpaceNames();
+
+	/**
+	 * @return The hits of each space so far, over every thread, indexed by position.
+	 */
+	long[] getSpaceHits();
+}
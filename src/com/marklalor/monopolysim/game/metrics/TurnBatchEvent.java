@@ -0,0 +1,64 @@
+package com.marklalor.monopolysim.game.metrics;
+
+import com.marklalor.monopolysim.game.Game;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * A Flight Recorder event spanning a batch of about {@link TurnBatches#ROLLS} rolls of one game, so that a recording
+ * shows the pace of each thread of a simulation next to what the JVM was doing at the time. The batches of a game are
+ * begun and ended by {@link TurnBatches}.
+ */
+@Name("com.marklalor.monopolysim.TurnBatch")
+@Label("Turn Batch")
+@Category("Monopoly Simulator")
+@Description("A batch of rolls played by one game")
+public class TurnBatchEvent extends Event
+{
+	@Label("Rolls")
+	private long rolls;
+	@Label("Turns")
+	@Description("Turns of doubles and the rolls following them count as one")
+	private long turns;
+	@Label("Total Rolls")
+	@Description("Rolls of the game at the end of the batch")
+	private long totalRolls;
+
+	//Where the batch started, which is not recorded.
+	private transient long startRolls;
+	private transient long startTurns;
+
+	/**
+	 * Begins a batch at the current roll of the game.
+	 * @param game The game playing the batch.
+	 * @return The batch.
+	 */
+	public static TurnBatchEvent start(Game game)
+	{
+		TurnBatchEvent batch = new TurnBatchEvent();
+		batch.startRolls = game.getRolls();
+		batch.startTurns = game.getMoves();
+		batch.begin();
+		return batch;
+	}
+
+	/**
+	 * Ends the batch at the current roll of the game.
+	 * @param game The game playing the batch.
+	 */
+	public void finish(Game game)
+	{
+		end();
+		if (shouldCommit())
+		{
+			rolls = game.getRolls() - startRolls;
+			turns = game.getMoves() - startTurns;
+			totalRolls = game.getRolls();
+			commit();
+		}
+	}
+}
@@ -0,0 +1,59 @@
+package com.marklalor.monopolysim.game.metrics;
+
+import com.marklalor.monopolysim.game.Game;
+
+/**
+ * Records a {@link TurnBatchEvent} for every {@link #ROLLS} rolls of a game while Flight Recorder is running.
+ * <p>
+ * The loop playing the turns calls {@link #update()} after each turn, which only compares the rolls of the game with
+ * the end of the batch, and {@link #finish()} once it stops.
+ */
+public class TurnBatches
+{
+	/** Rolls in each batch. */
+	public static final long ROLLS = 1 << 20;
+
+	private Game game;
+	/** The rolls of the game at which the current batch ends. */
+	private long end;
+	/** The current batch, or <code>null</code> if it is not recorded. */
+	private TurnBatchEvent batch;
+
+	/**
+	 * Begins the first batch at the current roll of the game.
+	 * @param game The game playing the turns.
+	 */
+	public TurnBatches(Game game)
+	{
+		this.game = game;
+		next();
+	}
+
+	/**
+	 * Ends the current batch and begins the next one if the current one has played all its rolls.
+	 */
+	public void update()
+	{
+		if (game.getRolls() >= end)
+		{
+			finish();
+			next();
+		}
+	}
+
+	/**
+	 * Ends the current batch at the current roll of the game, whether or not it has played all its rolls.
+	 */
+	public void finish()
+	{
+		if (batch != null)
+			batch.finish(game);
+		batch = null;
+	}
+
+	private void next()
+	{
+		end = game.getRolls() + ROLLS;
+		batch = FlightEvents.isRecording() ? TurnBatchEvent.start(game) : null;
+	}
+}
@@ -1,7 +1,5 @@
 package com.marklalor.monopolysim.game.space;
 
-import com.marklalor.monopolysim.game.Board;
-
 /**
  * Data class to hold information on a space's position, name, and number of times it has been landed on. 
  * @author Mark Lalor
@@ -9,12 +7,14 @@ import com.marklalor.monopolysim.game.Board;
 public class Space
 {
 	private int position = -1;
-	private int hits = 0;
+	private long hits = 0;
 	private String name = "Unnamed";
+	/** Number of spaces on the board this space is part of. */
+	private int boardSize = 40;
 	
 	/**
 	 * Gets integer position of the space on the board. 
-	 * @return an integer ranging from 0-39.
+	 * @return an integer ranging from 0 to the size of the board less one (0-39 on the standard board).
 	 */
 	public int getPosition()
 	{
@@ -34,7 +34,7 @@ public class Space
 	 * Gets the number of times this space has been landed on.
 	 * @return times the space has been landed on.
 	 */
-	public int getHits()
+	public long getHits()
 	{
 		return hits;
 	}
@@ -42,13 +42,22 @@ public class Space
 	
 	/**
 	 * Sets the position of the space.
-	 * @param position an integer ranging from 0-39.
+	 * @param position an integer ranging from 0 to the size of the board less one.
 	 */
 	public void setPosition(int position)
 	{
 		this.position = position;
 	}
 	
+	/**
+	 * Sets the number of spaces on the board, which {@link #distanceTo(int)} wraps around.
+	 * @param boardSize number of spaces on the board, 40 unless set.
+	 */
+	public void setBoardSize(int boardSize)
+	{
+		this.boardSize = boardSize;
+	}
+	
 	/**
 	 * Sets the name of the space.
 	 * @param name name of the space.
@@ -62,7 +71,7 @@ public class Space
 	 * Sets the number of times the space has been landed on.
 	 * @param hits number of times the space has been landed on.
 	 */
-	public void setHits(int hits)
+	public void setHits(long hits)
 	{
 		this.hits = hits;
 	}
@@ -86,7 +95,7 @@ public class Space
 	public int distanceTo(int otherPosition)
 	{
 		if (otherPosition < position)
-			otherPosition += Board.DEFAULT_LAYOUT.length;
+			otherPosition += boardSize;
 		
 		return otherPosition - position;
 	}
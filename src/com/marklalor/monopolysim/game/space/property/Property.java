@@ -9,10 +9,15 @@ import com.marklalor.monopolysim.game.space.Space;
  */
 public class Property extends Space
 {
-	private java.awt.Color color;
+	/** RGB value of the color of the property. */
+	private int color;
 	private int price;
+	/** Cost of each house, or of the hotel. */
+	private int houseCost;
+	/** Rent with no houses, 1 to 4 houses and a hotel. */
+	private int[] rents;
 	
-	public java.awt.Color getColor()
+	public int getColor()
 	{
 		return color;
 	}
@@ -22,7 +27,7 @@ public class Property extends Space
 		return price;
 	}
 	
-	public void setColor(java.awt.Color color)
+	public void setColor(int color)
 	{
 		this.color = color;
 	}
@@ -31,4 +36,29 @@ public class Property extends Space
 	{
 		this.price = price;
 	}
-}
\ No newline at end of file
+	
+	public int getHouseCost()
+	{
+		return houseCost;
+	}
+	
+	public void setHouseCost(int houseCost)
+	{
+		this.houseCost = houseCost;
+	}
+	
+	/**
+	 * Gets the rent of the property.
+	 * @param houses The number of houses on the property, 5 for a hotel.
+	 * @return The rent, before any doubling for owning every property of the color.
+	 */
+	public int getRent(int houses)
+	{
+		return rents[houses];
+	}
+	
+	public void setRents(int[] rents)
+	{
+		this.rents = rents;
+	}
+}
@@ -5,4 +5,6 @@ import com.marklalor.monopolysim.game.space.Space;
 public class Go extends Space
 {
 	public static final int POSITION = 0;
+	/** Collected for passing or landing on Go. */
+	public static final int SALARY = 200;
 }
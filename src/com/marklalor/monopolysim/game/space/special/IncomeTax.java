@@ -5,4 +5,6 @@ import com.marklalor.monopolysim.game.space.Space;
 public class IncomeTax extends Space
 {
 	public static final int POSITION = 4;
+	
+	public static final int AMOUNT = 200;
 }
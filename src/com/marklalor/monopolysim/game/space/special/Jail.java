@@ -8,7 +8,10 @@ import com.marklalor.monopolysim.game.space.Space;
  */
 public class Jail extends Space
 {
+	/** Position on the standard board, see {@link com.marklalor.monopolysim.game.Board#getJail()} for others. */
 	public static final int POSITION = 10;
+	/** Paid to leave jail. */
+	public static final int FINE = 50;
 	
 	private boolean inJail = false;
 	
@@ -5,4 +5,6 @@ import com.marklalor.monopolysim.game.space.Space;
 public class LuxuryTax extends Space
 {
 	public static final int POSITION = 38;
+	
+	public static final int AMOUNT = 100;
 }
@@ -5,4 +5,8 @@ import com.marklalor.monopolysim.game.space.Space;
 public class Railroad extends Space
 {
 	public static final int[] POSITIONS = {5, 15, 25, 35};
+	
+	public static final int PRICE = 200;
+	/** Rent of a railroad, by the number of railroads its owner has (less one). */
+	public static final int[] RENTS = {25, 50, 100, 200};
 }
@@ -5,4 +5,8 @@ import com.marklalor.monopolysim.game.space.Space;
 public class Utility extends Space
 {
 	public static final int[] POSITIONS = {12, 28};
+	
+	public static final int PRICE = 150;
+	/** Rent of a utility as a multiple of the dice, by the number of utilities its owner has (less one). */
+	public static final int[] MULTIPLIERS = {4, 10};
 }
@@ -1,22 +1,39 @@
 package com.marklalor.monopolysim.roll;
 
-import java.util.Random;
+import com.marklalor.monopolysim.roll.random.RandomSource;
 
 public class Die
 {
 	private int min, max;
 	private int value;
+	private RandomSource random;
+	/** Relative weight of each face from <code>min</code> up, or <code>null</code> for a fair die. */
+	private double[] weights;
 	
-	public Die(int sides)
+	public Die(int sides, RandomSource random)
 	{
 		setSides(sides);
 		value = min;
+		this.random = random;
 	}
 
-	public Die(int min, int max)
+	public Die(int min, int max, RandomSource random)
 	{
 		setRange(min, max);
 		value = min;
+		this.random = random;
+	}
+	
+	/**
+	 * Creates a loaded die.
+	 * @param min The lowest face.
+	 * @param weights The relative weight of each face, from <code>min</code> up.
+	 * @param random The source the die is rolled with.
+	 */
+	public Die(int min, double[] weights, RandomSource random)
+	{
+		this(min, min + weights.length - 1, random);
+		this.weights = weights;
 	}
 	
 	public void setSides(int sides)
@@ -28,6 +45,7 @@ public class Die
 	{
 		this.min = min;
 		this.max = max;
+		this.weights = null;
 	}
 	
 	public int getSides()
@@ -47,12 +65,53 @@ public class Die
 	
 	public int roll()
 	{
-		value = (new Random()).nextInt(max - min + 1) + min;
+		if (weights == null)
+		{
+			value = random.nextInt(max - min + 1) + min;
+			return value;
+		}
+		double target = random.nextDouble() * getTotalWeight();
+		value = max;
+		for (int face = 0; face < weights.length - 1; face++)
+		{
+			target -= weights[face];
+			if (target < 0)
+			{
+				value = min + face;
+				break;
+			}
+		}
 		return value;
 	}
 	
+	/**
+	 * @param face A face of the die.
+	 * @return The probability of rolling the face.
+	 */
+	public double getProbability(int face)
+	{
+		if (face < min || face > max)
+			return 0;
+		if (weights == null)
+			return 1.0 / getSides();
+		return weights[face - min] / getTotalWeight();
+	}
+	
+	private double getTotalWeight()
+	{
+		double total = 0;
+		for (double weight : weights)
+			total += weight;
+		return total;
+	}
+	
 	public int getValue()
 	{
 		return value;
 	}
+	
+	public void setValue(int value)
+	{
+		this.value = value;
+	}
 }
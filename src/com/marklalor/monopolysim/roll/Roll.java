@@ -1,42 +1,389 @@
 package com.marklalor.monopolysim.roll;
 
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
 import com.marklalor.monopolysim.Main;
+import com.marklalor.monopolysim.roll.random.RandomSource;
 
+/**
+ * Rolls a set of dice at once, two six-sided ones unless told otherwise.
+ * <p>
+ * The dice can have any range of faces and be loaded. Rather than rolling them one at a time, every way they can fall
+ * is listed once, with its sum, whether it is a double (every die showing the same face) and its probability, and the
+ * list is turned into a Walker alias table (built with Vose's method). A roll then takes a single random draw: its
+ * upper 32 bits pick an entry of the table uniformly, and its lower 32 bits decide between the entry and its alias.
+ * <p>
+ * When the dice have more than {@link #MAX_COMBINATIONS} ways to fall, the ways are merged by sum and double, which
+ * is all a game needs, and the values of the individual dice are left at 0.
+ */
 public class Roll
 {
-	private Die die1, die2;
+	/** The most ways to fall listed one by one. */
+	public static final int MAX_COMBINATIONS = 1 << 16;
+	/** The standard dice. */
+	public static final String DEFAULT_DICE = "2d6";
+	/** A threshold of an entry that never gives way to its alias. */
+	private static final long ALWAYS = 1L << 32;
+
+	private Die[] dice;
+	private RandomSource random;
 	private int value;
-	
-	public Roll()
+	private boolean isDouble;
+
+	//One entry per way to fall.
+	private int[] sums;
+	private boolean[] doubles;
+	private double[] probabilities;
+	/** The value of each die, indexed by <code>entry * dice + die</code>, or <code>null</code> when merged. */
+	private int[] faces;
+	/** The lower 32 bits of a draw below which the entry is kept rather than its alias. */
+	private long[] thresholds;
+	private int[] aliases;
+
+	public Roll(RandomSource random)
 	{
-		this.die1 = new Die(6);
-		this.die2 = new Die(6);
+		this(random, new Die(6, random), new Die(6, random));
 	}
-	
+
+	/**
+	 * @param random The source the dice are rolled with.
+	 * @param dice The dice, at least one. Their own sources are not used.
+	 */
+	public Roll(RandomSource random, Die... dice)
+	{
+		if (dice.length == 0)
+			throw new IllegalArgumentException("A roll needs at least one die!");
+		this.dice = dice;
+		this.random = random;
+
+		long combinations = 1;
+		for (Die die : dice)
+			combinations = Math.min(combinations * die.getSides(), MAX_COMBINATIONS + 1L);
+		if (combinations <= MAX_COMBINATIONS)
+			enumerate((int) combinations);
+		else
+			merge();
+		buildAliases();
+	}
+
+	/**
+	 * Lists every way the dice can fall.
+	 */
+	private void enumerate(int combinations)
+	{
+		sums = new int[combinations];
+		doubles = new boolean[combinations];
+		probabilities = new double[combinations];
+		faces = new int[combinations * dice.length];
+
+		for (int entry = 0; entry < combinations; entry++)
+		{
+			//Each die is a digit of the entry, the last die changing fastest.
+			int rest = entry;
+			double probability = 1;
+			for (int d = dice.length - 1; d >= 0; d--)
+			{
+				int face = dice[d].getMin() + rest % dice[d].getSides();
+				rest /= dice[d].getSides();
+				faces[entry * dice.length + d] = face;
+				sums[entry] += face;
+				probability *= dice[d].getProbability(face);
+			}
+			probabilities[entry] = probability;
+			doubles[entry] = isDouble(faces, entry * dice.length, dice.length);
+		}
+	}
+
+	private static boolean isDouble(int[] faces, int offset, int length)
+	{
+		if (length < 2)
+			return false;
+		for (int d = 1; d < length; d++)
+			if (faces[offset + d] != faces[offset])
+				return false;
+		return true;
+	}
+
+	/**
+	 * Adds the dice up one at a time into the distribution of (sum, double).
+	 */
+	private void merge()
+	{
+		//Probability of each partial sum with all the dice so far equal, and with any dice.
+		Map<Integer, Double> any = new LinkedHashMap<Integer, Double>();
+		any.put(0, 1.0);
+		double[] allEqual = null;
+		int min = dice[0].getMin();
+		int max = dice[0].getMax();
+		for (Die die : dice)
+		{
+			Map<Integer, Double> next = new LinkedHashMap<Integer, Double>();
+			for (Map.Entry<Integer, Double> partial : any.entrySet())
+				for (int face = die.getMin(); face <= die.getMax(); face++)
+					next.merge(partial.getKey() + face, partial.getValue() * die.getProbability(face), Double::sum);
+			any = next;
+			min = Math.max(min, die.getMin());
+			max = Math.min(max, die.getMax());
+		}
+		//Probability of every die showing each face they share.
+		if (dice.length > 1 && min <= max)
+		{
+			allEqual = new double[max - min + 1];
+			for (int face = min; face <= max; face++)
+			{
+				allEqual[face - min] = 1;
+				for (Die die : dice)
+					allEqual[face - min] *= die.getProbability(face);
+			}
+		}
+
+		List<Integer> sumList = new ArrayList<Integer>();
+		List<Boolean> doubleList = new ArrayList<Boolean>();
+		List<Double> probabilityList = new ArrayList<Double>();
+		for (Map.Entry<Integer, Double> entry : any.entrySet())
+		{
+			double probability = entry.getValue();
+			int sum = entry.getKey();
+			if (allEqual != null && sum % dice.length == 0 && sum / dice.length >= min && sum / dice.length <= max)
+			{
+				double same = allEqual[sum / dice.length - min];
+				probability -= same;
+				sumList.add(sum);
+				doubleList.add(true);
+				probabilityList.add(same);
+			}
+			sumList.add(sum);
+			doubleList.add(false);
+			probabilityList.add(Math.max(0, probability));
+		}
+
+		sums = new int[sumList.size()];
+		doubles = new boolean[sumList.size()];
+		probabilities = new double[sumList.size()];
+		for (int i = 0; i < sums.length; i++)
+		{
+			sums[i] = sumList.get(i);
+			doubles[i] = doubleList.get(i);
+			probabilities[i] = probabilityList.get(i);
+		}
+		faces = null;
+	}
+
+	/**
+	 * Builds the alias table of the entries with Vose's method.
+	 */
+	private void buildAliases()
+	{
+		int n = probabilities.length;
+		double total = 0;
+		for (double probability : probabilities)
+			total += probability;
+
+		double[] scaled = new double[n];
+		int[] small = new int[n];
+		int[] large = new int[n];
+		int smallCount = 0, largeCount = 0;
+		for (int i = 0; i < n; i++)
+		{
+			scaled[i] = probabilities[i] / total * n;
+			probabilities[i] /= total;
+			if (scaled[i] < 1)
+				small[smallCount++] = i;
+			else
+				large[largeCount++] = i;
+		}
+
+		thresholds = new long[n];
+		aliases = new int[n];
+		while (smallCount > 0 && largeCount > 0)
+		{
+			int less = small[--smallCount];
+			int more = large[--largeCount];
+			thresholds[less] = (long) (scaled[less] * ALWAYS);
+			aliases[less] = more;
+			scaled[more] -= 1 - scaled[less];
+			if (scaled[more] < 1)
+				small[smallCount++] = more;
+			else
+				large[largeCount++] = more;
+		}
+		//What is left only misses 1 by rounding.
+		while (largeCount > 0)
+		{
+			int i = large[--largeCount];
+			thresholds[i] = ALWAYS;
+			aliases[i] = i;
+		}
+		while (smallCount > 0)
+		{
+			int i = small[--smallCount];
+			thresholds[i] = ALWAYS;
+			aliases[i] = i;
+		}
+	}
+
 	public int roll()
-	{	
-		this.value = die1.roll() + die2.roll();
-		if (Main.DEBUG) System.out.println("Roll: " + die1.getValue() + " + " + die2.getValue() + " = " + this.value + (this.isDouble()?" (double)":""));
+	{
+		int n = thresholds.length;
+		long bits = random.nextLong();
+		long product = (bits >>> 32) * n;
+		if ((product & 0xFFFFFFFFL) < n)
+		{
+			//Reject the few draws that would make the first entries more likely, as in RandomSource.nextInt(int).
+			long threshold = (0x100000000L - n) % n;
+			while ((product & 0xFFFFFFFFL) < threshold)
+			{
+				bits = random.nextLong();
+				product = (bits >>> 32) * n;
+			}
+		}
+		int entry = (int) (product >>> 32);
+		if ((bits & 0xFFFFFFFFL) >= thresholds[entry])
+			entry = aliases[entry];
+
+		this.value = sums[entry];
+		this.isDouble = doubles[entry];
+		if (faces != null)
+			for (int d = 0; d < dice.length; d++)
+				dice[d].setValue(faces[entry * dice.length + d]);
+		if (Main.DEBUG) System.out.println("Roll: " + describe() + " = " + this.value + (this.isDouble?" (double)":""));
+		return this.value;
+	}
+
+	/**
+	 * Sets the dice to values chosen elsewhere instead of rolling them.
+	 * @param values The value of each die.
+	 * @return The sum of the dice.
+	 */
+	public int roll(int... values)
+	{
+		this.value = 0;
+		for (int d = 0; d < dice.length; d++)
+		{
+			dice[d].setValue(values[d]);
+			this.value += values[d];
+		}
+		this.isDouble = isDouble(values, 0, dice.length);
+		if (Main.DEBUG) System.out.println("Roll: " + describe() + " = " + this.value + (this.isDouble?" (double)":""));
 		return this.value;
 	}
-	
+
+	private String describe()
+	{
+		StringBuilder b = new StringBuilder();
+		for (int d = 0; d < dice.length; d++)
+			b.append(d == 0 ? "" : " + ").append(dice[d].getValue());
+		return b.toString();
+	}
+
+	/**
+	 * Reads dice written as <code>[count]d[sides]</code>, such as <code>2d6</code> or <code>3d4</code>, optionally
+	 * followed by a colon and the weights of the faces of each die separated by slashes, such as
+	 * <code>2d6:1/1/1/1/1/2</code> for two dice loaded towards 6.
+	 * @param dice The description of the dice.
+	 * @param random The source the dice are rolled with.
+	 * @return The dice.
+	 * @throws IllegalArgumentException If the description cannot be read.
+	 */
+	public static Roll parse(String dice, RandomSource random)
+	{
+		String[] parts = dice.trim().toLowerCase().split(":");
+		int d = parts[0].indexOf('d');
+		if (d < 0 || parts.length > 2)
+			throw new IllegalArgumentException("Dice must be written like 2d6 or 2d6:1/1/1/1/1/2, not " + dice + "!");
+		int count = d == 0 ? 1 : Integer.parseInt(parts[0].substring(0, d));
+		int sides = Integer.parseInt(parts[0].substring(d + 1));
+		if (count < 1 || sides < 1)
+			throw new IllegalArgumentException("Dice need at least one die of at least one side, not " + dice + "!");
+
+		double[] weights = null;
+		if (parts.length == 2)
+		{
+			String[] values = parts[1].split("/");
+			if (values.length != sides)
+				throw new IllegalArgumentException("Dice with " + sides + " sides need " + sides + " weights, not " + values.length + "!");
+			weights = new double[sides];
+			for (int i = 0; i < sides; i++)
+			{
+				weights[i] = Double.parseDouble(values[i]);
+				if (!(weights[i] >= 0))
+					throw new IllegalArgumentException("Weights cannot be negative!");
+			}
+		}
+
+		Die[] all = new Die[count];
+		for (int i = 0; i < count; i++)
+			all[i] = weights == null ? new Die(sides, random) : new Die(1, weights, random);
+		return new Roll(random, all);
+	}
+
 	public Die getDie1()
 	{
-		return die1;
+		return dice[0];
 	}
-	
+
+	/**
+	 * @return The second die, or <code>null</code> with a single die.
+	 */
 	public Die getDie2()
 	{
-		return die2;
+		return dice.length > 1 ? dice[1] : null;
 	}
-	
+
+	public Die getDie(int index)
+	{
+		return dice[index];
+	}
+
+	/**
+	 * @param index The index of a die.
+	 * @return The value of the die, or 0 if there is no such die.
+	 */
+	public int getDieValue(int index)
+	{
+		return index < dice.length ? dice[index].getValue() : 0;
+	}
+
+	public int getDiceCount()
+	{
+		return dice.length;
+	}
+
 	public boolean isDouble()
 	{
-		return die1.getValue() == die2.getValue();
+		return isDouble;
 	}
-	
+
 	public int getValue()
 	{
 		return value;
 	}
+
+	//Every way to fall, with the dice merged past MAX_COMBINATIONS.
+
+	/**
+	 * @return The number of ways the dice are listed as falling.
+	 */
+	public int getOutcomes()
+	{
+		return sums.length;
+	}
+
+	public int getOutcomeSum(int outcome)
+	{
+		return sums[outcome];
+	}
+
+	public boolean isOutcomeDouble(int outcome)
+	{
+		return doubles[outcome];
+	}
+
+	public double getOutcomeProbability(int outcome)
+	{
+		return probabilities[outcome];
+	}
 }
@@ -0,0 +1,17 @@
+package com.marklalor.monopolysim.roll.random;
+
+/**
+ * Source of the draws of a {@link com.marklalor.monopolysim.game.card.Card} deck, which only ever asks for a bounded
+ * random integer, to pick a card or to shuffle the deck.
+ * <p>
+ * Every {@link RandomSource} is one. Sources that cannot be split or saved, such as the card draws shared by the games
+ * of a {@link com.marklalor.monopolysim.game.Comparison}, only need to be this.
+ */
+public interface DrawSource
+{
+	/**
+	 * @param bound The upper bound, which must be positive.
+	 * @return An unbiased random integer in <code>[0, bound)</code>.
+	 */
+	public int nextInt(int bound);
+}
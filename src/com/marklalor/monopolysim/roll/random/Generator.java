@@ -0,0 +1,23 @@
+package com.marklalor.monopolysim.roll.random;
+
+/**
+ * The available {@link RandomSource} implementations.
+ */
+public enum Generator
+{
+	SPLITTABLE,
+	XOROSHIRO;
+	
+	/**
+	 * Creates a new source of this type.
+	 * @param seed The seed of the source.
+	 * @return A new {@link RandomSource}.
+	 */
+	public RandomSource create(long seed)
+	{
+		if (this == SPLITTABLE)
+			return new SplittableRandomSource(seed);
+		else
+			return new XoroshiroRandomSource(seed);
+	}
+}
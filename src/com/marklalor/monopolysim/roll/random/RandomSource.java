@@ -0,0 +1,76 @@
+package com.marklalor.monopolysim.roll.random;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Source of random numbers shared by the dice and the cards of a single game.
+ * <p>
+ * Implementations are seeded explicitly, so that two games built with the same seed roll and draw exactly the same
+ * values. They are not thread-safe: every thread should use its own source, obtained through {@link #split()}.
+ */
+public abstract class RandomSource implements DrawSource
+{
+	/**
+	 * @return The next 64 random bits.
+	 */
+	public abstract long nextLong();
+	
+	/**
+	 * Creates a new, statistically independent source and advances this one, so that separate threads can be handed
+	 * their own streams while keeping the run reproducible from a single seed.
+	 * @return A new source.
+	 */
+	public abstract RandomSource split();
+	
+	/**
+	 * Saves the state of this source, so that it can continue from the same point later.
+	 * @param buffer The buffer to write the state to.
+	 */
+	public abstract void writeState(ByteBuffer buffer);
+	
+	/**
+	 * Restores a state saved by {@link #writeState(ByteBuffer)}.
+	 * @param buffer The buffer to read the state from.
+	 */
+	public abstract void readState(ByteBuffer buffer);
+	
+	/**
+	 * Returns an unbiased random integer between 0 (inclusive) and <code>bound</code> (exclusive), using a
+	 * multiply-and-shift instead of a division whenever possible.
+	 * @param bound The upper bound, which must be positive.
+	 * @return A value in <code>[0, bound)</code>.
+	 */
+	@Override
+	public int nextInt(int bound)
+	{
+		int value = bounded(nextLong(), bound);
+		while (value < 0)
+			value = bounded(nextLong(), bound);
+		return value;
+	}
+	
+	/**
+	 * Maps 64 random bits to an integer between 0 (inclusive) and <code>bound</code> (exclusive) as
+	 * {@link #nextInt(int)} does, for sources that hold their bits elsewhere.
+	 * @param bits The random bits.
+	 * @param bound The upper bound, which must be positive.
+	 * @return A value in <code>[0, bound)</code>, or -1 if the bits must be rejected and new ones drawn.
+	 */
+	public static int bounded(long bits, int bound)
+	{
+		long product = (bits >>> 32) * bound;
+		long low = product & 0xFFFFFFFFL;
+		//Reject the few values that would make the lower results more likely.
+		if (low < bound && low < (0x100000000L - bound) % bound)
+			return -1;
+		return (int) (product >>> 32);
+	}
+	
+	/**
+	 * @return A random double between 0 (inclusive) and 1 (exclusive).
+	 */
+	public double nextDouble()
+	{
+		return (nextLong() >>> 11) * 0x1.0p-53;
+	}
+}
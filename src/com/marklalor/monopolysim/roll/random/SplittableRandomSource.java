@@ -0,0 +1,74 @@
+package com.marklalor.monopolysim.roll.random;
+
+import java.nio.ByteBuffer;
+
+/**
+ * {@link RandomSource} implementing SplitMix64, the algorithm behind {@link java.util.SplittableRandom}.
+ * <p>
+ * It is implemented here rather than wrapping {@link java.util.SplittableRandom} so that its state can be saved
+ * and restored.
+ */
+public class SplittableRandomSource extends RandomSource
+{
+	/** The default increment, 2^64 divided by the golden ratio. */
+	private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+	
+	private long seed;
+	/** Odd increment added to the seed for each number, which differs between split sources. */
+	private long gamma;
+	
+	public SplittableRandomSource(long seed)
+	{
+		this(seed, GOLDEN_GAMMA);
+	}
+	
+	private SplittableRandomSource(long seed, long gamma)
+	{
+		this.seed = seed;
+		this.gamma = gamma;
+	}
+	
+	private static long mix64(long z)
+	{
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+	
+	/**
+	 * Creates an odd increment with enough bit transitions to give a good stream.
+	 */
+	private static long mixGamma(long z)
+	{
+		z = (z ^ (z >>> 33)) * 0xFF51AFD7ED558CCDL;
+		z = (z ^ (z >>> 33)) * 0xC4CEB9FE1A85EC53L;
+		z = (z ^ (z >>> 33)) | 1L;
+		return Long.bitCount(z ^ (z >>> 1)) < 24 ? z ^ 0xAAAAAAAAAAAAAAAAL : z;
+	}
+	
+	@Override
+	public long nextLong()
+	{
+		return mix64(seed += gamma);
+	}
+	
+	@Override
+	public RandomSource split()
+	{
+		return new SplittableRandomSource(nextLong(), mixGamma(seed += gamma));
+	}
+	
+	@Override
+	public void writeState(ByteBuffer buffer)
+	{
+		buffer.putLong(seed);
+		buffer.putLong(gamma);
+	}
+	
+	@Override
+	public void readState(ByteBuffer buffer)
+	{
+		this.seed = buffer.getLong();
+		this.gamma = buffer.getLong();
+	}
+}
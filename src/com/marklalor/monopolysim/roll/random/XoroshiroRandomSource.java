@@ -0,0 +1,95 @@
+package com.marklalor.monopolysim.roll.random;
+
+import java.nio.ByteBuffer;
+
+/**
+ * {@link RandomSource} implementing the xoroshiro128++ generator of Blackman and Vigna.
+ * <p>
+ * The whole state is two <code>long</code>s, so drawing a number never allocates.
+ */
+public class XoroshiroRandomSource extends RandomSource
+{
+	/** Polynomial that advances the generator by 2^64 steps, used by {@link #split()}. */
+	private static final long[] JUMP = { 0x2bd7a6a6e99c2ddcL, 0x0992ccaf6a6fca05L };
+	
+	private long s0, s1;
+	
+	/**
+	 * Seeds the generator by expanding the given seed with SplitMix64, which guarantees a non-zero state.
+	 * @param seed Any value.
+	 */
+	public XoroshiroRandomSource(long seed)
+	{
+		this.s0 = mix(seed += 0x9E3779B97F4A7C15L);
+		this.s1 = mix(seed + 0x9E3779B97F4A7C15L);
+	}
+	
+	private XoroshiroRandomSource(long s0, long s1)
+	{
+		this.s0 = s0;
+		this.s1 = s1;
+	}
+	
+	private static long mix(long z)
+	{
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+	
+	@Override
+	public long nextLong()
+	{
+		long s0 = this.s0;
+		long s1 = this.s1;
+		long result = Long.rotateLeft(s0 + s1, 17) + s0;
+		
+		s1 ^= s0;
+		this.s0 = Long.rotateLeft(s0, 49) ^ s1 ^ (s1 << 21);
+		this.s1 = Long.rotateLeft(s1, 28);
+		
+		return result;
+	}
+	
+	/**
+	 * Returns a copy of the current generator, then jumps this one 2^64 steps ahead so that the two streams never
+	 * overlap.
+	 */
+	@Override
+	public RandomSource split()
+	{
+		XoroshiroRandomSource copy = new XoroshiroRandomSource(s0, s1);
+		
+		long j0 = 0, j1 = 0;
+		for (long jump : JUMP)
+		{
+			for (int b = 0; b < 64; b++)
+			{
+				if ((jump & (1L << b)) != 0)
+				{
+					j0 ^= s0;
+					j1 ^= s1;
+				}
+				nextLong();
+			}
+		}
+		this.s0 = j0;
+		this.s1 = j1;
+		
+		return copy;
+	}
+	
+	@Override
+	public void writeState(ByteBuffer buffer)
+	{
+		buffer.putLong(s0);
+		buffer.putLong(s1);
+	}
+	
+	@Override
+	public void readState(ByteBuffer buffer)
+	{
+		this.s0 = buffer.getLong();
+		this.s1 = buffer.getLong();
+	}
+}